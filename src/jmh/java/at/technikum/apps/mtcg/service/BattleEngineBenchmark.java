@@ -0,0 +1,89 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.Card;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares rounds per second of the string based rules ({@link LegacyBattleRules}) with the table based
+ * {@link BattleEngine}, on the same random pairs of cards, and whole battles of the engine.
+ * Run with <pre>java -jar target/benchmarks.jar BattleEngineBenchmark</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BattleEngineBenchmark {
+
+    private static final int ROUNDS = 1024;
+
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private Card[] cardsA;
+    private Card[] cardsB;
+    private int[] profilesA;
+    private int[] profilesB;
+    private BattleEngine.Deck deckA;
+    private BattleEngine.Deck deckB;
+
+    @Setup
+    public void setup() {
+        String[] names = {"WaterGoblin", "Dragon", "Wizzard", "Ork", "Knight", "Kraken", "FireElf", "WaterSpell", "FireSpell", "RegularSpell"};
+        String[] elements = {"water", "fire", "normal"};
+        String[] cardTypes = {"monster", "spell"};
+        cardsA = new Card[ROUNDS];
+        cardsB = new Card[ROUNDS];
+        profilesA = new int[ROUNDS];
+        profilesB = new int[ROUNDS];
+        for (int i = 0; i < ROUNDS; i++) {
+            cardsA[i] = randomCard(names, elements, cardTypes);
+            cardsB[i] = randomCard(names, elements, cardTypes);
+            profilesA[i] = BattleEngine.profileOf(cardsA[i]);
+            profilesB[i] = BattleEngine.profileOf(cardsB[i]);
+        }
+        deckA = new BattleEngine.Deck(new Card[]{cardsA[0], cardsA[1], cardsA[2], cardsA[3]});
+        deckB = new BattleEngine.Deck(new Card[]{cardsB[0], cardsB[1], cardsB[2], cardsB[3]});
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROUNDS)
+    @SuppressWarnings("deprecation")
+    public void legacyRounds(Blackhole blackhole) {
+        for (int i = 0; i < ROUNDS; i++) {
+            blackhole.consume(LegacyBattleRules.determineRoundWinner(cardsA[i], cardsB[i]));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROUNDS)
+    public void engineRounds(Blackhole blackhole) {
+        for (int i = 0; i < ROUNDS; i++) {
+            blackhole.consume(BattleEngine.roundWinner(profilesA[i], cardsA[i].getDamage(), profilesB[i], cardsB[i].getDamage()));
+        }
+    }
+
+    @Benchmark
+    public int engineBattle() {
+        return BattleEngine.fight(deckA.copy(), deckB.copy(), random, null);
+    }
+
+    private Card randomCard(String[] names, String[] elements, String[] cardTypes) {
+        return new Card("id", names[random.nextInt(names.length)], 5 + random.nextInt(60),
+                elements[random.nextInt(elements.length)], cardTypes[random.nextInt(cardTypes.length)]);
+    }
+}
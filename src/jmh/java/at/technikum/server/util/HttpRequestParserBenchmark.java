@@ -0,0 +1,100 @@
+package at.technikum.server.util;
+
+import at.technikum.server.http.Request;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Compares the old String based request parsing (readLine, regex and split) with {@link HttpRequestDecoder}.
+ * Run with the GC profiler to see the allocations per request:
+ * <pre>java -jar target/benchmarks.jar HttpRequestParserBenchmark -prof gc</pre>
+ * and compare the gc.alloc.rate.norm values (bytes per operation).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@SuppressWarnings("deprecation")
+public class HttpRequestParserBenchmark {
+
+    // A typical request of the curl script
+    private static final String BODY = "[\"845f0dc7-37d0-426e-994e-43fc3ac83c08\", \"99f8f8dc-e25e-4a95-aa2c-782823f36e2a\", "
+            + "\"e85e3976-7c86-4d06-9a80-641c2019a79f\", \"171f6076-4eb5-4a7d-b3f2-2d650cc3d237\"]";
+    private static final String REQUEST = "PUT /deck HTTP/1.1\r\n"
+            + "Host: localhost:10001\r\n"
+            + "User-Agent: curl/8.4.0\r\n"
+            + "Accept: */*\r\n"
+            + "Content-Type: application/json\r\n"
+            + "Authorization: Bearer kienboec-mtcgToken\r\n"
+            + "Content-Length: " + BODY.getBytes(StandardCharsets.UTF_8).length + "\r\n"
+            + "\r\n"
+            + BODY;
+
+    private byte[] requestBytes;
+    private ByteBuffer buffer;
+
+    private final HttpRequestParser parser = new HttpRequestParser();
+    private final HttpRequestDecoder decoder = new HttpRequestDecoder();
+
+    @Setup
+    public void setup() {
+        requestBytes = REQUEST.getBytes(StandardCharsets.UTF_8);
+        buffer = ByteBuffer.wrap(requestBytes);
+    }
+
+    /**
+     * What RequestHandler and HttpRequestParser did per request before the decoder.
+     */
+    @Benchmark
+    public Request legacyParser() throws IOException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(requestBytes), StandardCharsets.UTF_8));
+
+        StringBuilder builder = new StringBuilder();
+        String inputLine;
+        while ((inputLine = in.readLine()) != null) {
+            if (inputLine.equals("")) {
+                break;
+            }
+            builder.append(inputLine).append(System.lineSeparator());
+        }
+
+        Pattern regex = Pattern.compile("^Content-Length:\\s(.+)", Pattern.MULTILINE);
+        Matcher matcher = regex.matcher(builder.toString());
+        if (matcher.find()) {
+            builder.append(System.lineSeparator());
+            int contentLength = Integer.parseInt(matcher.group(1));
+            char[] body = new char[contentLength];
+            int read = in.read(body, 0, contentLength);
+            builder.append(body, 0, Math.max(read, 0));
+        }
+
+        return parser.toRequestObject(builder.toString());
+    }
+
+    @Benchmark
+    public Request decoder() {
+        // Same bytes every time, the decoder only moves the position
+        buffer.clear();
+        return decoder.decode(buffer);
+    }
+}
@@ -0,0 +1,62 @@
+package at.technikum.server.util;
+
+import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpStatus;
+import at.technikum.server.http.Response;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares String formatting plus encoding ({@link HttpResponseFormatter}) with encoding into pooled buffers
+ * ({@link HttpResponseWriter}) for a /cards sized JSON response.
+ * Run with <pre>java -jar target/benchmarks.jar HttpResponseWriterBenchmark -prof gc</pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpResponseWriterBenchmark {
+
+    private final HttpResponseFormatter formatter = new HttpResponseFormatter();
+    private final HttpResponseWriter writer = new HttpResponseWriter();
+
+    private Response response;
+
+    @Setup
+    public void setup() {
+        StringBuilder cards = new StringBuilder("[");
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) {
+                cards.append(',');
+            }
+            cards.append("{\"id\":\"845f0dc7-37d0-426e-994e-43fc3ac83c").append(10 + i)
+                    .append("\",\"name\":\"WaterGoblin\",\"damage\":10.0,\"elementType\":\"water\",\"cardType\":\"monster\"}");
+        }
+        response = new Response(HttpStatus.OK, HttpContentType.APPLICATION_JSON, cards.append(']').toString());
+    }
+
+    @Benchmark
+    public byte[] formatter() {
+        return formatter.toResponseBytes(response, true);
+    }
+
+    @Benchmark
+    public void writer(Blackhole blackhole) {
+        EncodedResponse encoded = writer.encode(response, true);
+        blackhole.consume(encoded.hasRemaining());
+        encoded.release();
+    }
+}
@@ -0,0 +1,22 @@
+package at.technikum;
+
+import at.technikum.apps.mtcg.database.Database;
+import at.technikum.apps.mtcg.repository.card.CardRepository_db;
+import at.technikum.apps.mtcg.service.BattleSimulator;
+
+/**
+ * Batch simulation mode: plays a round-robin tournament between the current decks of all users and prints
+ * the wins, draws and losses of every user. The decks are read once; nothing is written to the database.
+ * <p>
+ * Arguments: battles per pair (default 1000) and the seed (default: random). The same seed gives the same result.
+ */
+public class Simulation {
+    public static void main(String[] args) {
+        int battlesPerPair = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        long seed = args.length > 1 ? Long.parseLong(args[1]) : System.nanoTime();
+
+        BattleSimulator simulator = BattleSimulator.fromSystemProperties(new CardRepository_db(new Database()));
+        System.out.println("Simulating " + battlesPerPair + " battles per pair with seed " + seed);
+        System.out.print(simulator.tournament(battlesPerPair, seed));
+    }
+}
@@ -2,7 +2,6 @@ package at.technikum.apps.mtcg;
 
 import at.technikum.apps.mtcg.controller.*;
 import at.technikum.apps.mtcg.database.Database;
-import at.technikum.apps.mtcg.entity.BattleResult;
 import at.technikum.apps.mtcg.repository.battle.BattleRepository;
 import at.technikum.apps.mtcg.repository.battle.BattleRepository_db;
 import at.technikum.apps.mtcg.repository.card.CardRepository;
@@ -17,22 +16,51 @@ import at.technikum.apps.mtcg.repository.scoreboard.ScoreboardRepository;
 import at.technikum.apps.mtcg.repository.scoreboard.ScoreboardRepository_db;
 import at.technikum.apps.mtcg.repository.session.SessionRepository;
 import at.technikum.apps.mtcg.repository.session.SessionRepository_db;
+import at.technikum.apps.mtcg.repository.session.SessionRepository_hmac;
+import at.technikum.apps.mtcg.repository.session.SessionRepository_mmap;
 import at.technikum.apps.mtcg.repository.stats.StatsRepository;
 import at.technikum.apps.mtcg.repository.stats.StatsRepository_db;
 import at.technikum.apps.mtcg.repository.trading.TradingRepository;
 import at.technikum.apps.mtcg.repository.trading.TradingRepository_db;
+import at.technikum.apps.mtcg.repository.transaction.UnitOfWork;
+import at.technikum.apps.mtcg.repository.transaction.UnitOfWork_db;
 import at.technikum.apps.mtcg.repository.user.UserRepository;
 import at.technikum.apps.mtcg.repository.user.UserRepository_db;
 import at.technikum.apps.mtcg.repository.wheel.WheelOfFortuneRepository;
 import at.technikum.apps.mtcg.repository.wheel.WheelOfFortuneRepository_db;
 import at.technikum.apps.mtcg.service.*;
+import at.technikum.server.BlockingWait;
+import at.technikum.server.routing.Router;
 
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class Injector {
+
+    // How services block on other requests, e.g. battles waiting for an opponent
+    private final BlockingWait blockingWait;
+
+    /**
+     * @param blockingWait How services run waits on other requests; installed by the server.
+     */
+    public Injector(BlockingWait blockingWait) {
+        this.blockingWait = blockingWait;
+    }
+
+    /**
+     * Creates all controllers and collects their endpoints into one route table.
+     *
+     * @return The router for all endpoints of the app.
+     */
+    public Router createRouter() {
+        Router router = new Router();
+        for (Controller controller : createController()) {
+            controller.registerRoutes(router);
+        }
+        return router;
+    }
+
     public List<Controller> createController() {
         //Database initialisieren
         Database database = new Database();
@@ -40,7 +68,12 @@ public class Injector {
         // Repositories initialisieren
         UserRepository userRepository = new UserRepository_db(database);
         CardRepository cardRepository = new CardRepository_db(database);
-        SessionRepository sessionRepository = new SessionRepository_db(database);
+        // Sessions in the access_token table, in signed tokens or in a memory-mapped file; the latter two need no database
+        SessionRepository sessionRepository = switch (System.getProperty("mtcg.session.store", "db").toLowerCase()) {
+            case "hmac" -> SessionRepository_hmac.fromSystemProperties(userRepository);
+            case "mmap" -> SessionRepository_mmap.fromSystemProperties(userRepository);
+            default -> new SessionRepository_db(database);
+        };
         BattleRepository battleRepository = new BattleRepository_db(database);
         PackageRepository packageRepository = new PackageRepository_db(database);
         ScoreboardRepository scoreboardRepository = new ScoreboardRepository_db(database);
@@ -49,25 +82,27 @@ public class Injector {
         WheelOfFortuneRepository wheelOfFortuneRepository = new WheelOfFortuneRepository_db(database);
         CoinRepository coinRepository = new CoinRepository_db(database);
         ELORepository eloRepository = new ELORepository_db(database);
+        UnitOfWork unitOfWork = new UnitOfWork_db(database);
 
         // Services initialisieren
 
-        HashingService hashingService = new HashingService();
-        SessionService sessionService = new SessionService(userRepository, sessionRepository, hashingService);
+        HashingService hashingService = HashingService.fromSystemProperties();
+        TokenSweeper.fromSystemProperties(sessionRepository).start();
+        SessionService sessionService = new SessionService(userRepository, sessionRepository, hashingService, TokenCache.fromSystemProperties());
         UserService userService = new UserService(userRepository, hashingService);
         CardService cardService = new CardService(cardRepository);
-        DeckService deckService = new DeckService(cardRepository);
-        PackageService packageService = new PackageService(cardRepository, packageRepository);
+        DeckService deckService = new DeckService(cardRepository, unitOfWork);
+        PackageService packageService = new PackageService(cardRepository, packageRepository, unitOfWork);
         ScoreboardService scoreboardService = new ScoreboardService(scoreboardRepository);
         StatsService statsService = new StatsService(statsRepository);
-        TradingService tradingService = new TradingService(tradingRepository, cardRepository, userRepository);
-        TransactionsService transactionsService = new TransactionsService(userRepository, packageRepository, coinRepository);
+        TradingService tradingService = new TradingService(tradingRepository, cardRepository, userRepository, unitOfWork);
+        TransactionsService transactionsService = new TransactionsService(userRepository, packageRepository, coinRepository, unitOfWork);
         WheelOfFortuneService wheelOfFortuneService = new WheelOfFortuneService(wheelOfFortuneRepository, userRepository, cardRepository, coinRepository, random);
 
         // Battle-Logik und Battle-Warteschlange initialisieren
-        BattleLogic battleLogic = new BattleLogic(battleRepository, cardRepository, eloRepository);
-        ConcurrentHashMap<String, BattleResult> battlesWaiting = new ConcurrentHashMap<>();
-        BattleService battleService = new BattleService(battleRepository, battleLogic, battlesWaiting, deckService);
+        BattleLogic battleLogic = new BattleLogic(battleRepository, cardRepository, eloRepository, unitOfWork);
+        MatchmakingQueue matchmakingQueue = MatchmakingQueue.fromSystemProperties();
+        BattleService battleService = new BattleService(battleLogic, matchmakingQueue, deckService, BotOpponent.fromSystemProperties(cardRepository), blockingWait);
 
         // Controller mit Services initialisieren
         List<Controller> controllerList = new ArrayList<>();
@@ -1,94 +1,54 @@
 package at.technikum.apps.mtcg;
 
-import at.technikum.apps.mtcg.controller.*;
 import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
+import at.technikum.server.BlockingWait;
+import at.technikum.server.BlockingWaitHook;
 import at.technikum.server.ServerApplication;
 import at.technikum.server.http.HttpContentType;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
-
-import java.util.List;
+import at.technikum.server.routing.RouteMatch;
+import at.technikum.server.routing.Router;
 
 public class MtcgApp implements ServerApplication {
 
-    private final List<Controller> controllers;
+    // Route table of all controllers, built once at startup
+    private final Router router;
+
+    // Handed to the services before the server starts; the server installs how waits are run
+    private final BlockingWaitHook blockingWait = new BlockingWaitHook();
 
     public MtcgApp() {
-        Injector injector = new Injector();
-        this.controllers = injector.createController();
+        Injector injector = new Injector(blockingWait);
+        this.router = injector.createRouter();
+    }
+
+    @Override
+    public void installBlockingWait(BlockingWait blockingWait) {
+        this.blockingWait.install(blockingWait);
     }
 
     @Override
     public Response handle(Request request) {
         try {
-            // Extrahiert den ersten Teil des Pfades vor dem ersten '/' oder '?'
-            String route = request.getRoute().split("[/?]")[1];
-            Controller selectedController = null;
-
-            switch (route) {
-                case "users":
-                    selectedController = getController(UserController.class);
-                    break;
-                case "stats":
-                    selectedController = getController(StatsController.class);
-                    break;
-                case "scoreboard":
-                    selectedController = getController(ScoreboardController.class);
-                    break;
-                case "cards":
-                    selectedController = getController(CardController.class);
-                    break;
-                case "deck":
-                    selectedController = getController(DeckController.class);
-                    break;
-                case "sessions":
-                    selectedController = getController(SessionController.class);
-                    break;
-                case "packages":
-                    selectedController = getController(PackageController.class);
-                    break;
-                case "transactions":
-                    if (request.getRoute().startsWith("/transactions/packages")) {
-                        selectedController = getController(TransactionsController.class);
-                    }
-                    break;
-                case "battles":
-                    selectedController = getController(BattleController.class);
-                    break;
-                case "tradings":
-                    selectedController = getController(TradingController.class);
-                    break;
-                case "wheel":
-                    selectedController = getController(WheelOfFortuneController.class);
-                    break;
-                default:
-                    // Kein passender Controller gefunden
-                    break;
+            RouteMatch match = router.match(request);
+            if (match == null) {
+                return new Response(HttpStatus.NOT_FOUND, HttpContentType.TEXT_PLAIN, "Route " + request.getRoute() + " not found in app!");
+            }
+            if (!match.isMethodAllowed()) {
+                // Known path, but not for this method
+                return new Response(HttpStatus.BAD_REQUEST, HttpContentType.APPLICATION_JSON, "{ \"error\": \"" + HttpStatus.BAD_REQUEST.getMessage() + "\"}");
             }
 
-            if (selectedController != null && selectedController.supports(request.getRoute())) {
-                try {
-                    return selectedController.handle(request);
-                } catch (HttpStatusException e) {
-                    return new Response(e.getStatus(), HttpContentType.TEXT_PLAIN, e.getMessage());
-                }
-
-
-            } else {
-                return new Response(HttpStatus.NOT_FOUND, HttpContentType.TEXT_PLAIN, "Route " + request.getRoute() + " not found in app!");
+            request.setPathParameters(match.getPathParameters());
+            try {
+                return match.getHandler().handle(request);
+            } catch (HttpStatusException e) {
+                return new Response(e.getStatus(), HttpContentType.TEXT_PLAIN, e.getMessage());
             }
         } catch (Exception e) {
             return new Response(HttpStatus.INTERNAL_SERVER_ERROR, HttpContentType.TEXT_PLAIN, "Internal Server Error: " + e.getMessage());
         }
     }
-
-    private <T extends Controller> T getController(Class<T> controllerClass) {
-        for (Controller controller : controllers) {
-            if (controllerClass.isInstance(controller)) {
-                return controllerClass.cast(controller);
-            }
-        }
-        return null;
-    }
-}
\ No newline at end of file
+}
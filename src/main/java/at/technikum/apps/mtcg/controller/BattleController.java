@@ -4,31 +4,30 @@ import at.technikum.apps.mtcg.entity.BattleResult;
 import at.technikum.apps.mtcg.entity.User;
 import at.technikum.apps.mtcg.responses.ResponseHelper;
 import at.technikum.apps.mtcg.service.BattleService;
+import at.technikum.apps.mtcg.service.BattleTicket;
 import at.technikum.apps.mtcg.service.SessionService;
 import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.Router;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
 public class BattleController extends Controller {
     @Override
-    public boolean supports(String route) {
-        return route.startsWith("/battles");
+    public void registerRoutes(Router router) {
+        router.add(HttpMethod.POST, "/battles", this::battle);
+        router.add(HttpMethod.GET, "/battles/{id}", request -> getBattle(request.getPathParameter("id"), request));
     }
 
-    @Override
-    public Response handle(Request request) {
-        if (request.getRoute().equals("/battles")) {
-            switch (request.getMethod()) {
-                case "POST":
-                    return battle(request);
-            }
-            return status(HttpStatus.BAD_REQUEST);
-        }
-        return status(HttpStatus.BAD_REQUEST);
-    }
+    // Longest a poll may wait for a battle to finish
+    private static final int MAX_WAIT_SECONDS = 30;
 
     private final SessionService sessionService;
     private final BattleService battleService;
@@ -40,6 +39,7 @@ public class BattleController extends Controller {
 
     /**
      * Handles a battle request and returns the battle result.
+     * If the client sends "Prefer: respond-async", the player is queued and 202 is returned with a ticket to poll.
      *
      * @param request The HTTP request containing the battle request information.
      * @return A Response object containing the battle result or an error message.
@@ -48,8 +48,66 @@ public class BattleController extends Controller {
         // Authenticate the user making the request
         User requester = sessionService.authenticateRequest(request);
 
+        // With "Prefer: respond-async" the player is only queued and polls for the result
+        String prefer = request.getHeader("Prefer");
+        if (prefer != null && prefer.toLowerCase().contains("respond-async")) {
+            BattleTicket ticket = battleService.submit(requester);
+            return ticketResponse(ticket);
+        }
+
         // Initiate a battle for the authenticated user and get the result
         BattleResult battleResult = battleService.battle(requester);
+        return battleResultResponse(battleResult);
+    }
+
+    /**
+     * Returns the result of an asynchronous battle, waiting for it up to {@code ?wait=} seconds (long polling).
+     *
+     * @param ticketId The ID of the battle ticket.
+     * @param request  The HTTP request, optionally with the wait time in seconds.
+     * @return The battle result once finished, or 202 with the ticket while the battle is still running.
+     */
+    private Response getBattle(String ticketId, Request request) {
+        // Authenticate the user making the request
+        User requester = sessionService.authenticateRequest(request);
+
+        // Only the player the ticket was issued to can see it
+        Optional<BattleTicket> ticket = battleService.findTicket(ticketId, requester);
+        if (ticket.isEmpty()) {
+            return ResponseHelper.notFoundResponse("No battle ticket " + ticketId);
+        }
+
+        int waitSeconds;
+        try {
+            String wait = request.getQueryParameter("wait");
+            waitSeconds = wait == null ? 0 : Math.min(Integer.parseInt(wait), MAX_WAIT_SECONDS);
+        } catch (NumberFormatException e) {
+            return ResponseHelper.badRequestResponse("wait must be a number of seconds");
+        }
+        if (waitSeconds < 0) {
+            return ResponseHelper.badRequestResponse("wait must not be negative");
+        }
+
+        BattleResult battleResult = battleService.awaitTicket(ticket.get(), waitSeconds * 1000L);
+        if (battleResult == null) {
+            return ticketResponse(ticket.get());
+        }
+        return battleResultResponse(battleResult);
+    }
+
+    private Response ticketResponse(BattleTicket ticket) {
+        Map<String, String> body = new LinkedHashMap<>();
+        body.put("ticket", ticket.getId());
+        body.put("status", "waiting");
+        body.put("poll", "/battles/" + ticket.getId() + "?wait=" + MAX_WAIT_SECONDS);
+        try {
+            return new Response(HttpStatus.ACCEPTED, HttpContentType.APPLICATION_JSON, new ObjectMapper().writeValueAsString(body));
+        } catch (JsonProcessingException e) {
+            return ResponseHelper.badRequestResponse("Error parsing battle data: " + e.getMessage());
+        }
+    }
+
+    private Response battleResultResponse(BattleResult battleResult) {
 
         // Prepare to convert the BattleResult object to a JSON string
         String responseBody;
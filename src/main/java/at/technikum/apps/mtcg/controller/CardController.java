@@ -6,30 +6,18 @@ import at.technikum.apps.mtcg.responses.ResponseHelper;
 import at.technikum.apps.mtcg.service.CardService;
 import at.technikum.apps.mtcg.service.SessionService;
 import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.Router;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class CardController extends Controller {
     @Override
-    public boolean supports(String route) {
-        return route.startsWith("/cards");
-    }
-
-    @Override
-    public Response handle(Request request) {
-        // Extract the base route without query parameters
-        String baseRoute = request.getRoute().split("\\?")[0];
-
-        if (baseRoute.equals("/cards")) {
-            switch (request.getMethod()) {
-                case "GET":
-                    return getUserCards(request);
-            }
-        }
-        return status(HttpStatus.BAD_REQUEST);
+    public void registerRoutes(Router router) {
+        router.add(HttpMethod.GET, "/cards", this::getUserCards);
     }
 
     private final CardService cardService;
@@ -4,15 +4,59 @@ import at.technikum.server.http.HttpContentType;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.RouteMatch;
+import at.technikum.server.routing.Router;
 
 public abstract class Controller {
 
-    public abstract boolean supports(String route);
+    // The routes of this controller only, used when the controller is called directly
+    private volatile Router routes;
 
-    public abstract Response handle(Request request);
+    /**
+     * Registers the endpoints of this controller.
+     * MtcgApp collects the routes of all controllers into one router at startup.
+     *
+     * @param router The router to add the routes to.
+     */
+    public abstract void registerRoutes(Router router);
+
+    /**
+     * Checks whether this controller has an endpoint for the route (for any method).
+     *
+     * @param route The requested route, a query string is ignored.
+     * @return True if the controller handles the path.
+     */
+    public boolean supports(String route) {
+        int queryStart = route.indexOf('?');
+        return routes().match(null, queryStart < 0 ? route : route.substring(0, queryStart)) != null;
+    }
+
+    /**
+     * Dispatches the request to the matching endpoint of this controller.
+     *
+     * @param request The HTTP request.
+     * @return The response of the endpoint, or 400 if the controller has no endpoint for the method and path.
+     */
+    public Response handle(Request request) {
+        RouteMatch match = routes().match(request);
+        if (match == null || !match.isMethodAllowed()) {
+            return status(HttpStatus.BAD_REQUEST);
+        }
+        request.setPathParameters(match.getPathParameters());
+        return match.getHandler().handle(request);
+    }
 
     protected Response status(HttpStatus httpStatus) {
         return new Response(httpStatus, HttpContentType.APPLICATION_JSON, "{ \"error\": \"" + httpStatus.getMessage() + "\"}");
     }
 
+    private Router routes() {
+        // Built on first use; controllers are created before the server starts handling requests
+        if (routes == null) {
+            Router router = new Router();
+            registerRoutes(router);
+            routes = router;
+        }
+        return routes;
+    }
 }
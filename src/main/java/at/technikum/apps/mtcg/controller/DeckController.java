@@ -7,33 +7,19 @@ import at.technikum.apps.mtcg.responses.ResponseHelper;
 import at.technikum.apps.mtcg.service.DeckService;
 import at.technikum.apps.mtcg.service.SessionService;
 import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.Router;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class DeckController extends Controller {
-    public boolean supports(String route) {
-        return route.startsWith("/deck");
-    }
-
     @Override
-    public Response handle(Request request) {
-        // Extract the base route without query parameters
-        String baseRoute = request.getRoute().split("\\?")[0];
-
-        if (baseRoute.equals("/deck")) {
-            switch (request.getMethod()) {
-                case "GET":
-                    // Check for query parameters
-                    String queryParams = request.getRoute().contains("?") ? request.getRoute().split("\\?")[1] : "";
-                    return getUserDeck(request, queryParams);
-                case "PUT":
-                    return createUserDeck(request);
-            }
-        }
-        return status(HttpStatus.BAD_REQUEST);
+    public void registerRoutes(Router router) {
+        router.add(HttpMethod.GET, "/deck", this::getUserDeck);
+        router.add(HttpMethod.PUT, "/deck", this::createUserDeck);
     }
 
     private final SessionService sessionService;
@@ -79,13 +65,12 @@ public class DeckController extends Controller {
     /**
      * Retrieves the user's deck and returns it in either plain text or JSON format.
      *
-     * @param request     The HTTP request containing the user's information.
-     * @param queryParams The query parameters from the HTTP request to determine the response format.
+     * @param request The HTTP request containing the user's information and the optional format query parameter.
      * @return A Response object containing the user's deck in the specified format or an error message.
      */
-    private Response getUserDeck(Request request, String queryParams) {
+    private Response getUserDeck(Request request) {
         // Check if the request specifies plain text format
-        boolean isPlainFormat = queryParams.equals("format=plain");
+        boolean isPlainFormat = "plain".equals(request.getQueryParameter("format"));
 
         // Authenticate the user making the request
         User requester = sessionService.authenticateRequest(request);
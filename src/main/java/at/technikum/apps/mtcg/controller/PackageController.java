@@ -5,27 +5,18 @@ import at.technikum.apps.mtcg.entity.User;
 import at.technikum.apps.mtcg.responses.ResponseHelper;
 import at.technikum.apps.mtcg.service.PackageService;
 import at.technikum.apps.mtcg.service.SessionService;
+import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.Router;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class PackageController extends Controller {
     @Override
-    public boolean supports(String route) {
-        return route.startsWith("/packages") || route.startsWith("/transactions/packages");
-    }
-
-    @Override
-    public Response handle(Request request) {
-        if (request.getRoute().equals("/packages")) {
-            switch (request.getMethod()) {
-                case "POST":
-                    return createPackage(request);
-            }
-        }
-        return status(HttpStatus.BAD_REQUEST);
+    public void registerRoutes(Router router) {
+        router.add(HttpMethod.POST, "/packages", this::createPackage);
     }
 
     private final PackageService packageService;
@@ -6,27 +6,18 @@ import at.technikum.apps.mtcg.responses.ResponseHelper;
 import at.technikum.apps.mtcg.service.ScoreboardService;
 import at.technikum.apps.mtcg.service.SessionService;
 import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.Router;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class ScoreboardController extends Controller {
     @Override
-    public boolean supports(String route) {
-        return route.startsWith("/scoreboard");
-    }
-
-    @Override
-    public Response handle(Request request) {
-        if (request.getRoute().equals("/scoreboard")) {
-            switch (request.getMethod()) {
-                case "GET":
-                    return getScoreboard(request);
-            }
-        }
-        return status(HttpStatus.BAD_REQUEST);
+    public void registerRoutes(Router router) {
+        router.add(HttpMethod.GET, "/scoreboard", this::getScoreboard);
     }
 
     private final SessionService sessionService;
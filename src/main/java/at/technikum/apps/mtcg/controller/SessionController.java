@@ -4,9 +4,11 @@ import at.technikum.apps.mtcg.dto.TokenRequest;
 import at.technikum.apps.mtcg.responses.ResponseHelper;
 import at.technikum.apps.mtcg.service.SessionService;
 import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.Router;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -14,20 +16,8 @@ import java.util.Optional;
 
 public class SessionController extends Controller {
     @Override
-    public boolean supports(String route) {
-        return route.startsWith("/sessions");
-    }
-
-    @Override
-    public Response handle(Request request) {
-        if (request.getRoute().equals("/sessions")) {
-            switch (request.getMethod()) {
-                case "POST":
-                    return loginUser(request);
-            }
-            return status(HttpStatus.BAD_REQUEST);
-        }
-        return status(HttpStatus.BAD_REQUEST);
+    public void registerRoutes(Router router) {
+        router.add(HttpMethod.POST, "/sessions", this::loginUser);
     }
 
     private final SessionService sessionService;
@@ -5,9 +5,11 @@ import at.technikum.apps.mtcg.responses.ResponseHelper;
 import at.technikum.apps.mtcg.service.SessionService;
 import at.technikum.apps.mtcg.service.StatsService;
 import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.Router;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -15,19 +17,8 @@ import java.util.Map;
 
 public class StatsController extends Controller {
     @Override
-    public boolean supports(String route) {
-        return route.startsWith("/stats");
-    }
-
-    @Override
-    public Response handle(Request request) {
-        if (request.getRoute().equals("/stats")) {
-            switch (request.getMethod()) {
-                case "GET":
-                    return getStats(request);
-            }
-        }
-        return status(HttpStatus.BAD_REQUEST);
+    public void registerRoutes(Router router) {
+        router.add(HttpMethod.GET, "/stats", this::getStats);
     }
 
     private final SessionService sessionService;
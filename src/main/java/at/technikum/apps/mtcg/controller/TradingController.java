@@ -6,9 +6,11 @@ import at.technikum.apps.mtcg.responses.ResponseHelper;
 import at.technikum.apps.mtcg.service.SessionService;
 import at.technikum.apps.mtcg.service.TradingService;
 import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.Router;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -16,31 +18,11 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class TradingController extends Controller {
     @Override
-    public boolean supports(String route) {
-        return route.startsWith("/tradings");
-    }
-
-    @Override
-    public Response handle(Request request) {
-        if (request.getRoute().equals("/tradings")) {
-            switch (request.getMethod()) {
-                case "GET":
-                    return getTradings(request);
-                case "POST":
-                    return createTrading(request);
-            }
-            return status(HttpStatus.BAD_REQUEST);
-        }
-        String[] routeParts = request.getRoute().split("/");
-        String tradingDealId = routeParts[2];
-
-        switch (request.getMethod()) {
-            case "POST":
-                return executeTrade(request, tradingDealId);
-            case "DELETE":
-                return deleteTrading(request, tradingDealId);
-        }
-        return status(HttpStatus.BAD_REQUEST);
+    public void registerRoutes(Router router) {
+        router.add(HttpMethod.GET, "/tradings", this::getTradings);
+        router.add(HttpMethod.POST, "/tradings", this::createTrading);
+        router.add(HttpMethod.POST, "/tradings/{id}", request -> executeTrade(request, request.getPathParameter("id")));
+        router.add(HttpMethod.DELETE, "/tradings/{id}", request -> deleteTrading(request, request.getPathParameter("id")));
     }
 
     private final TradingService tradingService;
@@ -4,25 +4,16 @@ import at.technikum.apps.mtcg.entity.User;
 import at.technikum.apps.mtcg.responses.ResponseHelper;
 import at.technikum.apps.mtcg.service.SessionService;
 import at.technikum.apps.mtcg.service.TransactionsService;
+import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.Router;
 
 public class TransactionsController extends Controller {
     @Override
-    public boolean supports(String route) {
-        return route.startsWith("/transactions/packages");
-    }
-
-    @Override
-    public Response handle(Request request) {
-        if (request.getRoute().equals("/transactions/packages")) {
-            switch (request.getMethod()) {
-                case "POST":
-                    return buyPackage(request);
-            }
-        }
-        return status(HttpStatus.BAD_REQUEST);
+    public void registerRoutes(Router router) {
+        router.add(HttpMethod.POST, "/transactions/packages", this::buyPackage);
     }
 
     private final TransactionsService transactionsService;
@@ -6,9 +6,11 @@ import at.technikum.apps.mtcg.responses.ResponseHelper;
 import at.technikum.apps.mtcg.service.SessionService;
 import at.technikum.apps.mtcg.service.UserService;
 import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.Router;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
@@ -16,31 +18,10 @@ import java.util.Optional;
 
 public class UserController extends Controller {
     @Override
-    public boolean supports(String route) {
-        return route.startsWith("/users");
-    }
-
-    @Override
-    public Response handle(Request request) {
-        if (request.getRoute().equals("/users")) {
-            switch (request.getMethod()) {
-                case "POST":
-                    return createUser(request);
-            }
-            return status(HttpStatus.BAD_REQUEST);
-        }
-
-        String[] routeParts = request.getRoute().split("/");
-        String username = routeParts[2];
-
-        switch (request.getMethod()) {
-            case "GET":
-                return getUser(username, request);
-            case "PUT":
-                return updateUser(username, request);
-        }
-
-        return status(HttpStatus.BAD_REQUEST);
+    public void registerRoutes(Router router) {
+        router.add(HttpMethod.POST, "/users", this::createUser);
+        router.add(HttpMethod.GET, "/users/{username}", request -> getUser(request.getPathParameter("username"), request));
+        router.add(HttpMethod.PUT, "/users/{username}", request -> updateUser(request.getPathParameter("username"), request));
     }
 
     private final UserService userService;
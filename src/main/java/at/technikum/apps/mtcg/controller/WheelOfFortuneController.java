@@ -7,33 +7,20 @@ import at.technikum.apps.mtcg.responses.ResponseHelper;
 import at.technikum.apps.mtcg.service.SessionService;
 import at.technikum.apps.mtcg.service.WheelOfFortuneService;
 import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
+import at.technikum.server.routing.Router;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 public class WheelOfFortuneController extends Controller {
     @Override
-    public boolean supports(String route) {
-        return route.startsWith("/wheel");
+    public void registerRoutes(Router router) {
+        router.add(HttpMethod.POST, "/wheel", this::getWheelPrize);
     }
 
-    @Override
-    public Response handle(Request request) {
-        // Extract the base route without query parameters
-        String baseRoute = request.getRoute().split("\\?")[0];
-
-        if (baseRoute.equals("/wheel")) {
-            switch (request.getMethod()) {
-                case "POST":
-                    return getWheelPrize(request);
-            }
-        }
-        return status(HttpStatus.BAD_REQUEST);
-    }
-
-
     private final WheelOfFortuneService wheelOfFortuneService;
     private final SessionService sessionService;
 
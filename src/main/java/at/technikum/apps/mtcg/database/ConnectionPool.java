@@ -0,0 +1,389 @@
+package at.technikum.apps.mtcg.database;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTransientConnectionException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+
+/**
+ * A bounded JDBC connection pool.
+ * Connections are opened on demand up to the maximum size; when all are in use, callers wait up to the acquire
+ * timeout. Once {@link #start() started}, a background task closes connections idle for too long (down to the minimum
+ * size), refills the pool to the minimum size and reports connections that were not given back in time.
+ */
+public class ConnectionPool implements DataSource, AutoCloseable {
+
+    private static final long HOUSEKEEPING_INTERVAL_MILLIS = 5000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    /**
+     * Opens a physical connection; replaced in tests.
+     */
+    interface ConnectionOpener {
+        Connection open() throws SQLException;
+    }
+
+    private final PoolConfig config;
+    private final ConnectionOpener opener;
+
+    // Guards idle, total, waiters and closed
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition connectionReturned = lock.newCondition();
+
+    // Most recently returned first, so surplus connections at the tail age out
+    private final Deque<PooledConnection> idle = new ArrayDeque<>();
+    private final Set<PooledConnection> active = ConcurrentHashMap.newKeySet();
+    private int total;
+    private int waiters;
+    private boolean closed;
+
+    private final LongAdder acquired = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder leaks = new LongAdder();
+    private final LongAdder acquireNanos = new LongAdder();
+    private final AtomicLong maxAcquireNanos = new AtomicLong();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+
+    private final ScheduledExecutorService housekeeper;
+    private boolean started;
+
+    public ConnectionPool(PoolConfig config) {
+        this(config, () -> DriverManager.getConnection(config.getUrl(), config.getUsername(), config.getPassword()));
+    }
+
+    ConnectionPool(PoolConfig config, ConnectionOpener opener) {
+        this.config = config;
+        this.opener = opener;
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mtcg-db-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts the background task that closes idle connections, refills the pool and reports leaks,
+     * and the periodic metrics output if configured.
+     *
+     * @return This pool, for chaining.
+     */
+    public synchronized ConnectionPool start() {
+        if (!started) {
+            started = true;
+            housekeeper.scheduleWithFixedDelay(this::houseKeep, 0, HOUSEKEEPING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+            if (config.getMetricsIntervalSeconds() > 0) {
+                housekeeper.scheduleAtFixedRate(() -> System.out.println("Connection pool: " + getMetrics()),
+                        config.getMetricsIntervalSeconds(), config.getMetricsIntervalSeconds(), TimeUnit.SECONDS);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Takes a connection from the pool, opening a new one if none is idle and the pool is not full.
+     * Closing the returned connection gives it back to the pool.
+     *
+     * @return A connection with auto-commit enabled.
+     * @throws SQLTransientConnectionException If no connection became free within the acquire timeout.
+     * @throws SQLException                    If a new connection cannot be opened.
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeoutMillis());
+
+        while (true) {
+            PooledConnection connection = takeIdleOrReserve(deadline);
+            if (connection == null) {
+                // A slot was reserved, open a new physical connection outside the lock
+                try {
+                    connection = open();
+                } catch (SQLException e) {
+                    discarded(null);
+                    throw e;
+                }
+            } else if (System.currentTimeMillis() - connection.getLastUsedMillis() > config.getValidationIntervalMillis()
+                    && !connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                // Dropped by the server or the network while idle
+                discarded(connection);
+                continue;
+            }
+
+            active.add(connection);
+            Throwable trace = config.getLeakThresholdMillis() > 0 ? new Throwable("Connection acquired here") : null;
+            Connection proxy = connection.checkout(trace);
+            recordAcquire(System.nanoTime() - start);
+            return proxy;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("The pool only hands out connections of the configured user");
+    }
+
+    /**
+     * Called by the connection proxy on close().
+     */
+    void release(PooledConnection connection) {
+        active.remove(connection);
+        if (!connection.reset()) {
+            discarded(connection);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (!closed) {
+                idle.addFirst(connection);
+                connectionReturned.signal();
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        discarded(connection);
+    }
+
+    /**
+     * @return The current state of the pool.
+     */
+    public PoolMetrics getMetrics() {
+        int idleCount;
+        int waiting;
+        lock.lock();
+        try {
+            idleCount = idle.size();
+            waiting = waiters;
+        } finally {
+            lock.unlock();
+        }
+        long count = acquired.sum();
+        return new PoolMetrics(active.size(), idleCount, waiting, config.getMaxSize(), count, timeouts.sum(), leaks.sum(),
+                count == 0 ? 0 : acquireNanos.sum() / 1_000_000.0 / count, maxAcquireNanos.get() / 1_000_000.0,
+                statementCacheHits.sum(), statementCacheMisses.sum());
+    }
+
+    /**
+     * Closes all idle connections and stops the housekeeping. Connections in use are closed when they are returned.
+     */
+    @Override
+    public void close() {
+        List<PooledConnection> toClose;
+        lock.lock();
+        try {
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            connectionReturned.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        housekeeper.shutdownNow();
+        toClose.forEach(this::discarded);
+    }
+
+    private PooledConnection takeIdleOrReserve(long deadline) throws SQLException {
+        lock.lock();
+        try {
+            while (true) {
+                if (closed) {
+                    throw new SQLException("Connection pool is closed");
+                }
+                PooledConnection connection = idle.pollFirst();
+                if (connection != null) {
+                    return connection;
+                }
+                if (total < config.getMaxSize()) {
+                    total++;
+                    return null;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    timeouts.increment();
+                    throw new SQLTransientConnectionException("No database connection available after "
+                            + config.getAcquireTimeoutMillis() + " ms (" + getMetrics() + ")");
+                }
+                waiters++;
+                try {
+                    connectionReturned.awaitNanos(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLException("Interrupted while waiting for a database connection", e);
+                } finally {
+                    waiters--;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private PooledConnection open() throws SQLException {
+        Connection physical = opener.open();
+        StatementCache statements = config.getStatementCacheSize() > 0
+                ? new StatementCache(config.getStatementCacheSize(), statementCacheHits, statementCacheMisses)
+                : null;
+        return new PooledConnection(this, physical, statements);
+    }
+
+    /**
+     * Closes a connection (if any) and frees its slot, so a waiting caller can open a new one.
+     */
+    private void discarded(PooledConnection connection) {
+        if (connection != null) {
+            connection.closePhysical();
+        }
+        lock.lock();
+        try {
+            total--;
+            connectionReturned.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordAcquire(long nanos) {
+        acquired.increment();
+        acquireNanos.add(nanos);
+        maxAcquireNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    private void houseKeep() {
+        try {
+            evictIdle();
+            fillToMinimum();
+            reportLeaks();
+        } catch (RuntimeException e) {
+            System.out.println("Connection pool housekeeping failed: " + e.getMessage());
+        }
+    }
+
+    private void evictIdle() {
+        long now = System.currentTimeMillis();
+        List<PooledConnection> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            Iterator<PooledConnection> oldestFirst = idle.descendingIterator();
+            while (oldestFirst.hasNext() && total - evicted.size() > config.getMinSize()) {
+                PooledConnection connection = oldestFirst.next();
+                if (now - connection.getLastUsedMillis() <= config.getIdleTimeoutMillis()) {
+                    break;
+                }
+                oldestFirst.remove();
+                evicted.add(connection);
+            }
+        } finally {
+            lock.unlock();
+        }
+        evicted.forEach(this::discarded);
+    }
+
+    private void fillToMinimum() {
+        while (true) {
+            lock.lock();
+            try {
+                if (closed || total >= config.getMinSize()) {
+                    return;
+                }
+                total++;
+            } finally {
+                lock.unlock();
+            }
+
+            PooledConnection connection;
+            try {
+                connection = open();
+            } catch (SQLException e) {
+                discarded(null);
+                System.out.println("Connection pool cannot open a connection: " + e.getMessage());
+                return;
+            }
+
+            lock.lock();
+            try {
+                idle.addLast(connection);
+                connectionReturned.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void reportLeaks() {
+        if (config.getLeakThresholdMillis() <= 0) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (PooledConnection connection : active) {
+            long heldMillis = now - connection.getCheckoutMillis();
+            if (!connection.isLeakReported() && heldMillis > config.getLeakThresholdMillis()) {
+                connection.setLeakReported();
+                leaks.increment();
+                System.out.println("Possible connection leak: connection held for " + heldMillis + " ms");
+                if (connection.getCheckoutTrace() != null) {
+                    connection.getCheckoutTrace().printStackTrace(System.out);
+                }
+            }
+        }
+    }
+
+    // Remaining DataSource methods, not used by the pool
+
+    @Override
+    public PrintWriter getLogWriter() {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) {
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> type) throws SQLException {
+        if (type.isInstance(this)) {
+            return type.cast(this);
+        }
+        throw new SQLException("Not a wrapper for " + type.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> type) {
+        return type.isInstance(this);
+    }
+}
@@ -1,7 +1,6 @@
 package at.technikum.apps.mtcg.database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
 
 
@@ -11,8 +10,77 @@ public class Database {
     private static final String USERNAME = "postgres";
     private static final String PASSWORD = "postgres";
 
+    // Connections are reused instead of opening a new one (TCP connect and login) per query
+    private final ConnectionPool pool;
 
+    // Transaction of the unit of work running on this thread, if any
+    private final ThreadLocal<Transaction> transaction = new ThreadLocal<>();
+
+    public Database() {
+        this(PoolConfig.fromSystemProperties(URL, USERNAME, PASSWORD));
+    }
+
+    public Database(PoolConfig config) {
+        this.pool = new ConnectionPool(config).start();
+    }
+
+    /**
+     * Takes a connection from the pool. Closing it gives it back.
+     * Inside a transaction started with {@link #beginTransaction()}, the connection of that transaction is returned.
+     *
+     * @return A connection with auto-commit enabled, or the connection of the current transaction.
+     * @throws SQLException If no connection is available within the acquire timeout or the database is unreachable.
+     */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+        Transaction current = transaction.get();
+        if (current != null) {
+            return current.getView();
+        }
+        return pool.getConnection();
+    }
+
+    /**
+     * Starts a transaction on the current thread: until {@link #endTransaction(boolean)}, every
+     * {@link #getConnection()} on this thread returns the same connection and nothing is committed in between.
+     *
+     * @return False if a transaction is already running on this thread; the caller joins it and must not end it.
+     * @throws SQLException If no connection is available.
+     */
+    public boolean beginTransaction() throws SQLException {
+        if (transaction.get() != null) {
+            return false;
+        }
+        Connection connection = pool.getConnection();
+        try {
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            connection.close();
+            throw e;
+        }
+        transaction.set(new Transaction(connection));
+        return true;
+    }
+
+    /**
+     * Ends the transaction of the current thread and gives its connection back to the pool.
+     *
+     * @param commit False to roll back.
+     * @return True if committed; false if rolled back, also when a repository rolled back during the transaction.
+     * @throws SQLException If the commit failed.
+     */
+    public boolean endTransaction(boolean commit) throws SQLException {
+        Transaction current = transaction.get();
+        if (current == null) {
+            throw new IllegalStateException("No transaction running on this thread");
+        }
+        transaction.remove();
+        return current.end(commit);
+    }
+
+    /**
+     * @return Active, idle and waiting counts and acquire latency of the connection pool.
+     */
+    public PoolMetrics getPoolMetrics() {
+        return pool.getMetrics();
     }
-}
\ No newline at end of file
+}
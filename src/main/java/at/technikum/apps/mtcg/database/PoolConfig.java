@@ -0,0 +1,124 @@
+package at.technikum.apps.mtcg.database;
+
+/**
+ * Settings of the {@link ConnectionPool}.
+ * Every value can be overridden with a system property (e.g. -Dmtcg.db.pool.maxSize=20).
+ */
+public class PoolConfig {
+
+    private final String url;
+    private final String username;
+    private final String password;
+
+    // Connections kept open even when idle, and the upper bound (keep below Postgres max_connections)
+    private final int minSize;
+    private final int maxSize;
+
+    // How long getConnection waits for a free connection before failing
+    private final long acquireTimeoutMillis;
+
+    // Idle connections above minSize are closed after this long
+    private final long idleTimeoutMillis;
+
+    // Connections idle longer than this are checked with isValid before they are handed out
+    private final long validationIntervalMillis;
+
+    // Report connections held longer than this, with the stack trace of the caller (0 = off)
+    private final long leakThresholdMillis;
+
+    // Print the pool metrics in this interval (0 = off)
+    private final int metricsIntervalSeconds;
+
+    // Prepared statements kept open per connection (0 = off)
+    private final int statementCacheSize;
+
+    public PoolConfig(String url, String username, String password, int minSize, int maxSize,
+                      long acquireTimeoutMillis, long idleTimeoutMillis, long validationIntervalMillis,
+                      long leakThresholdMillis, int metricsIntervalSeconds, int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min " + minSize + ", max " + maxSize);
+        }
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("Invalid statement cache size: " + statementCacheSize);
+        }
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.metricsIntervalSeconds = metricsIntervalSeconds;
+        this.statementCacheSize = statementCacheSize;
+    }
+
+    /**
+     * Creates the configuration from system properties, falling back to defaults for missing values.
+     *
+     * @param url      Default JDBC URL.
+     * @param username Default database user.
+     * @param password Default database password.
+     * @return The pool configuration.
+     */
+    public static PoolConfig fromSystemProperties(String url, String username, String password) {
+        return new PoolConfig(
+                System.getProperty("mtcg.db.url", url),
+                System.getProperty("mtcg.db.username", username),
+                System.getProperty("mtcg.db.password", password),
+                Integer.getInteger("mtcg.db.pool.minSize", 2),
+                Integer.getInteger("mtcg.db.pool.maxSize", 20),
+                Long.getLong("mtcg.db.pool.acquireTimeoutMillis", 5000),
+                Long.getLong("mtcg.db.pool.idleTimeoutMillis", 60000),
+                Long.getLong("mtcg.db.pool.validationIntervalMillis", 1000),
+                Long.getLong("mtcg.db.pool.leakThresholdMillis", 0),
+                Integer.getInteger("mtcg.db.pool.metricsIntervalSeconds", 0),
+                Integer.getInteger("mtcg.db.pool.statementCacheSize", 64)
+        );
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public int getMinSize() {
+        return minSize;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public long getAcquireTimeoutMillis() {
+        return acquireTimeoutMillis;
+    }
+
+    public long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    public long getValidationIntervalMillis() {
+        return validationIntervalMillis;
+    }
+
+    public long getLeakThresholdMillis() {
+        return leakThresholdMillis;
+    }
+
+    public int getMetricsIntervalSeconds() {
+        return metricsIntervalSeconds;
+    }
+
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+}
@@ -0,0 +1,94 @@
+package at.technikum.apps.mtcg.database;
+
+/**
+ * Snapshot of the {@link ConnectionPool} state, used to size the pool against Postgres max_connections.
+ */
+public class PoolMetrics {
+
+    private final int active;
+    private final int idle;
+    private final int waiters;
+    private final int maxSize;
+    private final long acquired;
+    private final long timeouts;
+    private final long leaks;
+    private final double averageAcquireMillis;
+    private final double maxAcquireMillis;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    public PoolMetrics(int active, int idle, int waiters, int maxSize, long acquired, long timeouts, long leaks,
+                       double averageAcquireMillis, double maxAcquireMillis,
+                       long statementCacheHits, long statementCacheMisses) {
+        this.active = active;
+        this.idle = idle;
+        this.waiters = waiters;
+        this.maxSize = maxSize;
+        this.acquired = acquired;
+        this.timeouts = timeouts;
+        this.leaks = leaks;
+        this.averageAcquireMillis = averageAcquireMillis;
+        this.maxAcquireMillis = maxAcquireMillis;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    // Connections currently handed out
+    public int getActive() {
+        return active;
+    }
+
+    // Open connections waiting in the pool
+    public int getIdle() {
+        return idle;
+    }
+
+    // Threads currently waiting for a connection
+    public int getWaiters() {
+        return waiters;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    // Total number of successful getConnection calls
+    public long getAcquired() {
+        return acquired;
+    }
+
+    // getConnection calls that gave up after the acquire timeout
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    // Connections reported as held longer than the leak threshold
+    public long getLeaks() {
+        return leaks;
+    }
+
+    public double getAverageAcquireMillis() {
+        return averageAcquireMillis;
+    }
+
+    public double getMaxAcquireMillis() {
+        return maxAcquireMillis;
+    }
+
+    // prepareStatement calls served from the per-connection statement cache
+    public long getStatementCacheHits() {
+        return statementCacheHits;
+    }
+
+    // prepareStatement calls that had to prepare a new statement
+    public long getStatementCacheMisses() {
+        return statementCacheMisses;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("active=%d, idle=%d, waiters=%d, max=%d, acquired=%d, timeouts=%d, leaks=%d, acquire avg=%.2fms max=%.2fms, statements hit=%d miss=%d",
+                active, idle, waiters, maxSize, acquired, timeouts, leaks, averageAcquireMillis, maxAcquireMillis,
+                statementCacheHits, statementCacheMisses);
+    }
+}
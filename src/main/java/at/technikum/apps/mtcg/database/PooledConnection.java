@@ -0,0 +1,195 @@
+package at.technikum.apps.mtcg.database;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * A physical database connection owned by the {@link ConnectionPool}.
+ * Borrowers get a proxy whose close() gives the connection back instead of closing it.
+ * Every checkout gets its own proxy, so a reference kept after close() cannot touch the next borrower's work.
+ * prepareStatement goes through the connection's {@link StatementCache}, if enabled.
+ */
+class PooledConnection {
+
+    // Proxy class for java.sql.Connection, looked up once
+    private static final Constructor<?> PROXY_CONSTRUCTOR;
+
+    static {
+        try {
+            Class<?> proxyClass = Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                    (proxy, method, args) -> null).getClass();
+            PROXY_CONSTRUCTOR = proxyClass.getConstructor(InvocationHandler.class);
+        } catch (NoSuchMethodException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final ConnectionPool pool;
+    private final Connection physical;
+    private final StatementCache statements;
+
+    // Set when the driver reported a connection error; the connection is closed instead of reused
+    private volatile boolean broken;
+
+    // Bookkeeping for idle eviction, validation and leak detection
+    private long lastUsedMillis = System.currentTimeMillis();
+    private volatile long checkoutMillis;
+    private volatile Throwable checkoutTrace;
+    private volatile boolean leakReported;
+
+    PooledConnection(ConnectionPool pool, Connection physical, StatementCache statements) {
+        this.pool = pool;
+        this.physical = physical;
+        this.statements = statements;
+    }
+
+    /**
+     * Hands the connection to a borrower.
+     *
+     * @param trace Where the connection was taken, reported if it leaks; null if leak detection is off.
+     * @return The proxy for the borrower.
+     */
+    Connection checkout(Throwable trace) {
+        checkoutMillis = System.currentTimeMillis();
+        checkoutTrace = trace;
+        leakReported = false;
+        try {
+            return (Connection) PROXY_CONSTRUCTOR.newInstance(new Lease());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create connection proxy", e);
+        }
+    }
+
+    /**
+     * Undoes what the borrower left behind: an open transaction, disabled auto-commit and warnings.
+     *
+     * @return False if the connection is broken and must be closed.
+     */
+    boolean reset() {
+        if (broken) {
+            return false;
+        }
+        try {
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            physical.clearWarnings();
+            lastUsedMillis = System.currentTimeMillis();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    boolean isValid(int timeoutSeconds) {
+        try {
+            return physical.isValid(timeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    void closePhysical() {
+        if (statements != null) {
+            statements.closeAll();
+        }
+        try {
+            physical.close();
+        } catch (SQLException e) {
+            System.out.println("Error closing database connection: " + e.getMessage());
+        }
+    }
+
+    long getLastUsedMillis() {
+        return lastUsedMillis;
+    }
+
+    long getCheckoutMillis() {
+        return checkoutMillis;
+    }
+
+    Throwable getCheckoutTrace() {
+        return checkoutTrace;
+    }
+
+    boolean isLeakReported() {
+        return leakReported;
+    }
+
+    void setLeakReported() {
+        this.leakReported = true;
+    }
+
+    /**
+     * The invocation handler behind one borrower's proxy.
+     */
+    private class Lease implements InvocationHandler {
+
+        private boolean closed;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        pool.release(PooledConnection.this);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + physical;
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Connection is closed");
+            }
+            try {
+                if (statements != null && isCacheablePrepare(method, args)) {
+                    int autoGeneratedKeys = args.length == 2 ? (int) args[1] : Statement.NO_GENERATED_KEYS;
+                    return statements.prepare(physical, (String) args[0], autoGeneratedKeys);
+                }
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                // SQL state class 08: the connection itself failed
+                if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null
+                        && sqlException.getSQLState().startsWith("08")) {
+                    broken = true;
+                }
+                throw cause;
+            } catch (SQLException e) {
+                if (e.getSQLState() != null && e.getSQLState().startsWith("08")) {
+                    broken = true;
+                }
+                throw e;
+            }
+        }
+
+        /**
+         * prepareStatement(sql) and prepareStatement(sql, autoGeneratedKeys); the variants with result set options
+         * or key columns are rare and passed through.
+         */
+        private boolean isCacheablePrepare(Method method, Object[] args) {
+            if (!method.getName().equals("prepareStatement")) {
+                return false;
+            }
+            Class<?>[] types = method.getParameterTypes();
+            return types.length == 1 || (types.length == 2 && types[1] == int.class);
+        }
+    }
+}
@@ -0,0 +1,163 @@
+package at.technikum.apps.mtcg.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of the prepared statements of one pooled connection, keyed by their SQL.
+ * Repositories keep calling prepareStatement and close; close only clears the parameters and marks the statement
+ * free, so the next call with the same SQL skips parsing (and the driver can use its server-side prepared statement).
+ * <p>
+ * Only used by the thread currently holding the connection, so it needs no locking.
+ */
+class StatementCache {
+
+    private final int maxSize;
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    // Least recently used first
+    private final LinkedHashMap<String, CachedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(int maxSize, LongAdder hits, LongAdder misses) {
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Returns the cached statement for the SQL, or prepares and caches a new one.
+     * If the cached statement is still open (same SQL used twice at the same time), an uncached statement is returned.
+     *
+     * @param physical          The connection to prepare new statements on.
+     * @param sql               The SQL text.
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} or {@link Statement#NO_GENERATED_KEYS}.
+     * @return A statement whose close() gives it back to the cache.
+     * @throws SQLException If preparing fails.
+     */
+    PreparedStatement prepare(Connection physical, String sql, int autoGeneratedKeys) throws SQLException {
+        CachedStatement cached = statements.get(sql);
+        if (cached != null && !cached.inUse && cached.autoGeneratedKeys == autoGeneratedKeys) {
+            hits.increment();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+
+        misses.increment();
+        PreparedStatement statement = autoGeneratedKeys == Statement.NO_GENERATED_KEYS
+                ? physical.prepareStatement(sql)
+                : physical.prepareStatement(sql, autoGeneratedKeys);
+        if (cached != null) {
+            // Same SQL already handed out (or prepared differently), don't replace it
+            return statement;
+        }
+
+        cached = new CachedStatement(statement, autoGeneratedKeys);
+        cached.inUse = true;
+        statements.put(sql, cached);
+        evictOverflow();
+        return cached.proxy;
+    }
+
+    /**
+     * Closes all cached statements, used before the physical connection is closed.
+     */
+    void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.evict();
+        }
+        statements.clear();
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<String, CachedStatement>> leastRecentlyUsed = statements.entrySet().iterator();
+        while (statements.size() > maxSize && leastRecentlyUsed.hasNext()) {
+            CachedStatement cached = leastRecentlyUsed.next().getValue();
+            leastRecentlyUsed.remove();
+            cached.evict();
+        }
+    }
+
+    /**
+     * A cached statement and the proxy handed to repositories.
+     */
+    private static class CachedStatement implements InvocationHandler {
+
+        private final PreparedStatement statement;
+        private final int autoGeneratedKeys;
+        private final PreparedStatement proxy;
+        private boolean inUse;
+        private boolean evicted;
+
+        CachedStatement(PreparedStatement statement, int autoGeneratedKeys) {
+            this.statement = statement;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        /**
+         * Removes the statement from use: closed now if free, otherwise when its user closes it.
+         */
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (inUse) {
+                        inUse = false;
+                        if (evicted) {
+                            closeQuietly();
+                        } else {
+                            statement.clearParameters();
+                            statement.clearWarnings();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return !inUse || statement.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return statement.toString();
+                default:
+                    break;
+            }
+
+            if (!inUse) {
+                throw new SQLException("Statement is closed");
+            }
+            try {
+                return method.invoke(statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.out.println("Error closing statement: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package at.technikum.apps.mtcg.database;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A pooled connection with an open transaction, bound to one thread by {@link Database#beginTransaction()}.
+ * Repositories get a view of it whose close, commit and auto-commit calls do nothing, so their own
+ * try-with-resources and commit code keeps working; the owner of the transaction decides at the end.
+ * A rollback by any repository marks the whole transaction for rollback.
+ */
+class Transaction {
+
+    private final Connection connection;
+    private final Connection view;
+    private boolean rollbackOnly;
+
+    Transaction(Connection connection) {
+        this.connection = connection;
+        this.view = (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                        case "commit":
+                        case "setAutoCommit":
+                            return null;
+                        case "rollback":
+                            // rollback(Savepoint) only undoes part of the work and is passed through
+                            if (args == null) {
+                                rollbackOnly = true;
+                                return null;
+                            }
+                            break;
+                        case "getAutoCommit":
+                            return false;
+                        case "isClosed":
+                            return connection.isClosed();
+                        case "equals":
+                            return proxy == args[0];
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * @return The connection handed to repositories while the transaction is bound.
+     */
+    Connection getView() {
+        return view;
+    }
+
+    /**
+     * Commits unless a repository rolled back, then gives the connection back to the pool.
+     *
+     * @param commit False to roll back, e.g. because the work failed.
+     * @return True if the transaction was committed.
+     * @throws SQLException If commit fails; the transaction is rolled back in that case.
+     */
+    boolean end(boolean commit) throws SQLException {
+        try (connection) {
+            if (commit && !rollbackOnly) {
+                connection.commit();
+                return true;
+            }
+            connection.rollback();
+            return false;
+        }
+    }
+}
@@ -10,6 +10,8 @@ public interface BattleRepository {
 
     boolean startBattle(String battleId, String hostId, String opponentId);
 
+    boolean startPracticeBattle(String battleId, String playerId);
+
     boolean startLog(String battleId, String text);
 
     boolean addToLog(String battleId, String text);
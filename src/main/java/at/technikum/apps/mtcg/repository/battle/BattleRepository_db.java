@@ -19,6 +19,7 @@ public class BattleRepository_db implements BattleRepository {
 
     // SQL STATEMENTS
     private final String START_BATTLE_SQL = "INSERT INTO battles (battle_id, player_a_fk, player_b_fk, start_time, status) VALUES (?,?,?,CURRENT_TIMESTAMP,'active')";
+    private final String START_PRACTICE_BATTLE_SQL = "INSERT INTO battles (battle_id, player_a_fk, start_time, status, practice) VALUES (?,?,CURRENT_TIMESTAMP,'active',TRUE)";
     private final String FIND_BATTLE_BY_ID_SQL = "SELECT battles.*, userA.user_id AS userA_id, userA.username AS userA_username, userA.password AS userA_password, userA.coins AS userA_coins, userA.eloRating AS userA_eloRating, userA.isAdmin AS userA_isAdmin, userB.user_id AS userB_id, userB.username AS userB_username, userB.password AS userB_password, userB.coins AS userB_coins, userB.eloRating AS userB_eloRating, userB.isAdmin AS userB_isAdmin, log_entry FROM battles LEFT JOIN users AS userA ON battles.player_a_fk = userA.user_id LEFT JOIN users AS userB ON battles.player_b_fk = userB.user_id LEFT JOIN battle_logs ON battles.battle_id = battle_logs.battle_fk WHERE battles.battle_id = ?";
     private final String START_LOG_SQL = "INSERT INTO battle_logs (battle_fk, log_entry) VALUES (?,?)";
     private final String ADD_TO_LOG_SQL = "UPDATE battle_logs SET log_entry = CONCAT(log_entry, ?) WHERE battle_fk = ?";
@@ -141,6 +142,29 @@ public class BattleRepository_db implements BattleRepository {
     }
 
 
+    /**
+     * Starts a practice battle of a player against a bot. The bot is not stored, and practice battles
+     * are left out of the stats.
+     *
+     * @param battleId The unique identifier of the battle to be started.
+     * @param playerId The ID of the player.
+     * @return True if the battle is successfully started, false otherwise.
+     * @throws HttpStatusException If there is an error during the battle creation or a database connection issue.
+     */
+    @Override
+    public boolean startPracticeBattle(String battleId, String playerId) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement statement = connection.prepareStatement(START_PRACTICE_BATTLE_SQL)) {
+            statement.setString(1, battleId);
+            statement.setString(2, playerId);
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            System.out.println("Error during practice battle creation: " + e.getMessage());
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error during practice battle creation: " + e);
+        }
+    }
+
+
     /**
      * Starts a log for a specific battle with initial text.
      *
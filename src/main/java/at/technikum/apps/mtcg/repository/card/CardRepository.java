@@ -3,6 +3,9 @@ package at.technikum.apps.mtcg.repository.card;
 import at.technikum.apps.mtcg.dto.PackageCard;
 import at.technikum.apps.mtcg.entity.Card;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 // TODO: ADD COMMENTS & MAKE MORE ÜBERSICHTLICH
@@ -17,6 +20,8 @@ public interface CardRepository {
 
     Card[] getUserDeckCards(String userId);
 
+    Map<String, Card[]> getAllDeckCards();
+
     boolean isCardInStack(String userId, String cardId);
 
     boolean addCardToDeck(String userId, String cardId);
@@ -29,5 +34,9 @@ public interface CardRepository {
 
     boolean addCardToStack(String userId, String cardId);
 
+    List<String> addCardsToStack(String userId, Collection<String> cardIds);
+
     Optional<Card> getCardNotPossesed();
+
+    Card[] getAllCards();
 }
@@ -6,12 +6,17 @@ import at.technikum.apps.mtcg.dto.PackageCard;
 import at.technikum.apps.mtcg.entity.Card;
 import at.technikum.server.http.HttpStatus;
 
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class CardRepository_db implements CardRepository {
@@ -27,12 +32,15 @@ public class CardRepository_db implements CardRepository {
     private final String FIND_CARD_BY_ID_SQL = "SELECT * FROM cards WHERE card_id = ?";
     private final String FIND_CARDS_OF_USER_SQL = "SELECT c.* FROM cards c JOIN user_cards uc ON c.card_id = uc.card_fk WHERE user_fk = ?";
     private final String FIND_CARDS_OF_USER_DECK_SQL = "SELECT c.* FROM cards c JOIN user_cards uc ON c.card_id = uc.card_fk WHERE user_fk = ? AND uc.indeck is true";
+    private final String FIND_ALL_DECK_CARDS_SQL = "SELECT uc.user_fk, c.* FROM cards c JOIN user_cards uc ON c.card_id = uc.card_fk WHERE uc.indeck is true ORDER BY uc.user_fk";
     private final String CHECK_CARD_IN_STACK_SQL = "SELECT COUNT(*) FROM user_cards WHERE user_fk = ? AND card_fk = ?";
     private final String CHECK_CARD_IN_DECK_SQL = "SELECT COUNT(*) FROM user_cards WHERE user_fk = ? AND card_fk = ? AND indeck is true";
     private final String ADD_CARDS_TO_DECK_SQL = "UPDATE user_cards SET indeck = ? WHERE card_fk = ? AND user_fk = ?";
     private final String RESET_USER_DECK_SQL = "UPDATE user_cards SET indeck = ? WHERE user_fk = ?";
     private final String DELETE_CARD_FROM_STACK_SQL = "DELETE FROM user_cards WHERE user_fk = ? AND card_fk = ?";
     private final String ADD_CARD_TO_STACK_SQL = "INSERT INTO user_cards (user_fk, card_fk) VALUES (?, ?)";
+    private final String ADD_CARDS_TO_STACK_SQL = "INSERT INTO user_cards (user_fk, card_fk) SELECT ?, unnest(?) ON CONFLICT DO NOTHING RETURNING card_fk";
+    private final String FIND_ALL_CARDS_SQL = "SELECT * FROM cards";
     private final String GET_CARD_NON_POSSESSED_SQL = "SELECT * FROM cards WHERE card_id NOT IN (SELECT card_fk FROM user_cards)";
 
     // IMPLEMENTATIONS
@@ -195,6 +203,35 @@ public class CardRepository_db implements CardRepository {
         return cards.toArray(new Card[0]);
     }
 
+    /**
+     * Retrieves the deck cards of all users that have a deck set, with one query.
+     *
+     * @return The deck cards by user ID, ordered by user ID.
+     * @throws HttpStatusException If there is an error during the retrieval process or a database connection issue.
+     */
+    @Override
+    public Map<String, Card[]> getAllDeckCards() {
+        Map<String, List<Card>> decks = new LinkedHashMap<>();
+
+        try (Connection connection = database.getConnection();
+             PreparedStatement findDeckCardsStmt = connection.prepareStatement(FIND_ALL_DECK_CARDS_SQL);
+             ResultSet resultSet = findDeckCardsStmt.executeQuery()) {
+
+            while (resultSet.next()) {
+                // Rows are ordered by user, so each user's cards are collected in one go
+                decks.computeIfAbsent(resultSet.getString("user_fk"), userId -> new ArrayList<>())
+                        .add(convertResultSetToCard(resultSet));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error finding deck cards of users: " + e.getMessage());
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error finding deck cards of users: " + e);
+        }
+
+        Map<String, Card[]> result = new LinkedHashMap<>();
+        decks.forEach((userId, cards) -> result.put(userId, cards.toArray(new Card[0])));
+        return result;
+    }
+
     /**
      * Checks whether a specific card is in a user's stack.
      *
@@ -411,6 +448,44 @@ public class CardRepository_db implements CardRepository {
     }
 
 
+    /**
+     * Adds the cards a user does not own yet to the user's stack, with a single statement.
+     * Cards already in the stack are left as they are.
+     *
+     * @param userId  The unique identifier of the user.
+     * @param cardIds The unique identifiers of the cards; duplicates are ignored.
+     * @return The IDs of the cards that were newly added.
+     * @throws HttpStatusException If there is a database connection error.
+     */
+    @Override
+    public List<String> addCardsToStack(String userId, Collection<String> cardIds) {
+        List<String> added = new ArrayList<>();
+        if (cardIds.isEmpty()) {
+            return added;
+        }
+
+        try (Connection connection = database.getConnection();
+             PreparedStatement addStmt = connection.prepareStatement(ADD_CARDS_TO_STACK_SQL)) {
+
+            // All card IDs go in as one array parameter; the insert skips those already in the stack
+            Array cardIdArray = connection.createArrayOf("varchar", new LinkedHashSet<>(cardIds).toArray());
+            addStmt.setString(1, userId);
+            addStmt.setArray(2, cardIdArray);
+
+            try (ResultSet resultSet = addStmt.executeQuery()) {
+                while (resultSet.next()) {
+                    added.add(resultSet.getString("card_fk"));
+                }
+            }
+            cardIdArray.free();
+            return added;
+        } catch (SQLException e) {
+            System.out.println("Error saving cards to user stack: " + e.getMessage());
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Database connection error: " + e);
+        }
+    }
+
+
     /**
      * Finds a card that is not possessed by any user.
      *
@@ -440,6 +515,32 @@ public class CardRepository_db implements CardRepository {
     }
 
 
+    /**
+     * Retrieves the whole card catalog, including cards nobody owns.
+     *
+     * @return An array of all cards.
+     * @throws HttpStatusException If there is an error during the retrieval process or a database connection issue.
+     */
+    @Override
+    public Card[] getAllCards() {
+        List<Card> cards = new ArrayList<>();
+
+        try (Connection connection = database.getConnection();
+             PreparedStatement findCardsStmt = connection.prepareStatement(FIND_ALL_CARDS_SQL);
+             ResultSet resultSet = findCardsStmt.executeQuery()) {
+
+            while (resultSet.next()) {
+                cards.add(convertResultSetToCard(resultSet));
+            }
+        } catch (SQLException e) {
+            System.out.println("Error finding cards: " + e.getMessage());
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error finding cards: " + e);
+        }
+
+        return cards.toArray(new Card[0]);
+    }
+
+
     private Card convertResultSetToCard(ResultSet resultSet) throws SQLException {
         Card card = new Card();
         card.setId(resultSet.getString("card_id"));
@@ -1,5 +1,7 @@
 package at.technikum.apps.mtcg.repository.elo;
 
+import java.util.Optional;
+
 public interface ELORepository {
-    boolean updateELO(String userId, int eloToAdd);
+    Optional<Integer> updateELO(String userId, int eloToAdd);
 }
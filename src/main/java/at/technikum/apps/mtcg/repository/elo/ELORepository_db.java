@@ -6,7 +6,9 @@ import at.technikum.server.http.HttpStatus;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Optional;
 
 public class ELORepository_db implements ELORepository {
     // DB CONNECTION
@@ -17,47 +19,36 @@ public class ELORepository_db implements ELORepository {
     }
 
     // SQL STATEMENTS
-    private final String UPDATE_ELO_SQL = "UPDATE users SET elorating = GREATEST(0, elorating + ?) WHERE user_id = ?";
+    private final String UPDATE_ELO_SQL = "UPDATE users SET elorating = GREATEST(0, elorating + ?) WHERE user_id = ? RETURNING elorating";
 
     // IMPLEMENTATIONS
 
     /**
-     * Updates the ELO rating of a user in the database.
+     * Adds to the ELO rating of a user relative to its current value in the database and reads the result back
+     * with the same statement, so concurrent changes are not overwritten.
      *
      * @param userId   The unique identifier of the user.
      * @param eloToAdd The amount to be added to (or subtracted from) the user's ELO rating.
-     * @return True if the ELO rating is successfully updated, false otherwise.
+     * @return An Optional containing the new ELO rating, or an empty Optional if the user does not exist.
      * @throws HttpStatusException If there is an error during the update or a database connection issue.
      */
     @Override
-    public boolean updateELO(String userId, int eloToAdd) {
-        try (Connection connection = database.getConnection()) {
-            // Start a transaction
-            connection.setAutoCommit(false);
-
-            // Prepare and execute the SQL statement to update the user's ELO rating
-            try (PreparedStatement updateELOStmt = connection.prepareStatement(UPDATE_ELO_SQL)) {
-                updateELOStmt.setInt(1, eloToAdd); // Set the ELO points to be added
-                updateELOStmt.setString(2, userId); // Set the user ID
-
-                // Execute the update and check the affected rows
-                int affectedRows = updateELOStmt.executeUpdate();
-                if (affectedRows == 1) {
-                    connection.commit(); // Commit the transaction
-                    return true;
-                } else {
-                    connection.rollback(); // Rollback the transaction if the update didn't affect any rows
-                    return false;
+    public Optional<Integer> updateELO(String userId, int eloToAdd) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement updateELOStmt = connection.prepareStatement(UPDATE_ELO_SQL)) {
+
+            updateELOStmt.setInt(1, eloToAdd); // Set the ELO points to be added
+            updateELOStmt.setString(2, userId); // Set the user ID
+
+            try (ResultSet resultSet = updateELOStmt.executeQuery()) {
+                if (resultSet.next()) {
+                    return Optional.of(resultSet.getInt("elorating"));
                 }
-            } catch (SQLException e) {
-                connection.rollback(); // Rollback the transaction
-                System.out.println("Error updating elo: " + e.getMessage());
-                throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error updating elo: " + e.getMessage());
+                return Optional.empty();
             }
         } catch (SQLException e) {
-            System.out.println("Database connection error: " + e.getMessage());
-            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Database connection error: " + e.getMessage());
+            System.out.println("Error updating elo: " + e.getMessage());
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error updating elo: " + e.getMessage());
         }
     }
-
 }
@@ -29,7 +29,7 @@ public class PackageRepository_db implements PackageRepository {
     private final String FIND_AVAILABLE_PACKAGE_BY_ID_SQL = "SELECT * FROM packages WHERE package_id = ? AND sold is false";
     private final String GET_FIRST_PACKAGE_NOT_POSSESSING_SQL = "SELECT p.package_id FROM packages p WHERE NOT EXISTS (SELECT 1 FROM cards_packages cp JOIN user_cards uc ON cp.card_fk = uc.card_fk WHERE cp.package_fk = p.package_id AND uc.user_fk = ?) AND p.sold = false ORDER BY p.orderid ASC LIMIT 1";
     private final String FIND_CARDS_IN_PACKAGE_SQL = "SELECT c.* FROM cards c JOIN cards_packages cp ON c.card_id = cp.card_fk WHERE package_fk = ?";
-    private final String UPDATE_PACKAGE_SOLD_SQL = "UPDATE packages SET sold = true WHERE package_id = ?";
+    private final String UPDATE_PACKAGE_SOLD_SQL = "UPDATE packages SET sold = true WHERE package_id = ? AND sold = false";
 
     // IMPLEMENTATIONS
 
@@ -254,7 +254,7 @@ public class PackageRepository_db implements PackageRepository {
      * Deletes a package from the database, or marks it as sold.
      *
      * @param packageId The unique identifier of the package to be deleted or marked as sold.
-     * @return True if the package is successfully deleted or updated, false otherwise.
+     * @return True if the package is successfully deleted or updated, false otherwise (e.g. if it was sold already).
      * @throws HttpStatusException If there is an error during the operation or a database connection issue.
      */
     @Override
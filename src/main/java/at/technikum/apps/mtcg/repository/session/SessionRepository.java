@@ -2,6 +2,7 @@ package at.technikum.apps.mtcg.repository.session;
 
 import at.technikum.apps.mtcg.entity.User;
 
+import java.time.Duration;
 import java.util.Optional;
 
 public interface SessionRepository {
@@ -14,4 +15,8 @@ public interface SessionRepository {
     Optional<String> generateToken(User user);
 
     boolean authenticateToken(String token);
+
+    Optional<Duration> getTokenTimeToLive(String token);
+
+    int purgeExpiredTokens(int batchSize);
 }
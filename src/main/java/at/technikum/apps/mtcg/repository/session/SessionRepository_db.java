@@ -9,6 +9,7 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Optional;
 
 public class SessionRepository_db implements SessionRepository {
@@ -21,17 +22,24 @@ public class SessionRepository_db implements SessionRepository {
 
     //SQL STATEMENTS
     private final String FIND_TOKEN_BY_USER_SQL = "SELECT token_name FROM access_token WHERE user_fk = ?";
-    private final String SAVE_TOKEN_SQL = "INSERT INTO access_token(user_fk, token_name) VALUES (?, ?) RETURNING token_name";
-    private final String DELETE_EXPIRED_TOKEN_SQL = "DELETE FROM access_token WHERE token_timestamp < (CURRENT_TIMESTAMP - INTERVAL '20 MINUTE')";
+    // A user's token name never changes, so logging in again renews the existing row
+    private final String SAVE_TOKEN_SQL = "INSERT INTO access_token(user_fk, token_name) VALUES (?, ?) " +
+            "ON CONFLICT (token_name) DO UPDATE SET user_fk = EXCLUDED.user_fk, token_timestamp = CURRENT_TIMESTAMP RETURNING token_name";
+    // Rows locked by a login are skipped and picked up by a later batch
+    private final String DELETE_EXPIRED_TOKEN_SQL = "DELETE FROM access_token WHERE token_id IN (SELECT token_id FROM access_token " +
+            "WHERE token_timestamp < (CURRENT_TIMESTAMP - INTERVAL '20 MINUTE') ORDER BY token_timestamp LIMIT ? FOR UPDATE SKIP LOCKED)";
     private final String AUTH_TOKEN_SQL = "SELECT * FROM access_token WHERE token_name = ? AND token_timestamp >= (CURRENT_TIMESTAMP - INTERVAL '20 MINUTE')";
     private final String FIND_USER_BY_TOKEN_SQL = "SELECT u.* FROM users u INNER JOIN access_token at ON u.user_id = at.user_fk WHERE at.token_name = ?";
     private final String DELETE_TOKEN_SQL = "DELETE FROM access_token WHERE user_fk = ?";
+    private final String TOKEN_TIME_TO_LIVE_SQL = "SELECT CAST(EXTRACT(EPOCH FROM (token_timestamp + INTERVAL '20 MINUTE' - CURRENT_TIMESTAMP)) * 1000 AS BIGINT) AS ttl_millis " +
+            "FROM access_token WHERE token_name = ? AND token_timestamp >= (CURRENT_TIMESTAMP - INTERVAL '20 MINUTE')";
 
 
     //IMPLEMENTATIONS
 
     /**
      * Generates and saves a token for a user in the database.
+     * If the user already has a token, it is renewed in place, so a login is a single statement.
      *
      * @param user The User object for whom the token is to be generated.
      * @return An Optional containing the generated token if successful, or an empty Optional if not.
@@ -165,29 +173,23 @@ public class SessionRepository_db implements SessionRepository {
 
 
     /**
-     * Deletes expired authentication tokens from the database.
+     * Deletes up to {@code batchSize} expired authentication tokens, oldest first.
+     * Each batch is its own short statement, so logins are never blocked for long.
      *
-     * @return True if the expired tokens are successfully deleted, false otherwise.
+     * @param batchSize The maximum number of tokens to delete.
+     * @return The number of deleted tokens.
      * @throws HttpStatusException If there is an error during the deletion or a database connection issue.
      */
-    private boolean deleteExpiredTokens() {
-        try (Connection connection = database.getConnection()) {
-            // Start a transaction
-            connection.setAutoCommit(false);
+    @Override
+    public int purgeExpiredTokens(int batchSize) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement deleteStmt = connection.prepareStatement(DELETE_EXPIRED_TOKEN_SQL)) {
 
-            // Prepare and execute the SQL statement to delete expired tokens
-            try (PreparedStatement deleteStmt = connection.prepareStatement(DELETE_EXPIRED_TOKEN_SQL)) {
-                deleteStmt.executeUpdate(); // Execute the update
-                connection.commit(); // Commit the transaction
-                return true;
-            } catch (SQLException e) {
-                connection.rollback(); // Rollback the transaction
-                System.out.println("Error deleting expired tokens: " + e.getMessage());
-                throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error deleting expired tokens: " + e.getMessage());
-            }
+            deleteStmt.setInt(1, batchSize); // Set the batch size
+            return deleteStmt.executeUpdate(); // Execute the update
         } catch (SQLException e) {
-            System.out.println("Database connection error: " + e.getMessage());
-            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Database connection error: " + e);
+            System.out.println("Error deleting expired tokens: " + e.getMessage());
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error deleting expired tokens: " + e.getMessage());
         }
     }
 
@@ -200,11 +202,7 @@ public class SessionRepository_db implements SessionRepository {
      * @throws HttpStatusException If there is an error during token authentication or a database connection issue.
      */
     public boolean authenticateToken(String token) {
-        // Delete expired tokens first
-        if (!deleteExpiredTokens()) {
-            return false; // Return false if failed to delete expired tokens
-        }
-
+        // Expired tokens are filtered by the query and deleted by the token sweeper
         try (Connection connection = database.getConnection();
              PreparedStatement authStmt = connection.prepareStatement(AUTH_TOKEN_SQL)) {
 
@@ -224,6 +222,37 @@ public class SessionRepository_db implements SessionRepository {
     }
 
 
+    /**
+     * Retrieves how long a token stays valid. The time is computed by the database, so it matches the
+     * 20 minute window of {@link #authenticateToken(String)} regardless of the server clock.
+     *
+     * @param token The token to look up.
+     * @return An Optional containing the remaining lifetime if the token is valid, or an empty Optional if not.
+     * @throws HttpStatusException If there is an error during the retrieval or a database connection issue.
+     */
+    @Override
+    public Optional<Duration> getTokenTimeToLive(String token) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement statement = connection.prepareStatement(TOKEN_TIME_TO_LIVE_SQL)) {
+
+            statement.setString(1, token); // Set the token in the SQL query
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (resultSet.next()) {
+                    return Optional.of(Duration.ofMillis(Math.max(0, resultSet.getLong("ttl_millis"))));
+                }
+            } catch (SQLException e) {
+                System.out.println("Error executing getTokenTimeToLive: " + e.getMessage());
+                throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error executing getTokenTimeToLive: " + e.getMessage());
+            }
+        } catch (SQLException e) {
+            System.out.println("Database connection error: " + e.getMessage());
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Database connection error: " + e);
+        }
+        return Optional.empty(); // The token does not exist or has expired
+    }
+
+
     private User convertResultSetToUser(ResultSet resultSet) throws SQLException {
         User user = new User();
         user.setId(resultSet.getString("user_id"));
@@ -0,0 +1,377 @@
+package at.technikum.apps.mtcg.repository.session;
+
+import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
+import at.technikum.apps.mtcg.entity.User;
+import at.technikum.apps.mtcg.repository.user.UserRepository;
+import at.technikum.server.http.HttpStatus;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sessions without a session table: a token carries the user ID, the admin flag and its expiry, signed with HMAC-SHA256.
+ * Validating a token is a signature check and needs no database; only {@link #findByToken(String)} loads the user by ID.
+ * <p>
+ * Tokens look like {@code keyId.payload.signature}. The key ID names the secret that signed the token, so secrets can be
+ * rotated: new tokens are signed with the newest secret, and retired secrets keep validating for one token lifetime.
+ * <p>
+ * Deleting a user's token revokes every token issued to that user up to now. Revocations are kept in memory for one
+ * token lifetime, after which the revoked tokens have expired anyway; they are not shared between nodes.
+ */
+public class SessionRepository_hmac implements SessionRepository {
+
+    // Same lifetime as the tokens stored in access_token
+    public static final Duration TOKEN_LIFETIME = Duration.ofMinutes(20);
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    // Revocations older than a token lifetime are dropped every this many revocations
+    private static final int PURGE_EVERY_REVOCATIONS = 256;
+
+    private final UserRepository userRepository;
+    private final Clock clock;
+    private final long lifetimeMillis = TOKEN_LIFETIME.toMillis();
+
+    // Replaced as a whole on rotation, so readers never see a half-updated key set
+    private volatile KeyRing keyRing;
+
+    // User ID to the time before which all tokens of that user are revoked
+    private final ConcurrentHashMap<String, Long> revokedBefore = new ConcurrentHashMap<>();
+    private final AtomicInteger revocationsSincePurge = new AtomicInteger();
+
+    /**
+     * @param userRepository The repository users are loaded from.
+     * @param keyId          ID of the signing secret, without dots.
+     * @param secret         The signing secret; at least 32 bytes.
+     * @param clock          The clock expiry is checked against.
+     */
+    public SessionRepository_hmac(UserRepository userRepository, String keyId, byte[] secret, Clock clock) {
+        this.userRepository = userRepository;
+        this.clock = clock;
+        this.keyRing = new KeyRing(keyId, Map.of(keyId, new SigningKey(secret, Long.MAX_VALUE)));
+    }
+
+    /**
+     * Creates the repository from system properties. {@code mtcg.session.hmac.keys} lists the secrets as
+     * {@code keyId:base64Secret} separated by commas, newest first; tokens of the older ones are accepted for one lifetime.
+     * Without keys a random secret is generated, so tokens do not survive a restart and are not valid on other nodes.
+     *
+     * @param userRepository The repository users are loaded from.
+     * @return The session repository.
+     * @throws IllegalArgumentException If the keys are malformed.
+     */
+    public static SessionRepository_hmac fromSystemProperties(UserRepository userRepository) {
+        String keys = System.getProperty("mtcg.session.hmac.keys", "").trim();
+        if (keys.isEmpty()) {
+            System.out.println("No mtcg.session.hmac.keys configured - using a random secret, tokens are lost on restart");
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            return new SessionRepository_hmac(userRepository, "k0", secret, Clock.systemUTC());
+        }
+
+        String[] entries = keys.split(",");
+        SessionRepository_hmac repository = null;
+        // Added oldest first, so the first key ends up signing
+        for (int i = entries.length - 1; i >= 0; i--) {
+            String[] parts = entries[i].trim().split(":", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid entry in mtcg.session.hmac.keys: expected keyId:base64Secret");
+            }
+            byte[] secret = Base64.getDecoder().decode(parts[1].trim());
+            if (repository == null) {
+                repository = new SessionRepository_hmac(userRepository, parts[0].trim(), secret, Clock.systemUTC());
+            } else {
+                repository.rotateKey(parts[0].trim(), secret);
+            }
+        }
+        return repository;
+    }
+
+    /**
+     * Signs new tokens with another secret. Tokens signed with the previous secrets stay valid until they expire.
+     *
+     * @param keyId  ID of the new secret, without dots.
+     * @param secret The new secret; at least 32 bytes.
+     */
+    public synchronized void rotateKey(String keyId, byte[] secret) {
+        long now = clock.millis();
+        Map<String, SigningKey> keys = new LinkedHashMap<>();
+        for (Map.Entry<String, SigningKey> entry : keyRing.keys.entrySet()) {
+            SigningKey key = entry.getValue();
+            // Retire the signing key now; drop keys whose last token has expired
+            long retiredAt = Math.min(key.retiredAtMillis, now);
+            if (now - retiredAt < lifetimeMillis && !entry.getKey().equals(keyId)) {
+                keys.put(entry.getKey(), key.retiredAtMillis == retiredAt ? key : new SigningKey(key.secret, retiredAt));
+            }
+        }
+        keys.put(keyId, new SigningKey(secret, Long.MAX_VALUE));
+        keyRing = new KeyRing(keyId, keys);
+    }
+
+    /**
+     * Issues a signed token for a user. Tokens issued to the user before are revoked.
+     *
+     * @param user The User object for whom the token is to be generated.
+     * @return An Optional containing the generated token.
+     */
+    @Override
+    public Optional<String> generateToken(User user) {
+        // Not before a revocation in the same millisecond, or the new token would be revoked as well
+        long issuedAt = Math.max(clock.millis(), revokedBefore.getOrDefault(user.getId(), 0L));
+        // Like the single access_token row per user: logging in again replaces the previous token
+        revoke(user.getId(), issuedAt);
+
+        String payload = ENCODER.encodeToString((issuedAt + "|" + (issuedAt + lifetimeMillis) + "|" + user.isAdmin() + "|" + user.getId())
+                .getBytes(StandardCharsets.UTF_8));
+        KeyRing ring = keyRing;
+        String signed = ring.currentKeyId + "." + payload;
+        return Optional.of(signed + "." + ENCODER.encodeToString(ring.keys.get(ring.currentKeyId).sign(signed)));
+    }
+
+    /**
+     * Verifies the signature, expiry and revocation of a token, without touching the database.
+     *
+     * @param token The token to authenticate.
+     * @return True if the token is valid.
+     */
+    @Override
+    public boolean authenticateToken(String token) {
+        return decode(token).isPresent();
+    }
+
+    /**
+     * Finds the user of a valid token by the user ID it carries.
+     *
+     * @param token The authentication token.
+     * @return An Optional containing the User if the token is valid and the user exists, or an empty Optional if not.
+     * @throws HttpStatusException If the user cannot be loaded.
+     */
+    @Override
+    public Optional<User> findByToken(String token) {
+        Optional<Claims> claims = decode(token);
+        if (claims.isEmpty()) {
+            return Optional.empty();
+        }
+        return userRepository.findUserById(claims.get().getUserId());
+    }
+
+    /**
+     * @param token The token to look up.
+     * @return An Optional containing the remaining lifetime if the token is valid, or an empty Optional if not.
+     */
+    @Override
+    public Optional<Duration> getTokenTimeToLive(String token) {
+        return decode(token).map(claims -> Duration.ofMillis(claims.getExpiresAtMillis() - clock.millis()));
+    }
+
+    /**
+     * Tokens are not stored, so there is no token to look up.
+     *
+     * @param userId The unique identifier of the user.
+     * @return An empty Optional.
+     */
+    @Override
+    public Optional<String> findTokenByUserId(String userId) {
+        return Optional.empty();
+    }
+
+    /**
+     * Revokes every token issued to the user up to now.
+     *
+     * @param userId The unique identifier of the user whose tokens are to be revoked.
+     * @return Always true.
+     */
+    @Override
+    public boolean deleteToken(String userId) {
+        // Tokens issued in this millisecond are revoked as well
+        revoke(userId, clock.millis() + 1);
+        return true;
+    }
+
+    /**
+     * Expired tokens need no deleting; drops revocations of tokens that have expired by now.
+     *
+     * @param batchSize The maximum number of revocations to drop.
+     * @return The number of dropped revocations.
+     */
+    @Override
+    public int purgeExpiredTokens(int batchSize) {
+        revocationsSincePurge.set(0);
+        // Every token issued before these times has expired by now
+        long expiredBefore = clock.millis() - lifetimeMillis;
+        int purged = 0;
+        for (Map.Entry<String, Long> entry : revokedBefore.entrySet()) {
+            if (purged >= batchSize) {
+                break;
+            }
+            if (entry.getValue() < expiredBefore && revokedBefore.remove(entry.getKey(), entry.getValue())) {
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * Checks a token and reads its claims.
+     *
+     * @param token The token.
+     * @return The claims of the token, or an empty Optional if it is malformed, forged, expired or revoked.
+     */
+    public Optional<Claims> decode(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        int firstDot = token.indexOf('.');
+        int lastDot = token.lastIndexOf('.');
+        if (firstDot <= 0 || lastDot == firstDot) {
+            return Optional.empty();
+        }
+
+        // Unknown or dropped keys fail like a wrong signature
+        SigningKey key = keyRing.keys.get(token.substring(0, firstDot));
+        long now = clock.millis();
+        if (key == null || now - key.retiredAtMillis >= lifetimeMillis) {
+            return Optional.empty();
+        }
+
+        try {
+            byte[] signature = DECODER.decode(token.substring(lastDot + 1));
+            if (!MessageDigest.isEqual(signature, key.sign(token.substring(0, lastDot)))) {
+                return Optional.empty();
+            }
+
+            String[] fields = new String(DECODER.decode(token.substring(firstDot + 1, lastDot)), StandardCharsets.UTF_8).split("\\|", 4);
+            if (fields.length != 4) {
+                return Optional.empty();
+            }
+            Claims claims = new Claims(fields[3], Boolean.parseBoolean(fields[2]), Long.parseLong(fields[0]), Long.parseLong(fields[1]));
+            if (now >= claims.getExpiresAtMillis()) {
+                return Optional.empty();
+            }
+            Long revoked = revokedBefore.get(claims.getUserId());
+            if (revoked != null && claims.getIssuedAtMillis() < revoked) {
+                return Optional.empty();
+            }
+            return Optional.of(claims);
+        } catch (IllegalArgumentException e) {
+            // Not Base64 or not a number
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * @return Number of users with revoked tokens kept in memory.
+     */
+    public int getRevocationCount() {
+        return revokedBefore.size();
+    }
+
+    private void revoke(String userId, long before) {
+        revokedBefore.merge(userId, before, Math::max);
+        if (revocationsSincePurge.incrementAndGet() >= PURGE_EVERY_REVOCATIONS) {
+            purgeExpiredTokens(Integer.MAX_VALUE);
+        }
+    }
+
+    /**
+     * The claims of a valid token.
+     */
+    public static class Claims {
+        private final String userId;
+        private final boolean admin;
+        private final long issuedAtMillis;
+        private final long expiresAtMillis;
+
+        public Claims(String userId, boolean admin, long issuedAtMillis, long expiresAtMillis) {
+            this.userId = userId;
+            this.admin = admin;
+            this.issuedAtMillis = issuedAtMillis;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public boolean isAdmin() {
+            return admin;
+        }
+
+        public long getIssuedAtMillis() {
+            return issuedAtMillis;
+        }
+
+        public long getExpiresAtMillis() {
+            return expiresAtMillis;
+        }
+    }
+
+    /**
+     * The secrets tokens are validated with, and the one new tokens are signed with.
+     */
+    private static final class KeyRing {
+        private final String currentKeyId;
+        private final Map<String, SigningKey> keys;
+
+        private KeyRing(String currentKeyId, Map<String, SigningKey> keys) {
+            if (currentKeyId.isEmpty() || currentKeyId.contains(".")) {
+                throw new IllegalArgumentException("Invalid key ID: " + currentKeyId);
+            }
+            this.currentKeyId = currentKeyId;
+            this.keys = Map.copyOf(keys);
+        }
+    }
+
+    /**
+     * A secret and the time it stopped signing new tokens.
+     */
+    private static final class SigningKey {
+        private final byte[] secret;
+        private final long retiredAtMillis;
+        // Initialised once and cloned per signature, since a Mac must not be shared between threads
+        private final Mac prototype;
+
+        private SigningKey(byte[] secret, long retiredAtMillis) {
+            if (secret.length < 32) {
+                throw new IllegalArgumentException("HMAC secrets must be at least 32 bytes");
+            }
+            this.secret = secret.clone();
+            this.retiredAtMillis = retiredAtMillis;
+            try {
+                this.prototype = Mac.getInstance(ALGORITHM);
+                this.prototype.init(new SecretKeySpec(this.secret, ALGORITHM));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(ALGORITHM + " is not available", e);
+            }
+        }
+
+        private byte[] sign(String data) {
+            Mac mac;
+            try {
+                mac = (Mac) prototype.clone();
+            } catch (CloneNotSupportedException e) {
+                try {
+                    mac = Mac.getInstance(ALGORITHM);
+                    mac.init(new SecretKeySpec(secret, ALGORITHM));
+                } catch (GeneralSecurityException ex) {
+                    throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error signing token: " + ex.getMessage());
+                }
+            }
+            return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,516 @@
+package at.technikum.apps.mtcg.repository.session;
+
+import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
+import at.technikum.apps.mtcg.entity.User;
+import at.technikum.apps.mtcg.repository.user.UserRepository;
+import at.technikum.server.http.HttpStatus;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Sessions in a memory-mapped file, so they survive restarts without a session table.
+ * <p>
+ * The file is a hash table with a fixed number of 128 byte slots and double hashing. A slot holds the first 16 bytes of
+ * the SHA-256 of a token (the token itself is never stored), its expiry and the user ID. A token is looked up by hashing
+ * it and probing at most {@link #MAX_PROBES} slots, straight from the mapped pages: a restarted node answers at once,
+ * without a query and without loading anything.
+ * <p>
+ * Writes are crash-safe per slot. A slot is marked busy before it is written and live afterwards, its content is
+ * covered by a CRC32, and the slot is flushed to disk before the token is handed out. Slots left busy or with a wrong
+ * checksum by a crash are dropped when the file is opened. Readers never lock: they read a slot's state before and
+ * after its content and retry if a write happened in between.
+ * <p>
+ * Only one process may open the file at a time: the repository holds an exclusive lock on it until {@link #close()},
+ * and a second server started on the same file fails at startup.
+ */
+public class SessionRepository_mmap implements SessionRepository, AutoCloseable {
+
+    // Same lifetime as the tokens stored in access_token
+    public static final Duration TOKEN_LIFETIME = Duration.ofMinutes(20);
+
+    // Slots probed per lookup or insert at most, whatever the number of deleted slots;
+    // with double hashing an insert into a table that is 3/4 full fails with a chance of about 1e-9
+    static final int MAX_PROBES = 64;
+
+    private static final long MAGIC = 0x4D544347_53455331L; // "MTCGSES1"
+    private static final int HEADER_SIZE = 128;
+    private static final int SLOT_SIZE = 128;
+
+    // Slot layout: state word, CRC32 of the rest, token hash, expiry, user ID
+    private static final int STATE = 0;
+    private static final int CRC = 4;
+    private static final int HASH_HIGH = 8;
+    private static final int HASH_LOW = 16;
+    private static final int EXPIRES = 24;
+    private static final int USER_ID_LENGTH = 32;
+    private static final int USER_ID = 34;
+    private static final int MAX_USER_ID_BYTES = SLOT_SIZE - USER_ID;
+
+    // Low two bits of the state word; the rest counts the writes to the slot
+    private static final int EMPTY = 0;
+    private static final int LIVE = 1;
+    private static final int DELETED = 2;
+    private static final int BUSY = 3;
+
+    private static final VarHandle STATE_WORD = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.BIG_ENDIAN);
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private final UserRepository userRepository;
+    private final Clock clock;
+    private final boolean syncWrites;
+    private final long lifetimeMillis = TOKEN_LIFETIME.toMillis();
+    private final SecureRandom random = new SecureRandom();
+
+    // Kept open for the lock on the file
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+
+    // User ID to the slot of its token; only changed while holding the lock of this repository
+    private final Map<String, Integer> slotsByUser = new HashMap<>();
+
+    /**
+     * Opens the session file, creating it if it does not exist.
+     *
+     * @param userRepository The repository users are loaded from.
+     * @param file           The session file.
+     * @param slotCount      Number of slots of a new file, rounded up to a power of two; an existing file keeps its size.
+     * @param syncWrites     Flush every written slot to disk, so sessions also survive a crash of the machine.
+     * @param clock          The clock expiry is checked against.
+     * @throws UncheckedIOException     If the file cannot be opened or mapped.
+     * @throws IllegalArgumentException If the file is not a session file.
+     * @throws IllegalStateException    If the file is locked by another process.
+     */
+    public SessionRepository_mmap(UserRepository userRepository, Path file, int slotCount, boolean syncWrites, Clock clock) {
+        this.userRepository = userRepository;
+        this.clock = clock;
+        this.syncWrites = syncWrites;
+        try {
+            this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open session file " + file, e);
+        }
+        try {
+            lock(channel, file);
+            boolean created = channel.size() == 0;
+            int slots = created ? Integer.highestOneBit(Math.max(MAX_PROBES, slotCount - 1) * 2) : readSlotCount(channel);
+            this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slots * SLOT_SIZE);
+            this.slotCount = slots;
+        } catch (IOException e) {
+            closeQuietly(channel);
+            throw new UncheckedIOException("Cannot open session file " + file, e);
+        } catch (RuntimeException e) {
+            closeQuietly(channel);
+            throw e;
+        }
+
+        if (buffer.getLong(0) != MAGIC) {
+            buffer.putLong(0, MAGIC);
+            buffer.putInt(8, this.slotCount);
+            buffer.putInt(12, SLOT_SIZE);
+            buffer.force(0, HEADER_SIZE);
+        }
+        recover();
+    }
+
+    /**
+     * Creates the repository from system properties, falling back to defaults for missing values.
+     *
+     * @param userRepository The repository users are loaded from.
+     * @return The session repository.
+     */
+    public static SessionRepository_mmap fromSystemProperties(UserRepository userRepository) {
+        return new SessionRepository_mmap(
+                userRepository,
+                Path.of(System.getProperty("mtcg.session.mmap.file", "sessions.mmap")),
+                Integer.getInteger("mtcg.session.mmap.slots", 65536),
+                Boolean.parseBoolean(System.getProperty("mtcg.session.mmap.syncWrites", "true")),
+                Clock.systemUTC()
+        );
+    }
+
+    /**
+     * Issues a random token for a user and stores it. The user's previous token is deleted.
+     *
+     * @param user The User object for whom the token is to be generated.
+     * @return An Optional containing the generated token.
+     * @throws HttpStatusException If the user ID is too long or no free slot is found.
+     */
+    @Override
+    public synchronized Optional<String> generateToken(User user) {
+        byte[] userId = user.getId().getBytes(StandardCharsets.UTF_8);
+        if (userId.length > MAX_USER_ID_BYTES) {
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "User ID too long for the session file");
+        }
+
+        byte[] tokenBytes = new byte[32];
+        random.nextBytes(tokenBytes);
+        String token = ENCODER.encodeToString(tokenBytes);
+        long[] hash = hash(token);
+        long now = clock.millis();
+
+        // Take the first free, deleted or expired slot of the probe sequence
+        int slot = -1;
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int candidate = slotOf(hash, probe);
+            int state = state(candidate);
+            if (kind(state) != LIVE || buffer.getLong(offset(candidate) + EXPIRES) <= now) {
+                slot = candidate;
+                break;
+            }
+        }
+        if (slot < 0) {
+            throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Session store is full - Try again later");
+        }
+
+        // Like the single access_token row per user: logging in again replaces the previous token
+        deleteToken(user.getId());
+        releaseSlot(slot);
+        write(slot, hash, now + lifetimeMillis, userId);
+        slotsByUser.put(user.getId(), slot);
+        return Optional.of(token);
+    }
+
+    /**
+     * Checks the token against the mapped file, without touching the database.
+     *
+     * @param token The token to authenticate.
+     * @return True if the token exists and has not expired.
+     */
+    @Override
+    public boolean authenticateToken(String token) {
+        return find(token) != null;
+    }
+
+    /**
+     * Finds the user of a valid token by the user ID stored with it.
+     *
+     * @param token The authentication token.
+     * @return An Optional containing the User if the token is valid and the user exists, or an empty Optional if not.
+     * @throws HttpStatusException If the user cannot be loaded.
+     */
+    @Override
+    public Optional<User> findByToken(String token) {
+        Session session = find(token);
+        return session == null ? Optional.empty() : userRepository.findUserById(session.userId);
+    }
+
+    /**
+     * @param token The token to look up.
+     * @return An Optional containing the remaining lifetime if the token is valid, or an empty Optional if not.
+     */
+    @Override
+    public Optional<Duration> getTokenTimeToLive(String token) {
+        Session session = find(token);
+        return session == null ? Optional.empty() : Optional.of(Duration.ofMillis(session.expiresAtMillis - clock.millis()));
+    }
+
+    /**
+     * Only hashes of tokens are stored, so there is no token to look up.
+     *
+     * @param userId The unique identifier of the user.
+     * @return An empty Optional.
+     */
+    @Override
+    public Optional<String> findTokenByUserId(String userId) {
+        return Optional.empty();
+    }
+
+    /**
+     * Deletes the token of a user.
+     *
+     * @param userId The unique identifier of the user whose token is to be deleted.
+     * @return Always true.
+     */
+    @Override
+    public synchronized boolean deleteToken(String userId) {
+        Integer slot = slotsByUser.remove(userId);
+        if (slot != null) {
+            markDeleted(slot);
+        }
+        return true;
+    }
+
+    /**
+     * Frees the slots of up to {@code batchSize} expired tokens. Expired slots are reused by new tokens anyway;
+     * purging keeps the user index small.
+     *
+     * @param batchSize The maximum number of tokens to delete.
+     * @return The number of deleted tokens.
+     */
+    @Override
+    public synchronized int purgeExpiredTokens(int batchSize) {
+        long now = clock.millis();
+        int purged = 0;
+        Iterator<Map.Entry<String, Integer>> iterator = slotsByUser.entrySet().iterator();
+        while (purged < batchSize && iterator.hasNext()) {
+            int slot = iterator.next().getValue();
+            if (buffer.getLong(offset(slot) + EXPIRES) <= now) {
+                iterator.remove();
+                markDeleted(slot);
+                purged++;
+            }
+        }
+        return purged;
+    }
+
+    /**
+     * @return Number of slots in the file.
+     */
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    /**
+     * @return Number of users with a stored token, expired or not.
+     */
+    public synchronized int getSessionCount() {
+        return slotsByUser.size();
+    }
+
+    /**
+     * Looks a token up in the mapped file.
+     *
+     * @return The session, or null if the token is unknown or expired.
+     */
+    private Session find(String token) {
+        if (token == null) {
+            return null;
+        }
+        long[] hash = hash(token);
+        for (int probe = 0; probe < MAX_PROBES; probe++) {
+            int slot = slotOf(hash, probe);
+            while (true) {
+                int before = state(slot);
+                if (kind(before) == EMPTY) {
+                    return null; // End of the probe sequence
+                }
+                if (kind(before) == BUSY) {
+                    Thread.onSpinWait(); // A write to this slot is in progress
+                    continue;
+                }
+                int base = offset(slot);
+                boolean match = kind(before) == LIVE
+                        && buffer.getLong(base + HASH_HIGH) == hash[0] && buffer.getLong(base + HASH_LOW) == hash[1];
+                Session session = match ? readSession(slot) : null;
+                VarHandle.loadLoadFence();
+                if (state(slot) != before) {
+                    continue; // Rewritten while reading, read again
+                }
+                if (match) {
+                    return session != null && session.expiresAtMillis > clock.millis() ? session : null;
+                }
+                break;
+            }
+        }
+        return null;
+    }
+
+    private Session readSession(int slot) {
+        int base = offset(slot);
+        int length = buffer.getShort(base + USER_ID_LENGTH);
+        if (length < 0 || length > MAX_USER_ID_BYTES || buffer.getInt(base + CRC) != checksum(slot)) {
+            return null;
+        }
+        byte[] userId = new byte[length];
+        buffer.get(base + USER_ID, userId);
+        return new Session(new String(userId, StandardCharsets.UTF_8), buffer.getLong(base + EXPIRES));
+    }
+
+    /**
+     * Writes a slot: busy, content and checksum, live; then flushes it.
+     */
+    private void write(int slot, long[] hash, long expiresAtMillis, byte[] userId) {
+        int base = offset(slot);
+        int version = state(slot) >>> 2;
+        STATE_WORD.setVolatile(buffer, base + STATE, ((version + 1) << 2) | BUSY);
+        VarHandle.storeStoreFence();
+
+        buffer.putLong(base + HASH_HIGH, hash[0]);
+        buffer.putLong(base + HASH_LOW, hash[1]);
+        buffer.putLong(base + EXPIRES, expiresAtMillis);
+        buffer.putShort(base + USER_ID_LENGTH, (short) userId.length);
+        buffer.put(base + USER_ID, userId);
+        buffer.put(base + USER_ID + userId.length, new byte[MAX_USER_ID_BYTES - userId.length]);
+        buffer.putInt(base + CRC, checksum(slot));
+
+        STATE_WORD.setRelease(buffer, base + STATE, ((version + 2) << 2) | LIVE);
+        sync(slot);
+    }
+
+    private void markDeleted(int slot) {
+        int state = state(slot);
+        if (kind(state) == LIVE) {
+            STATE_WORD.setRelease(buffer, offset(slot) + STATE, (((state >>> 2) + 1) << 2) | DELETED);
+            sync(slot);
+        }
+    }
+
+    /**
+     * Removes a slot that is about to be overwritten from the user index, if an expired token of another user is in it.
+     */
+    private void releaseSlot(int slot) {
+        if (kind(state(slot)) == LIVE) {
+            Session previous = readSession(slot);
+            if (previous != null) {
+                slotsByUser.remove(previous.userId, slot);
+            }
+        }
+    }
+
+    /**
+     * Drops slots a crash left busy or half-written and rebuilds the user index from the live ones.
+     */
+    private synchronized void recover() {
+        int dropped = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            int kind = kind(state(slot));
+            if (kind == BUSY) {
+                STATE_WORD.setVolatile(buffer, offset(slot) + STATE, ((state(slot) >>> 2) + 1) << 2 | DELETED);
+                dropped++;
+            } else if (kind == LIVE) {
+                Session session = readSession(slot);
+                if (session == null) {
+                    markDeleted(slot);
+                    dropped++;
+                } else {
+                    Integer previous = slotsByUser.put(session.userId, slot);
+                    if (previous != null) {
+                        // Two tokens of one user: keep the one that lives longer
+                        boolean keepPrevious = buffer.getLong(offset(previous) + EXPIRES) > session.expiresAtMillis;
+                        markDeleted(keepPrevious ? slot : previous);
+                        slotsByUser.put(session.userId, keepPrevious ? previous : slot);
+                    }
+                }
+            }
+        }
+        if (dropped > 0) {
+            buffer.force();
+            System.out.println("Session file: dropped " + dropped + " incomplete slots");
+        }
+    }
+
+    private void sync(int slot) {
+        if (syncWrites) {
+            buffer.force(offset(slot), SLOT_SIZE);
+        }
+    }
+
+    private int checksum(int slot) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(offset(slot) + HASH_HIGH, SLOT_SIZE - HASH_HIGH));
+        return (int) crc.getValue();
+    }
+
+    private int state(int slot) {
+        return (int) STATE_WORD.getAcquire(buffer, offset(slot) + STATE);
+    }
+
+    private static int kind(int state) {
+        return state & 3;
+    }
+
+    // The step is odd, so the probe sequence visits different slots in a power-of-two table
+    private int slotOf(long[] hash, int probe) {
+        return (int) ((hash[0] + probe * (hash[1] | 1)) & (slotCount - 1));
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    /**
+     * Closes the session file and releases its lock, so another process can open it.
+     * The repository must not be used afterwards.
+     *
+     * @throws UncheckedIOException If the file cannot be closed.
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            // Closing the channel releases the lock
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot close session file", e);
+        }
+    }
+
+    private static void lock(FileChannel channel, Path file) throws IOException {
+        FileLock lock;
+        try {
+            lock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            // Locked by another repository in this process
+            lock = null;
+        }
+        if (lock == null) {
+            throw new IllegalStateException("Session file " + file + " is used by another process");
+        }
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("Cannot close session file: " + e.getMessage());
+        }
+    }
+
+    private static int readSlotCount(FileChannel channel) throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        int slots = header.getInt(8);
+        if (header.getLong(0) != MAGIC || header.getInt(12) != SLOT_SIZE || Integer.bitCount(slots) != 1
+                || channel.size() < HEADER_SIZE + (long) slots * SLOT_SIZE) {
+            throw new IllegalArgumentException("Not a session file or written by another version");
+        }
+        return slots;
+    }
+
+    // First 16 bytes of the SHA-256 of the token
+    private static long[] hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            long high = 0;
+            long low = 0;
+            for (int i = 0; i < 8; i++) {
+                high = (high << 8) | (digest[i] & 0xFF);
+                low = (low << 8) | (digest[i + 8] & 0xFF);
+            }
+            return new long[]{high, low};
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class Session {
+        private final String userId;
+        private final long expiresAtMillis;
+
+        private Session(String userId, long expiresAtMillis) {
+            this.userId = userId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
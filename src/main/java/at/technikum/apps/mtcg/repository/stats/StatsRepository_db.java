@@ -18,8 +18,8 @@ public class StatsRepository_db implements StatsRepository {
     }
 
     //SQL STATEMENTS
-    private final String GET_WINS_SQL = "SELECT COUNT(*) AS wins FROM battles WHERE winner_fk = ?";
-    private final String GET_BATTLES_SQL = "SELECT COUNT(*) AS battles FROM battles WHERE player_a_fk = ? OR player_b_fk = ?";
+    private final String GET_WINS_SQL = "SELECT COUNT(*) AS wins FROM battles WHERE winner_fk = ? AND NOT practice";
+    private final String GET_BATTLES_SQL = "SELECT COUNT(*) AS battles FROM battles WHERE (player_a_fk = ? OR player_b_fk = ?) AND NOT practice";
 
     //IMPLEMENTATIONS
 
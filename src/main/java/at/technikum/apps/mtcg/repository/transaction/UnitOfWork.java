@@ -0,0 +1,20 @@
+package at.technikum.apps.mtcg.repository.transaction;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs several repository calls on one connection in one transaction.
+ * Either all of their changes are committed or none: the transaction is rolled back if the work throws
+ * or a repository rolls back. Nested calls join the outer unit of work.
+ */
+public interface UnitOfWork {
+    void run(Runnable work);
+
+    default <T> T call(Supplier<T> work) {
+        Object[] result = new Object[1];
+        run(() -> result[0] = work.get());
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+}
@@ -0,0 +1,56 @@
+package at.technikum.apps.mtcg.repository.transaction;
+
+import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
+import at.technikum.apps.mtcg.database.Database;
+import at.technikum.server.http.HttpStatus;
+
+import java.sql.SQLException;
+
+public class UnitOfWork_db implements UnitOfWork {
+
+    private final Database database;
+
+    public UnitOfWork_db(Database database) {
+        this.database = database;
+    }
+
+    /**
+     * Runs the work in a database transaction bound to the current thread.
+     * Repositories called by the work use the connection of that transaction.
+     *
+     * @param work The repository calls to run.
+     * @throws HttpStatusException If no connection is available or the commit fails.
+     */
+    @Override
+    public void run(Runnable work) {
+        boolean started;
+        try {
+            started = database.beginTransaction();
+        } catch (SQLException e) {
+            System.out.println("Database connection error: " + e.getMessage());
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Database connection error: " + e.getMessage());
+        }
+
+        // Already inside a unit of work, the outer one commits
+        if (!started) {
+            work.run();
+            return;
+        }
+
+        boolean completed = false;
+        try {
+            work.run();
+            completed = true;
+        } finally {
+            try {
+                database.endTransaction(completed);
+            } catch (SQLException e) {
+                System.out.println("Error committing transaction: " + e.getMessage());
+                // Don't hide the exception of the work
+                if (completed) {
+                    throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error committing transaction: " + e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -21,5 +21,7 @@ public interface UserRepository {
 
     Optional<User> findUserById(String id);
 
+    boolean updatePassword(String id, String oldHash, String newHash);
+
 
 }
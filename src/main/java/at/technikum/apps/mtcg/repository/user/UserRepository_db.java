@@ -25,6 +25,7 @@ public class UserRepository_db implements UserRepository {
     private final String SEARCH_USERNAME_SQL = "SELECT COUNT(*) AS count FROM users WHERE username = ?";
     private final String FIND_USER_SQL = "SELECT * FROM users WHERE username = ?";
     private final String FIND_USER_BY_ID_SQL = "SELECT * FROM users WHERE user_id = ?";
+    private final String UPDATE_PASSWORD_SQL = "UPDATE users SET password = ? WHERE user_id = ? AND password = ?";
     private final String SAVE_USERDATA_SQL = "INSERT INTO userdata (user_fk, name) VALUES (?, ?)";
     private final String ADD_CARD_TO_USER_SQL = "INSERT INTO user_cards (user_fk, card_fk) VALUES (?, ?)";
 
@@ -277,6 +278,31 @@ public class UserRepository_db implements UserRepository {
     }
 
 
+    /**
+     * Replaces the password hash of a user, unless the password was changed in the meantime.
+     *
+     * @param id      The ID of the user.
+     * @param oldHash The hash that is replaced.
+     * @param newHash The new hash of the same password.
+     * @return True if the hash was replaced, false if the user does not exist or has another hash by now.
+     * @throws HttpStatusException If there is an error during the update or a database connection issue.
+     */
+    @Override
+    public boolean updatePassword(String id, String oldHash, String newHash) {
+        try (Connection connection = database.getConnection();
+             PreparedStatement statement = connection.prepareStatement(UPDATE_PASSWORD_SQL)) {
+
+            statement.setString(1, newHash);
+            statement.setString(2, id);
+            statement.setString(3, oldHash);
+            return statement.executeUpdate() == 1;
+        } catch (SQLException e) {
+            System.out.println("Error executing updatePassword: " + e.getMessage());
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error executing updatePassword: " + e.getMessage());
+        }
+    }
+
+
     private UserData convertResultSetToUserData(ResultSet resultSet) throws SQLException {
         UserData userData = new UserData();
         userData.setName(resultSet.getString("name"));
@@ -0,0 +1,293 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.Card;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * Battle rules on primitive card profiles.
+ * Every card is mapped once to an int profile (species, kind and element ordinals) plus its damage; a round then is
+ * two table lookups and an integer comparison instead of string comparisons. The tables are computed from the rules
+ * below, which match the original string based rules exactly, including their quirks:
+ * <ul>
+ *     <li>special rules only look at the first card's name (e.g. Goblin vs Dragon, but not Dragon vs Goblin)
+ *     and compare card type and element ignoring case,</li>
+ *     <li>element multipliers only apply if a card type is exactly "spell", and only to that card's damage,</li>
+ *     <li>the attacking element is lower-cased, the defending one compared ignoring case.</li>
+ * </ul>
+ * Damage is compared in half units, so halving stays exact.
+ */
+public class BattleEngine {
+
+    // Round outcomes
+    public static final int DRAW = 0;
+    public static final int A_WINS = 1;
+    public static final int B_WINS = 2;
+    private static final int NO_RULE = -1;
+
+    public static final int MAX_ROUNDS = 100;
+
+    // Species, from the card name ignoring case; only those with special rules are told apart
+    private static final int OTHER_SPECIES = 0;
+    private static final int GOBLIN = 1;
+    private static final int DRAGON = 2;
+    private static final int WIZZARD = 3;
+    private static final int ORK = 4;
+    private static final int KNIGHT = 5;
+    private static final int KRAKEN = 6;
+    private static final int FIRE_ELF = 7;
+
+    // Elements
+    private static final int WATER = 0;
+    private static final int FIRE = 1;
+    private static final int NORMAL = 2;
+    private static final int OTHER_ELEMENT = 3;
+
+    // Profile layout: bits 0-4 are everything a special rule looks at on the second card, bits 0-2 on the first
+    private static final int SPECIES_MASK = 0b111;
+    private static final int SPELL_IGNORE_CASE = 1 << 3;
+    private static final int WATER_IGNORE_CASE = 1 << 4;
+    private static final int SPECIAL_KEY_MASK = 0b11111;
+    private static final int SPELL_EXACT = 1 << 5;
+    private static final int ATTACK_ELEMENT_SHIFT = 6;
+    private static final int DEFEND_ELEMENT_SHIFT = 8;
+
+    // Outcome of the special rules for (species of A, special key of B), NO_RULE if none applies
+    private static final byte[] SPECIAL = new byte[8 << 5];
+
+    // Damage factor in half units for (spell exact + attacking element of A, defending element of B)
+    private static final byte[] MULTIPLIER = new byte[8 << 2];
+
+    static {
+        for (int species = 0; species < 8; species++) {
+            for (int key = 0; key < 32; key++) {
+                SPECIAL[species << 5 | key] = (byte) specialRule(species, key & SPECIES_MASK,
+                        (key & SPELL_IGNORE_CASE) != 0, (key & WATER_IGNORE_CASE) != 0);
+            }
+        }
+        for (int attack = 0; attack < 8; attack++) {
+            for (int defend = 0; defend < 4; defend++) {
+                boolean spell = (attack & 1) != 0;
+                MULTIPLIER[attack << 2 | defend] = (byte) (spell ? elementFactor(attack >> 1, defend) : 2);
+            }
+        }
+    }
+
+    /**
+     * Maps a card to its profile. Do this once per card, not per round.
+     *
+     * @param card The card.
+     * @return The profile to pass to {@link #roundWinner(int, int, int, int)}.
+     */
+    public static int profileOf(Card card) {
+        String name = card.getName() == null ? "" : card.getName();
+        String cardType = card.getCardType() == null ? "" : card.getCardType();
+        String element = card.getElementType() == null ? "" : card.getElementType();
+
+        int profile = speciesOf(name);
+        if (cardType.equalsIgnoreCase("spell")) {
+            profile |= SPELL_IGNORE_CASE;
+        }
+        if (element.equalsIgnoreCase("Water")) {
+            profile |= WATER_IGNORE_CASE;
+        }
+        if (cardType.equals("spell")) {
+            profile |= SPELL_EXACT;
+        }
+
+        int attackElement = switch (element.toLowerCase()) {
+            case "water" -> WATER;
+            case "fire" -> FIRE;
+            case "normal" -> NORMAL;
+            default -> OTHER_ELEMENT;
+        };
+        int defendElement = element.equalsIgnoreCase("water") ? WATER
+                : element.equalsIgnoreCase("fire") ? FIRE
+                : element.equalsIgnoreCase("normal") ? NORMAL
+                : OTHER_ELEMENT;
+        return profile | attackElement << ATTACK_ELEMENT_SHIFT | defendElement << DEFEND_ELEMENT_SHIFT;
+    }
+
+    /**
+     * Decides one round.
+     *
+     * @param profileA Profile of player A's card.
+     * @param damageA  Damage of player A's card.
+     * @param profileB Profile of player B's card.
+     * @param damageB  Damage of player B's card.
+     * @return {@link #A_WINS}, {@link #B_WINS} or {@link #DRAW}.
+     */
+    public static int roundWinner(int profileA, int damageA, int profileB, int damageB) {
+        int special = SPECIAL[(profileA & SPECIES_MASK) << 5 | (profileB & SPECIAL_KEY_MASK)];
+        if (special != NO_RULE) {
+            return special;
+        }
+
+        long effectiveA = damageA;
+        long effectiveB = damageB;
+        if (((profileA | profileB) & SPELL_EXACT) != 0) {
+            effectiveA *= MULTIPLIER[attackIndex(profileA) | defendElement(profileB)];
+            effectiveB *= MULTIPLIER[attackIndex(profileB) | defendElement(profileA)];
+        }
+        return effectiveA > effectiveB ? A_WINS : effectiveB > effectiveA ? B_WINS : DRAW;
+    }
+
+    /**
+     * Plays a battle: each round a random card of each deck fights, and the winner's deck gets a copy of the losing
+     * card (the loser keeps it, as in the original rules). Ends after {@link #MAX_ROUNDS} or when a deck is empty.
+     *
+     * @param deckA    Player A's deck, grows with captured cards.
+     * @param deckB    Player B's deck, grows with captured cards.
+     * @param random   Picks the cards of each round.
+     * @param listener Told about every round; null if not needed.
+     * @return {@link #DRAW} if no round had a winner, otherwise the player with more cards (B on a tie).
+     */
+    public static int fight(Deck deckA, Deck deckB, RandomGenerator random, RoundListener listener) {
+        boolean isDraw = true;
+        int round = 0;
+        while (round < MAX_ROUNDS && deckA.size > 0 && deckB.size > 0) {
+            round++;
+            // Same as shuffling the deck and taking the first card
+            int slotA = random.nextInt(deckA.size);
+            int slotB = random.nextInt(deckB.size);
+
+            int outcome = roundWinner(deckA.profiles[slotA], deckA.damages[slotA], deckB.profiles[slotB], deckB.damages[slotB]);
+            if (listener != null) {
+                listener.round(round, deckA.getCard(slotA), deckB.getCard(slotB), outcome);
+            }
+            if (outcome == A_WINS) {
+                isDraw = false;
+                deckA.capture(deckB, slotB);
+            } else if (outcome == B_WINS) {
+                isDraw = false;
+                deckB.capture(deckA, slotA);
+            }
+        }
+
+        if (isDraw) {
+            return DRAW;
+        }
+        return deckA.size > deckB.size ? A_WINS : B_WINS;
+    }
+
+    /**
+     * Called for every round of {@link #fight}.
+     */
+    public interface RoundListener {
+        void round(int round, Card cardA, Card cardB, int outcome);
+    }
+
+    /**
+     * A deck as parallel arrays of card profiles and damages, with room for the cards captured in a battle.
+     */
+    public static class Deck {
+
+        private final Card[] cards;
+        private final int[] profiles;
+        private final int[] damages;
+        private int size;
+
+        /**
+         * Maps the cards to their profiles.
+         *
+         * @param cards The cards of the deck.
+         */
+        public Deck(Card[] cards) {
+            this(cards.length);
+            for (Card card : cards) {
+                this.cards[size] = card;
+                this.profiles[size] = profileOf(card);
+                this.damages[size] = card.getDamage();
+                size++;
+            }
+        }
+
+        private Deck(int initialSize) {
+            int capacity = initialSize + MAX_ROUNDS;
+            this.cards = new Card[capacity];
+            this.profiles = new int[capacity];
+            this.damages = new int[capacity];
+        }
+
+        /**
+         * @return A deck with the same cards, for another battle; the profiles are not computed again.
+         */
+        public Deck copy() {
+            Deck copy = new Deck(size);
+            System.arraycopy(cards, 0, copy.cards, 0, size);
+            System.arraycopy(profiles, 0, copy.profiles, 0, size);
+            System.arraycopy(damages, 0, copy.damages, 0, size);
+            copy.size = size;
+            return copy;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public Card getCard(int slot) {
+            return cards[slot];
+        }
+
+        /**
+         * @return The cards currently in the deck, including captured ones.
+         */
+        public List<Card> getCards() {
+            return new ArrayList<>(Arrays.asList(cards).subList(0, size));
+        }
+
+        private void capture(Deck from, int slot) {
+            cards[size] = from.cards[slot];
+            profiles[size] = from.profiles[slot];
+            damages[size] = from.damages[slot];
+            size++;
+        }
+    }
+
+    private static int attackIndex(int profile) {
+        return ((profile >> ATTACK_ELEMENT_SHIFT & 0b11) << 1 | ((profile & SPELL_EXACT) != 0 ? 1 : 0)) << 2;
+    }
+
+    private static int defendElement(int profile) {
+        return profile >> DEFEND_ELEMENT_SHIFT & 0b11;
+    }
+
+    private static int speciesOf(String name) {
+        if (name.equalsIgnoreCase("Goblin")) return GOBLIN;
+        if (name.equalsIgnoreCase("Dragon")) return DRAGON;
+        if (name.equalsIgnoreCase("Wizzard")) return WIZZARD;
+        if (name.equalsIgnoreCase("Ork")) return ORK;
+        if (name.equalsIgnoreCase("Knight")) return KNIGHT;
+        if (name.equalsIgnoreCase("Kraken")) return KRAKEN;
+        if (name.equalsIgnoreCase("FireElf")) return FIRE_ELF;
+        return OTHER_SPECIES;
+    }
+
+    /**
+     * The special rules, in the order the original rules checked them.
+     */
+    private static int specialRule(int speciesA, int speciesB, boolean spellB, boolean waterB) {
+        if (speciesA == GOBLIN && speciesB == DRAGON) return B_WINS;
+        if (speciesA == WIZZARD && speciesB == ORK) return A_WINS;
+        if (speciesA == KNIGHT && spellB && waterB) return B_WINS;
+        if (speciesA == KRAKEN && spellB) return A_WINS;
+        if (speciesA == FIRE_ELF && speciesB == DRAGON) return A_WINS;
+        return NO_RULE;
+    }
+
+    /**
+     * Damage factor in half units of a spell of one element against a card of another:
+     * water beats fire, fire beats normal, normal beats water.
+     */
+    private static int elementFactor(int attack, int defend) {
+        if (attack == OTHER_ELEMENT || defend == OTHER_ELEMENT || attack == defend) {
+            return 2;
+        }
+        boolean strong = (attack == WATER && defend == FIRE) || (attack == FIRE && defend == NORMAL)
+                || (attack == NORMAL && defend == WATER);
+        return strong ? 4 : 1;
+    }
+}
@@ -0,0 +1,75 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.repository.battle.BattleRepository;
+
+/**
+ * Collects the narrative of one battle in memory and writes it to the battle log in one go.
+ * Without streaming the whole log is inserted by a single {@link BattleRepository#startLog} when the battle is flushed;
+ * with streaming every N rounds the text collected so far is appended, so long battles can be followed while they run.
+ */
+class BattleLog {
+
+    private final BattleRepository battleRepository;
+    private final String battleId;
+    private final int flushEveryRounds;
+
+    private final StringBuilder pending = new StringBuilder(1024);
+    private boolean started;
+    private int rounds;
+
+    /**
+     * @param battleRepository The repository the log is written to.
+     * @param battleId         The battle the log belongs to.
+     * @param flushEveryRounds Write the log every this many rounds; 0 writes it only on {@link #flush()}.
+     */
+    BattleLog(BattleRepository battleRepository, String battleId, int flushEveryRounds) {
+        this.battleRepository = battleRepository;
+        this.battleId = battleId;
+        this.flushEveryRounds = flushEveryRounds;
+    }
+
+    /**
+     * Adds a line to the log.
+     *
+     * @param line The text, without the trailing newline.
+     * @return This log, for chaining.
+     */
+    BattleLog line(String line) {
+        pending.append(line).append('\n');
+        return this;
+    }
+
+    /**
+     * @return The buffer to append a line to directly; the caller must end the line with '\n'.
+     */
+    StringBuilder append() {
+        return pending;
+    }
+
+    /**
+     * Marks the end of a round and writes the log if streaming is enabled and the round count is reached.
+     */
+    void endRound() {
+        rounds++;
+        if (flushEveryRounds > 0 && rounds % flushEveryRounds == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes the text collected since the last flush: the first write creates the log entry, later ones append to it.
+     */
+    void flush() {
+        if (pending.isEmpty() && started) {
+            return;
+        }
+        String text = pending.toString();
+        pending.setLength(0);
+        if (started) {
+            battleRepository.addToLog(battleId, text);
+        } else {
+            battleRepository.startLog(battleId, text);
+            started = true;
+        }
+    }
+}
@@ -1,34 +1,48 @@
 package at.technikum.apps.mtcg.service;
 
+import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
 import at.technikum.apps.mtcg.entity.BattleResult;
 import at.technikum.apps.mtcg.entity.Card;
 import at.technikum.apps.mtcg.entity.User;
 import at.technikum.apps.mtcg.repository.battle.BattleRepository;
 import at.technikum.apps.mtcg.repository.card.CardRepository;
 import at.technikum.apps.mtcg.repository.elo.ELORepository;
+import at.technikum.apps.mtcg.repository.transaction.UnitOfWork;
+import at.technikum.server.http.HttpStatus;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class BattleLogic {
     private final BattleRepository battleRepository;
     private final CardRepository cardRepository;
     private final ELORepository eloRepository;
+    private final UnitOfWork unitOfWork;
 
-    private static final int MAX_ROUNDS = 100;
     private static final int ELO_WIN = 3;
     private static final int ELO_LOSS = -5;
 
-    public BattleLogic(BattleRepository battleRepository, CardRepository cardRepository, ELORepository eloRepository) {
+    // Write the battle log every this many rounds; 0 writes it once when the battle is crowned
+    private final int logFlushRounds;
+
+    public BattleLogic(BattleRepository battleRepository, CardRepository cardRepository, ELORepository eloRepository,
+                       UnitOfWork unitOfWork) {
+        this(battleRepository, cardRepository, eloRepository, unitOfWork, Integer.getInteger("mtcg.battle.logFlushRounds", 0));
+    }
+
+    public BattleLogic(BattleRepository battleRepository, CardRepository cardRepository, ELORepository eloRepository,
+                       UnitOfWork unitOfWork, int logFlushRounds) {
         this.battleRepository = battleRepository;
         this.cardRepository = cardRepository;
         this.eloRepository = eloRepository;
+        this.unitOfWork = unitOfWork;
+        this.logFlushRounds = logFlushRounds;
     }
 
     /**
-     * Conducts a battle between two players and records the outcome.
+     * Conducts a battle between two players with their current decks and records the outcome.
      *
      * @param battleId The unique identifier of the battle.
      * @param playerA  The first player in the battle.
@@ -36,94 +50,168 @@ public class BattleLogic {
      * @return The result of the battle.
      */
     public BattleResult performBattle(String battleId, User playerA, User playerB) {
-        // Attempt to start the battle and log if it fails
-        boolean started = battleRepository.startBattle(battleId, playerA.getId(), playerB.getId());
+        return performBattle(battleId, playerA, new BattleEngine.Deck(cardRepository.getUserDeckCards(playerA.getId())),
+                playerB, new BattleEngine.Deck(cardRepository.getUserDeckCards(playerB.getId())));
+    }
+
+    /**
+     * Conducts a battle between two players with decks that were loaded before and records the outcome.
+     * The battle log is collected in memory and written once before the winner is crowned
+     * (or every {@code logFlushRounds} rounds, if configured).
+     *
+     * @param battleId    The unique identifier of the battle.
+     * @param playerA     The first player in the battle.
+     * @param playerADeck The deck of the first player; changed by the battle.
+     * @param playerB     The second player in the battle.
+     * @param playerBDeck The deck of the second player; changed by the battle.
+     * @return The result of the battle.
+     */
+    public BattleResult performBattle(String battleId, User playerA, BattleEngine.Deck playerADeck,
+                                      User playerB, BattleEngine.Deck playerBDeck) {
+        return performBattle(battleId, playerA, playerADeck, playerB, playerBDeck, true);
+    }
+
+    /**
+     * Conducts a practice battle of a player against a bot. The bot is not stored: the battle is recorded as practice
+     * with the player only and without a winner if the bot wins. Neither ELO, cards nor stats change.
+     *
+     * @param battleId   The unique identifier of the battle.
+     * @param player     The player in the battle.
+     * @param playerDeck The deck of the player; changed by the battle.
+     * @param bot        The bot.
+     * @param botDeck    The deck of the bot; changed by the battle.
+     * @return The result of the battle, with the bot as player B.
+     */
+    public BattleResult performBotBattle(String battleId, User player, BattleEngine.Deck playerDeck,
+                                         User bot, BattleEngine.Deck botDeck) {
+        return performBattle(battleId, player, playerDeck, bot, botDeck, false);
+    }
+
+    private BattleResult performBattle(String battleId, User playerA, BattleEngine.Deck playerADeck,
+                                       User playerB, BattleEngine.Deck playerBDeck, boolean ranked) {
+        // Attempt to start the battle and log if it fails; a bot is not stored and its battles don't count in the stats
+        boolean started = ranked
+                ? battleRepository.startBattle(battleId, playerA.getId(), playerB.getId())
+                : battleRepository.startPracticeBattle(battleId, playerA.getId());
         if (!started) {
             battleRepository.addToLog(battleId, "Failed to start the battle.\n");
             return null;
         }
 
         // Log the beginning of the battle
-        String introLog = "The grand battle commences in the mystical arena! " +
+        BattleLog log = new BattleLog(battleRepository, battleId, logFlushRounds);
+        log.line("The grand battle commences in the mystical arena! " +
                 "Champion " + playerA.getUsername() + " versus the valiant " + playerB.getUsername() +
-                ". May the bravest warrior prevail!\n";
-        battleRepository.startLog(battleId, introLog);
-
-        // Retrieve the decks of each player
-        List<Card> playerADeck = new ArrayList<>(Arrays.asList(cardRepository.getUserDeckCards(playerA.getId())));
-        List<Card> playerBDeck = new ArrayList<>(Arrays.asList(cardRepository.getUserDeckCards(playerB.getId())));
+                ". May the bravest warrior prevail!");
 
         // Log the initial state of each player's deck
-        logDeckState("Initial", playerA, playerADeck, battleId);
-        logDeckState("Initial", playerB, playerBDeck, battleId);
-
-        // Initialize ELO points for both players
-        int eloA = playerA.getEloRating();
-        int eloB = playerB.getEloRating();
-
-        // Conduct the battle rounds
-        int round = 0;
-        boolean isDraw = true;
-        while (round < MAX_ROUNDS && !playerADeck.isEmpty() && !playerBDeck.isEmpty()) {
-            round++;
-
-            // Shuffle decks
-            Collections.shuffle(playerADeck);
-            Collections.shuffle(playerBDeck);
-
-            // Determine the winner of each round
-            Card cardA = playerADeck.get(0);
-            Card cardB = playerBDeck.get(0);
+        logDeckState("Initial", playerA, playerADeck.getCards(), log);
+        logDeckState("Initial", playerB, playerBDeck.getCards(), log);
+
+        // Conduct the battle rounds, narrating each one
+        int outcome = BattleEngine.fight(playerADeck, playerBDeck, ThreadLocalRandom.current(), (round, cardA, cardB, roundOutcome) -> {
+            // Appended straight to the log buffer instead of concatenating a string per round
+            StringBuilder battleNarrative = log.append().append("Epic Round ").append(round).append(": ")
+                    .append("The mighty ").append(cardA.getName()).append(" of ").append(playerA.getUsername())
+                    .append(" clashes against the fearsome ").append(cardB.getName()).append(" of ").append(playerB.getUsername()).append(". ");
+
+            if (roundOutcome == BattleEngine.A_WINS) {
+                // Player A captures Player B's card
+                battleNarrative.append("In a stunning display of power, ").append(playerA.getUsername()).append("'s ").append(cardA.getName())
+                        .append(" triumphs over ").append(playerB.getUsername()).append("'s ").append(cardB.getName())
+                        .append(", capturing the foe!");
+            } else if (roundOutcome == BattleEngine.B_WINS) {
+                // Player B captures Player A's card
+                battleNarrative.append("With a cunning maneuver, ").append(playerB.getUsername()).append("'s ").append(cardB.getName())
+                        .append(" overpowers ").append(playerA.getUsername()).append("'s ").append(cardA.getName())
+                        .append(", claiming victory!");
+            } else {
+                battleNarrative.append("The clash of titans ends in a deadlock, none could overpower the other!");
+            }
 
-            // Determine winner of the round
-            Card winnerCard = determineRoundWinner(cardA, cardB);
+            battleNarrative.append('\n');
+            log.endRound();
+        });
 
-            String battleNarrative = "Epic Round " + round + ": " +
-                    "The mighty " + cardA.getName() + " of " + playerA.getUsername() +
-                    " clashes against the fearsome " + cardB.getName() + " of " + playerB.getUsername() + ". ";
+        User finalWinner = outcome == BattleEngine.DRAW ? null : outcome == BattleEngine.A_WINS ? playerA : playerB;
+        if (ranked) {
+            // Card transfers, ELO, log and winner are written together or not at all
+            unitOfWork.run(() -> finishBattle(battleId, playerA, playerADeck, playerB, playerBDeck, finalWinner, log));
+        } else {
+            finishBotBattle(battleId, playerA, finalWinner, log);
+        }
 
-            if (winnerCard != null) {
-                isDraw = false;
-                if (winnerCard.equals(cardA)) {
-                    playerADeck.add(cardB); // Player A captures Player B's card
-                    battleNarrative += "In a stunning display of power, " + playerA.getUsername() + "'s " + cardA.getName() +
-                            " triumphs over " + playerB.getUsername() + "'s " + cardB.getName() +
-                            ", capturing the foe!";
-                } else {
-                    playerBDeck.add(cardA); // Player B captures Player A's card
-                    battleNarrative += "With a cunning maneuver, " + playerB.getUsername() + "'s " + cardB.getName() +
-                            " overpowers " + playerA.getUsername() + "'s " + cardA.getName() +
-                            ", claiming victory!";
-                }
-            } else {
-                battleNarrative += "The clash of titans ends in a deadlock, none could overpower the other!";
+        // Return the battle result
+        BattleResult result = battleRepository.findBattleById(battleId).orElse(null);
+        if (result != null && !ranked) {
+            // Show the bot in place of the user that is not stored
+            result.setPlayerB(playerB);
+            if (finalWinner == playerB) {
+                result.setWinner(playerB);
             }
-
-            battleRepository.addToLog(battleId, battleNarrative + "\n");
         }
+        return result;
+    }
 
+    /**
+     * Records the outcome of a battle with a fixed number of statements: the deck changes of both players,
+     * the ELO changes, the battle log and the winner. Must run in a unit of work.
+     *
+     * @param battleId    The unique identifier of the battle.
+     * @param playerA     The first player in the battle.
+     * @param playerADeck The first player's deck after the battle.
+     * @param playerB     The second player in the battle.
+     * @param playerBDeck The second player's deck after the battle.
+     * @param winner      The winner, or null for a draw.
+     * @param log         The log of the battle.
+     * @throws HttpStatusException If a player's ELO cannot be updated.
+     */
+    private void finishBattle(String battleId, User playerA, BattleEngine.Deck playerADeck, User playerB, BattleEngine.Deck playerBDeck,
+                              User winner, BattleLog log) {
         // Save deck changes to the stack
-        saveDeckToStack(playerA, playerADeck, battleId);
-        saveDeckToStack(playerB, playerBDeck, battleId);
-
-        // Determine the final winner and update ELO
-        if (!isDraw) {
-            User finalWinner = playerADeck.size() > playerBDeck.size() ? playerA : playerB;
-            User finalLoser = finalWinner.equals(playerA) ? playerB : playerA;
-            eloA += finalWinner.equals(playerA) ? ELO_WIN : ELO_LOSS;
-            eloB += finalWinner.equals(playerB) ? ELO_WIN : ELO_LOSS;
-            eloRepository.updateELO(playerA.getId(), eloA);
-            eloRepository.updateELO(playerB.getId(), eloB);
-            battleRepository.crownWinner(battleId, finalWinner.getId());
-            battleRepository.addToLog(battleId, finalWinner.getUsername() + " wins the battle with final ELO: " + (finalWinner.equals(playerA) ? eloA : eloB) + "\n");
+        saveDeckToStack(playerA, playerADeck.getCards(), log);
+        saveDeckToStack(playerB, playerBDeck.getCards(), log);
+
+        if (winner != null) {
+            // ELO is changed relative to the stored rating, so concurrent battles of a player don't overwrite each other
+            User loser = winner == playerA ? playerB : playerA;
+            int winnerElo;
+            // Rows are always locked in the same order, so two battles of the same players cannot deadlock
+            if (winner.getId().compareTo(loser.getId()) < 0) {
+                winnerElo = addELO(winner, ELO_WIN);
+                addELO(loser, ELO_LOSS);
+            } else {
+                addELO(loser, ELO_LOSS);
+                winnerElo = addELO(winner, ELO_WIN);
+            }
+            log.line(winner.getUsername() + " wins the battle with final ELO: " + winnerElo);
         } else {
             // draw
-            battleRepository.addToLog(battleId, "The battle ended in a draw.\n");
-            battleRepository.crownWinner(battleId, null);
+            log.line("The battle ended in a draw.");
         }
 
-        // Return the battle result
-        return battleRepository.findBattleById(battleId).orElse(null);
+        log.flush();
+        battleRepository.crownWinner(battleId, winner == null ? null : winner.getId());
+    }
+
+    /**
+     * Records the outcome of a practice battle against a bot: only the log and the winner, if it is the player.
+     *
+     * @param battleId The unique identifier of the battle.
+     * @param player   The player in the battle.
+     * @param winner   The winner, the bot, or null for a draw.
+     * @param log      The log of the battle.
+     */
+    private void finishBotBattle(String battleId, User player, User winner, BattleLog log) {
+        log.line(winner == null ? "The battle ended in a draw." : winner.getUsername() + " wins the battle.");
+        log.line("This was a practice battle against a bot: ELO and cards stay unchanged.");
+        log.flush();
+        battleRepository.crownWinner(battleId, winner == player ? player.getId() : null);
+    }
+
+    private int addELO(User player, int eloToAdd) {
+        return eloRepository.updateELO(player.getId(), eloToAdd).orElseThrow(() ->
+                new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error updating elo of player " + player.getUsername()));
     }
 
     /**
@@ -132,46 +220,42 @@ public class BattleLogic {
      * @param state    A string describing the state of the deck (e.g., "Initial", "Final").
      * @param player   The player whose deck state is being logged.
      * @param deck     A list of cards in the player's deck.
-     * @param battleId The unique identifier of the battle.
+     * @param log      The log of the battle.
      */
-    private void logDeckState(String state, User player, List<Card> deck, String battleId) {
+    private void logDeckState(String state, User player, List<Card> deck, BattleLog log) {
         // Start building a log entry with the state and player's username
-        StringBuilder log = new StringBuilder(state + " deck state for " + player.getUsername() + ": ");
+        StringBuilder entry = log.append().append(state).append(" deck state for ").append(player.getUsername()).append(": ");
 
         // Append the names of all cards in the deck to the log entry
         for (Card card : deck) {
-            log.append(card.getName()).append(", ");
+            entry.append(card.getName()).append(", ");
         }
 
         // Trim the final comma and space, then append a newline character
-        if (log.length() > 0) {
-            log.setLength(log.length() - 2); // Remove trailing comma and space
+        if (!deck.isEmpty()) {
+            entry.setLength(entry.length() - 2); // Remove trailing comma and space
         }
-        log.append("\n");
-
-        // Add the constructed log entry to the battle log in the repository
-        battleRepository.addToLog(battleId, log.toString());
+        entry.append('\n');
     }
 
 
     /**
      * Saves the current state of a player's deck to their stack after a battle.
+     * All cards are written with one statement, whatever the size of the deck.
      *
      * @param player   The player whose deck is being saved.
      * @param deck     The list of cards in the player's deck after the battle.
-     * @param battleId The unique identifier of the battle.
+     * @param log      The log of the battle.
      */
-    private void saveDeckToStack(User player, List<Card> deck, String battleId) {
-        // Iterate over each card in the deck
+    private void saveDeckToStack(User player, List<Card> deck, BattleLog log) {
+        Map<String, Card> cardsById = new LinkedHashMap<>();
         for (Card card : deck) {
-            // Check if the card is already in the player's stack
-            if (!cardRepository.isCardInStack(player.getId(), card.getId())) {
-                // If the card is not in the stack, add it to the stack
-                cardRepository.addCardToStack(player.getId(), card.getId());
+            cardsById.putIfAbsent(card.getId(), card);
+        }
 
-                // Log the addition of the card to the player's stack
-                battleRepository.addToLog(battleId, "Card " + card.getName() + " added to stack for " + player.getUsername() + ".\n");
-            }
+        // Add the cards the player does not own yet and log each new one
+        for (String addedCardId : cardRepository.addCardsToStack(player.getId(), cardsById.keySet())) {
+            log.line("Card " + cardsById.get(addedCardId).getName() + " added to stack for " + player.getUsername() + ".");
         }
     }
 
@@ -184,116 +268,10 @@ public class BattleLogic {
      * @return The winning card, or null if the round ends in a draw.
      */
     public Card determineRoundWinner(Card cardA, Card cardB) {
-        // Check if any special rules apply to these cards
-        if (isSpecialRuleApplicable(cardA, cardB)) {
-            // Determine the winner based on special rules
-            return getSpecialRuleWinner(cardA, cardB);
-        }
-
-        // If either card is a spell, use element type logic to determine the winner
-        if (cardA.getCardType().equals("spell") || cardB.getCardType().equals("spell")) {
-            // Calculate the effective damage for each card
-            double damageA = getEffectiveDamage(cardA, cardB);
-            double damageB = getEffectiveDamage(cardB, cardA);
-
-            // Compare the damages to determine the winner
-            if (damageA > damageB) return cardA;
-            if (damageB > damageA) return cardB;
-            // If damages are equal, the result is a draw
-            return null;
-        }
-
-        // For non-spell cards, directly compare their damage values
-        if (cardA.getDamage() > cardB.getDamage()) return cardA;
-        if (cardB.getDamage() > cardA.getDamage()) return cardB;
-
-        // If none of the above conditions apply, the round is a draw
-        return null;
-    }
-
-
-    /**
-     * Checks if any special rules apply to the given pair of cards.
-     *
-     * @param cardA The first card in the battle round.
-     * @param cardB The second card in the battle round.
-     * @return True if a special rule applies to the pair of cards, false otherwise.
-     */
-    private boolean isSpecialRuleApplicable(Card cardA, Card cardB) {
-        // Check for specific matchups where special rules apply
-        return (cardA.getName().equalsIgnoreCase("Goblin") && cardB.getName().equalsIgnoreCase("Dragon")) ||
-                (cardA.getName().equalsIgnoreCase("Wizzard") && cardB.getName().equalsIgnoreCase("Ork")) ||
-                (cardA.getName().equalsIgnoreCase("Knight") && cardB.getCardType().equalsIgnoreCase("spell") && cardB.getElementType().equalsIgnoreCase("Water")) ||
-                (cardA.getName().equalsIgnoreCase("Kraken") && cardB.getCardType().equalsIgnoreCase("spell")) ||
-                (cardA.getName().equalsIgnoreCase("FireElf") && cardB.getName().equalsIgnoreCase("Dragon"));
-    }
-
-
-    /**
-     * Determines the winner of a battle round based on special rules.
-     *
-     * @param cardA The first card in the battle round.
-     * @param cardB The second card in the battle round.
-     * @return The card that wins according to the special rules, or null if the rules result in a draw.
-     */
-    private Card getSpecialRuleWinner(Card cardA, Card cardB) {
-        // Determine the winner based on the matchup and special rules
-        if (cardA.getName().equalsIgnoreCase("Goblin") && cardB.getName().equalsIgnoreCase("Dragon")) return cardB;
-        if (cardA.getName().equalsIgnoreCase("Wizzard") && cardB.getName().equalsIgnoreCase("Ork")) return cardA;
-        if (cardA.getName().equalsIgnoreCase("Knight") && cardB.getCardType().equalsIgnoreCase("spell") && cardB.getElementType().equalsIgnoreCase("Water"))
-            return cardB;
-        if (cardA.getName().equalsIgnoreCase("Kraken") && cardB.getCardType().equalsIgnoreCase("spell")) return cardA;
-        if (cardA.getName().equalsIgnoreCase("FireElf") && cardB.getName().equalsIgnoreCase("Dragon")) return cardA;
-
-        // If no special rule dictates a winner, the result is a draw
-        return null;
-    }
-
-
-    /**
-     * Calculates the effective damage of an attacking card against a defending card,
-     * taking into account the elemental strengths and weaknesses.
-     *
-     * @param attacker The attacking card.
-     * @param defender The defending card.
-     * @return The effective damage value after considering elemental effects.
-     */
-    private double getEffectiveDamage(Card attacker, Card defender) {
-        // Start with the base damage of the attacking card
-        double damage = attacker.getDamage();
-
-        // If the attacker is a spell card, adjust damage based on elemental types
-        if (attacker.getCardType().equals("spell")) {
-            switch (attacker.getElementType().toLowerCase()) {
-                case "water":
-                    // Water is effective against Fire but weak against Normal
-                    if (defender.getElementType().equalsIgnoreCase("fire")) {
-                        damage *= 2; // Double damage against Fire
-                    } else if (defender.getElementType().equalsIgnoreCase("normal")) {
-                        damage /= 2; // Half damage against Normal
-                    }
-                    break;
-                case "fire":
-                    // Fire is effective against Normal but weak against Water
-                    if (defender.getElementType().equalsIgnoreCase("normal")) {
-                        damage *= 2; // Double damage against Normal
-                    } else if (defender.getElementType().equalsIgnoreCase("water")) {
-                        damage /= 2; // Half damage against Water
-                    }
-                    break;
-                case "normal":
-                    // Normal is effective against Water but weak against Fire
-                    if (defender.getElementType().equalsIgnoreCase("water")) {
-                        damage *= 2; // Double damage against Water
-                    } else if (defender.getElementType().equalsIgnoreCase("fire")) {
-                        damage /= 2; // Half damage against Fire
-                    }
-                    break;
-            }
-        }
-        // Return the adjusted damage value
-        return damage;
+        return switch (BattleEngine.roundWinner(BattleEngine.profileOf(cardA), cardA.getDamage(), BattleEngine.profileOf(cardB), cardB.getDamage())) {
+            case BattleEngine.A_WINS -> cardA;
+            case BattleEngine.B_WINS -> cardB;
+            default -> null;
+        };
     }
-
-
-}
\ No newline at end of file
+}
@@ -2,120 +2,228 @@ package at.technikum.apps.mtcg.service;
 
 import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
 import at.technikum.apps.mtcg.entity.BattleResult;
+import at.technikum.apps.mtcg.entity.Card;
 import at.technikum.apps.mtcg.entity.User;
-import at.technikum.apps.mtcg.repository.battle.BattleRepository;
+import at.technikum.server.BlockingWait;
 import at.technikum.server.http.HttpStatus;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class BattleService {
-    private final BattleRepository battleRepository;
+    private static final long BATTLE_TIMEOUT_MILLIS = 60000;
+
+    // Finished tickets can be polled for this long
+    private static final long TICKET_RETENTION_NANOS = TimeUnit.MINUTES.toNanos(5);
+
     private final BattleLogic battleLogic;
-    private final ConcurrentHashMap<String, BattleResult> battlesWaiting; // kümmert sich um mutexes selbst
+    private final MatchmakingQueue matchmakingQueue;
     private final DeckService deckService;
+    private final BotOpponent botOpponent;
+    // Waits on other players run through it, so the server does not count them as busy requests
+    private final BlockingWait blockingWait;
+
+    // Asynchronous battles wait for their opponent on virtual threads, which cost no platform thread while parked
+    private final ExecutorService ticketExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, BattleTicket> tickets = new ConcurrentHashMap<>();
+    private final Map<String, BattleTicket> pendingTicketsByUser = new ConcurrentHashMap<>();
 
-    public BattleService(BattleRepository battleRepository, BattleLogic battleLogic, ConcurrentHashMap<String, BattleResult> battlesWaiting, DeckService deckService) {
-        this.battleRepository = battleRepository;
+    public BattleService(BattleLogic battleLogic, MatchmakingQueue matchmakingQueue, DeckService deckService, BotOpponent botOpponent,
+                         BlockingWait blockingWait) {
         this.battleLogic = battleLogic;
-        this.battlesWaiting = battlesWaiting;
+        this.matchmakingQueue = matchmakingQueue;
         this.deckService = deckService;
+        this.botOpponent = botOpponent;
+        this.blockingWait = blockingWait;
     }
 
     /**
      * Initiates a battle for a player, either by joining an open battle or creating a new one.
      *
-     * @param player The player initiating the battle.
+     * @param player The player initiating the battle, with the deck loaded when the player entered the queue.
      * @return The result of the battle, which could be waiting, in-progress, or a no-opponent scenario.
+     * @throws HttpStatusException If too many players are already waiting for an opponent.
      */
-    public BattleResult start(User player) {
+    BattleResult start(Contender player) {
         // Search for an open battle that the player can join
-        Optional<BattleResult> openBattle = findOpenBattle(player);
+        Optional<WaitingBattle> openBattle = matchmakingQueue.claim(player);
 
         // If there's an open battle, join it
         if (openBattle.isPresent()) {
-            BattleResult battle = openBattle.get();
-            battle.setPlayerB(player); // Set the current player as Player B
-            battlesWaiting.put(battle.getId(), battle); // Update the battle's status in the waiting pool
-            // Wait for the battle to complete and return the result
-            return waitForBattleCompletion(battle.getId());
+            // Wait for the host to run the battle and hand over the result.
+            // The host needs a permit for the battle itself, so the joiner must not hold one while waiting
+            return blockingWait.await(() -> waitForBattleCompletion(openBattle.get()));
         } else {
             // If no open battle is available, create a new battle
-            String battleId = UUID.randomUUID().toString();
-            BattleResult newBattle = new BattleResult(battleId, player, "waiting");
-            battlesWaiting.put(battleId, newBattle); // Add the new battle to the waiting pool
-
-            // Wait for a fixed time for another player to join
-            long startTime = System.currentTimeMillis();
-            while (System.currentTimeMillis() - startTime < 20000) { // 20 seconds timeout
-                BattleResult updatedBattle = battlesWaiting.get(battleId);
-                // If another player joins, start the battle
-                if (updatedBattle != null && updatedBattle.getPlayerB() != null) {
-                    return battleLogic.performBattle(battleId, player, updatedBattle.getPlayerB());
+            WaitingBattle newBattle = matchmakingQueue.open(player);
+
+            // The bot is drawn up front: without one (e.g. an empty card catalog) the player waits the full match timeout
+            Contender bot = botOpponent.isEnabled() ? botOpponent.opponentFor(player) : null;
+
+            // Park until another player joins or the match timeout expires, or only briefly if a bot can step in.
+            // The wait does not count as an in-flight request, so the joiners can still get through
+            Contender opponent = blockingWait.await(() -> bot != null
+                    ? matchmakingQueue.awaitOpponent(newBattle, botOpponent.getWaitMillis())
+                    : matchmakingQueue.awaitOpponent(newBattle));
+            if (opponent != null) {
+                BattleResult result;
+                try {
+                    // Both decks came with the players, the battle starts without reading them again
+                    result = battleLogic.performBattle(newBattle.getBattleId(), player.getUser(), player.getDeck(),
+                            opponent.getUser(), opponent.getDeck());
+                } catch (RuntimeException e) {
+                    // Release the opponent with the same error
+                    newBattle.getResult().completeExceptionally(e);
+                    throw e;
                 }
+                newBattle.getResult().complete(result);
+                return result;
             }
 
-            // If no player joins within the timeout, remove the battle from waiting and return a no-opponent result
-            battlesWaiting.remove(battleId);
-            return new BattleResult(battleId, player, "no_opponent");
+            // If no player joins in time, play against a bot of similar strength
+            if (bot != null) {
+                return battleLogic.performBotBattle(newBattle.getBattleId(), player.getUser(), player.getDeck(),
+                        bot.getUser(), bot.getDeck());
+            }
+
+            // If no player joins within the timeout, return a no-opponent result
+            return new BattleResult(newBattle.getBattleId(), player.getUser(), "no_opponent");
         }
     }
 
 
     /**
-     * Searches for an open battle that the player can join.
+     * Waits for the host of a battle to complete it and returns the result.
+     * The host publishes the result directly, so nothing is read from the database while waiting.
      *
-     * @param player The player looking to join a battle.
-     * @return An Optional containing an open BattleResult if one is found, or an empty Optional if not.
+     * @param battle The battle claimed by the player.
+     * @return The completed BattleResult.
+     * @throws HttpStatusException If the battle failed on the host's side or does not complete within the timeout.
      */
-    private Optional<BattleResult> findOpenBattle(User player) {
-        // Iterate over the current battles waiting for an opponent
-        for (BattleResult battle : battlesWaiting.values()) {
-            // Check if the battle is open and the player is not already part of it
-            if (battle.getPlayerB() == null && "waiting".equals(battle.getStatus()) && !battle.getPlayerA().equals(player)) {
-                return Optional.of(battle);
+    private BattleResult waitForBattleCompletion(WaitingBattle battle) {
+        try {
+            return battle.getResult().get(BATTLE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Battle " + battle.getBattleId() + " did not finish in time - Try again later");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for battle " + battle.getBattleId());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof HttpStatusException httpStatusException) {
+                throw httpStatusException;
             }
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error during battle: " + e.getCause().getMessage());
         }
-        return Optional.empty();
     }
 
 
     /**
-     * Waits for a battle to complete and returns the result.
+     * Facilitates a battle for the player.
      *
-     * @param battleId The ID of the battle to wait for.
-     * @return The completed BattleResult, or null if the battle does not complete within the timeout.
+     * @param player The player participating in the battle.
+     * @return The result of the battle.
+     * @throws HttpStatusException If the player has not set up a deck or if no opponent is found for the battle.
      */
-    private BattleResult waitForBattleCompletion(String battleId) {
-        long startTime = System.currentTimeMillis();
-        while (System.currentTimeMillis() - startTime < 60000) { // 1-minute timeout
-            Optional<BattleResult> updatedBattle = battleRepository.findBattleById(battleId);
-            // Check if the battle has completed
-            if (updatedBattle.isPresent() && "completed".equals(updatedBattle.get().getStatus())) {
-                return updatedBattle.get();
-            }
-        }
-        // Return null if the battle does not complete within the timeout
-        return null;
+    public BattleResult battle(User player) {
+        // Start the battle process, the deck travels with the player through the queue
+        BattleResult battleResult = start(contenderOf(player));
+        return requireOpponent(player, battleResult);
     }
 
 
     /**
-     * Facilitates a battle for the player.
+     * Queues a player for a battle without waiting for it: the battle runs in the background
+     * and its result is fetched with {@link #awaitTicket(BattleTicket, long)}.
+     * A player who already has a battle pending gets the same ticket again.
      *
      * @param player The player participating in the battle.
-     * @return The result of the battle.
-     * @throws HttpStatusException If the player has not set up a deck or if no opponent is found for the battle.
+     * @return The ticket of the battle.
+     * @throws HttpStatusException If the player has not set up a deck.
      */
-    public BattleResult battle(User player) {
-        // Check if the player has a deck set up
-        if (!deckService.hasDeckSet(player.getId())) {
-            throw new HttpStatusException(HttpStatus.FORBIDDEN, "Player " + player.getUsername() + " has no deck set up");
+    public BattleTicket submit(User player) {
+        // Checked right away, so a missing deck is reported on the request itself
+        Contender contender = contenderOf(player);
+        purgeTickets();
+
+        BattleTicket ticket = pendingTicketsByUser.compute(player.getId(), (userId, pending) ->
+                pending != null && !pending.isDone() ? pending : new BattleTicket(UUID.randomUUID().toString(), userId));
+        if (tickets.putIfAbsent(ticket.getId(), ticket) == null) {
+            ticket.getResult().whenComplete((battleResult, error) -> pendingTicketsByUser.remove(player.getId(), ticket));
+            ticketExecutor.execute(() -> {
+                try {
+                    ticket.complete(requireOpponent(player, start(contender)));
+                } catch (RuntimeException e) {
+                    ticket.fail(e);
+                }
+            });
+        }
+        return ticket;
+    }
+
+
+    /**
+     * Finds a ticket of a player.
+     *
+     * @param ticketId  The ID of the ticket.
+     * @param requester The player asking for it.
+     * @return An Optional containing the ticket, or an empty Optional if it does not exist, has expired or belongs to someone else.
+     */
+    public Optional<BattleTicket> findTicket(String ticketId, User requester) {
+        BattleTicket ticket = tickets.get(ticketId);
+        if (ticket == null || !ticket.getUserId().equals(requester.getId())) {
+            return Optional.empty();
         }
+        return Optional.of(ticket);
+    }
+
 
-        // Start the battle process
-        BattleResult battleResult = start(player);
+    /**
+     * Waits up to the given time for the battle of a ticket to finish.
+     *
+     * @param ticket     The ticket.
+     * @param waitMillis How long to wait; 0 only checks.
+     * @return The result of the battle, or null if it is still running.
+     * @throws HttpStatusException The error of the battle, e.g. if no opponent was found.
+     */
+    public BattleResult awaitTicket(BattleTicket ticket, long waitMillis) {
+        // Clients long poll for many seconds; holding a request slot meanwhile would starve all other requests
+        return blockingWait.await(() -> pollTicket(ticket, waitMillis));
+    }
+
+    private BattleResult pollTicket(BattleTicket ticket, long waitMillis) {
+        try {
+            return ticket.getResult().get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof HttpStatusException httpStatusException) {
+                throw httpStatusException;
+            }
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error during battle: " + e.getCause().getMessage());
+        }
+    }
+
+
+    /**
+     * Loads the player's deck once and checks that it is set up.
+     */
+    private Contender contenderOf(User player) {
+        Card[] deck = deckService.getBattleDeck(player.getId()).orElseThrow(() ->
+                new HttpStatusException(HttpStatus.FORBIDDEN, "Player " + player.getUsername() + " has no deck set up"));
+        return new Contender(player, new BattleEngine.Deck(deck));
+    }
+
+    private BattleResult requireOpponent(User player, BattleResult battleResult) {
         // Handle the scenario where no opponent is found
         if ("no_opponent".equals(battleResult.getStatus())) {
             throw new HttpStatusException(HttpStatus.OK,
@@ -123,5 +231,14 @@ public class BattleService {
         }
         return battleResult;
     }
+
+    // Drops finished tickets nobody fetched within the retention time
+    private void purgeTickets() {
+        long now = System.nanoTime();
+        tickets.values().removeIf(ticket -> {
+            long completed = ticket.getCompletedNanos();
+            return completed != 0 && now - completed > TICKET_RETENTION_NANOS;
+        });
+    }
 }
 
@@ -0,0 +1,207 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.Card;
+import at.technikum.apps.mtcg.repository.card.CardRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Runs many battles offline with the rules of {@link BattleEngine}, e.g. to tune card balance.
+ * Battles run in parallel on a fork-join pool and never touch the database. Every battle gets its own random
+ * generator, seeded from the run's seed and the battle's number, so a run gives the same result for the same seed
+ * no matter how many threads play it.
+ */
+public class BattleSimulator {
+
+    // Battles a task plays itself instead of splitting further
+    private static final int BATTLES_PER_TASK = 512;
+
+    private final CardRepository cardRepository;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param cardRepository The repository the decks of a tournament are read from.
+     * @param parallelism    How many threads simulate battles.
+     */
+    public BattleSimulator(CardRepository cardRepository, int parallelism) {
+        this.cardRepository = cardRepository;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Creates the simulator from system properties, falling back to one thread per core.
+     *
+     * @param cardRepository The repository the decks of a tournament are read from.
+     * @return The simulator.
+     */
+    public static BattleSimulator fromSystemProperties(CardRepository cardRepository) {
+        return new BattleSimulator(cardRepository,
+                Integer.getInteger("mtcg.simulation.parallelism", Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * Plays a round-robin tournament between the current decks of all users that have one.
+     *
+     * @param battlesPerPair How many battles every two users play.
+     * @param seed           Seed of the run.
+     * @return Wins, draws and losses by user ID.
+     */
+    public SimulationResult tournament(int battlesPerPair, long seed) {
+        return roundRobin(cardRepository.getAllDeckCards(), battlesPerPair, seed);
+    }
+
+    /**
+     * Plays a series of battles between two decks.
+     *
+     * @param nameA   Name of the first deck in the result.
+     * @param deckA   The first deck.
+     * @param nameB   Name of the second deck in the result.
+     * @param deckB   The second deck.
+     * @param battles How many battles to play.
+     * @param seed    Seed of the run.
+     * @return Wins, draws and losses of both decks.
+     */
+    public SimulationResult headToHead(String nameA, Card[] deckA, String nameB, Card[] deckB, int battles, long seed) {
+        return roundRobin(Map.of(nameA, deckA, nameB, deckB), battles, seed);
+    }
+
+    /**
+     * Plays a round-robin tournament: every deck plays every other deck the given number of times,
+     * half of the battles as player A and half as player B.
+     *
+     * @param decks          The decks by name.
+     * @param battlesPerPair How many battles every two decks play.
+     * @param seed           Seed of the run.
+     * @return Wins, draws and losses by deck name.
+     */
+    public SimulationResult roundRobin(Map<String, Card[]> decks, int battlesPerPair, long seed) {
+        if (battlesPerPair < 1) {
+            throw new IllegalArgumentException("Invalid number of battles per pair: " + battlesPerPair);
+        }
+        List<String> participants = new ArrayList<>(decks.keySet());
+        participants.sort(null);
+        int count = participants.size();
+
+        // Cards are mapped to their profiles once; every battle plays on a copy
+        BattleEngine.Deck[] prepared = new BattleEngine.Deck[count];
+        for (int i = 0; i < count; i++) {
+            prepared[i] = new BattleEngine.Deck(decks.get(participants.get(i)));
+        }
+
+        // Counters per pair: first wins, second wins, draws
+        int pairs = count * (count - 1) / 2;
+        int[] first = new int[pairs];
+        int[] second = new int[pairs];
+        for (int i = 0, pair = 0; i < count; i++) {
+            for (int j = i + 1; j < count; j++, pair++) {
+                first[pair] = i;
+                second[pair] = j;
+            }
+        }
+        AtomicLongArray outcomes = new AtomicLongArray(pairs * 3);
+
+        long battles = (long) pairs * battlesPerPair;
+        long started = System.nanoTime();
+        pool.invoke(new Battles(prepared, first, second, battlesPerPair, seed, outcomes, 0, battles));
+        long elapsed = System.nanoTime() - started;
+
+        long[][] wins = new long[count][count];
+        long[][] draws = new long[count][count];
+        for (int pair = 0; pair < pairs; pair++) {
+            wins[first[pair]][second[pair]] = outcomes.get(pair * 3);
+            wins[second[pair]][first[pair]] = outcomes.get(pair * 3 + 1);
+            draws[first[pair]][second[pair]] = outcomes.get(pair * 3 + 2);
+            draws[second[pair]][first[pair]] = outcomes.get(pair * 3 + 2);
+        }
+        return new SimulationResult(participants, wins, draws, battles, elapsed);
+    }
+
+    /**
+     * Plays the battles numbered [from, to), splitting the range while it is large.
+     * Battle k is run number k % battlesPerPair of pair k / battlesPerPair.
+     * Serializable only because RecursiveAction is; tasks are never serialized.
+     */
+    @SuppressWarnings("serial")
+    private static class Battles extends RecursiveAction {
+
+        private final BattleEngine.Deck[] decks;
+        private final int[] first;
+        private final int[] second;
+        private final int battlesPerPair;
+        private final long seed;
+        private final AtomicLongArray outcomes;
+        private final long from;
+        private final long to;
+
+        Battles(BattleEngine.Deck[] decks, int[] first, int[] second, int battlesPerPair, long seed,
+                AtomicLongArray outcomes, long from, long to) {
+            this.decks = decks;
+            this.first = first;
+            this.second = second;
+            this.battlesPerPair = battlesPerPair;
+            this.seed = seed;
+            this.outcomes = outcomes;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > BATTLES_PER_TASK) {
+                long middle = (from + to) >>> 1;
+                invokeAll(new Battles(decks, first, second, battlesPerPair, seed, outcomes, from, middle),
+                        new Battles(decks, first, second, battlesPerPair, seed, outcomes, middle, to));
+                return;
+            }
+
+            // Count locally and publish once per pair, so threads rarely write the same counters
+            int pair = (int) (from / battlesPerPair);
+            long firstWins = 0;
+            long secondWins = 0;
+            long draws = 0;
+            for (long battle = from; battle < to; battle++) {
+                int battlePair = (int) (battle / battlesPerPair);
+                if (battlePair != pair) {
+                    publish(pair, firstWins, secondWins, draws);
+                    pair = battlePair;
+                    firstWins = secondWins = draws = 0;
+                }
+
+                // Sides alternate, since ties in card count go to player B
+                boolean firstIsA = (battle % battlesPerPair) % 2 == 0;
+                BattleEngine.Deck deckA = decks[firstIsA ? first[pair] : second[pair]].copy();
+                BattleEngine.Deck deckB = decks[firstIsA ? second[pair] : first[pair]].copy();
+
+                int outcome = BattleEngine.fight(deckA, deckB, new SplittableRandom(seedOf(battle)), null);
+                if (outcome == BattleEngine.DRAW) {
+                    draws++;
+                } else if ((outcome == BattleEngine.A_WINS) == firstIsA) {
+                    firstWins++;
+                } else {
+                    secondWins++;
+                }
+            }
+            publish(pair, firstWins, secondWins, draws);
+        }
+
+        private void publish(int pair, long firstWins, long secondWins, long draws) {
+            outcomes.addAndGet(pair * 3, firstWins);
+            outcomes.addAndGet(pair * 3 + 1, secondWins);
+            outcomes.addAndGet(pair * 3 + 2, draws);
+        }
+
+        // Spreads the battle number over all bits, so neighbouring battles get unrelated random sequences
+        private long seedOf(long battle) {
+            long z = seed + battle * 0x9E3779B97F4A7C15L;
+            z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+            z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+            return z ^ (z >>> 31);
+        }
+    }
+}
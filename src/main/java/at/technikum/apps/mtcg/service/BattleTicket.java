@@ -0,0 +1,70 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.BattleResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A battle requested asynchronously: the player was queued and gets the result by polling the ticket.
+ * The result completes exceptionally with the error the synchronous battle would have answered with.
+ */
+public class BattleTicket {
+
+    private final String id;
+    private final String userId;
+    private final CompletableFuture<BattleResult> result = new CompletableFuture<>();
+    // When the battle finished; 0 while it is running
+    private volatile long completedNanos;
+
+    BattleTicket(String id, String userId) {
+        this.id = id;
+        this.userId = userId;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    // The player the ticket was issued to; nobody else can read it
+    public String getUserId() {
+        return userId;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    CompletableFuture<BattleResult> getResult() {
+        return result;
+    }
+
+    /**
+     * Hands over the result of the battle. The completion time is recorded first, so a done ticket always has one.
+     *
+     * @param battleResult The result of the battle.
+     */
+    void complete(BattleResult battleResult) {
+        markCompleted();
+        result.complete(battleResult);
+    }
+
+    /**
+     * Hands over the error of the battle, recording the completion time first.
+     *
+     * @param error The error the synchronous battle would have answered with.
+     */
+    void fail(Throwable error) {
+        markCompleted();
+        result.completeExceptionally(error);
+    }
+
+    long getCompletedNanos() {
+        return completedNanos;
+    }
+
+    private void markCompleted() {
+        long now = System.nanoTime();
+        // 0 means running, so a clock reading of exactly 0 is moved by a nanosecond
+        completedNanos = now == 0 ? 1 : now;
+    }
+}
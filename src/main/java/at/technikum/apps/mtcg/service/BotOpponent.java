@@ -0,0 +1,115 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.Card;
+import at.technikum.apps.mtcg.entity.User;
+import at.technikum.apps.mtcg.repository.card.CardRepository;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stands in for a missing opponent, so a lone player does not hold a request open until the match timeout.
+ * The bot has the player's ELO and a deck drawn from the card catalog: for every card of the player's deck it picks
+ * one of the catalog cards closest in damage, so both decks are about equally strong.
+ * Battles against a bot are practice: they change neither ELO nor card ownership.
+ */
+public class BotOpponent {
+
+    private static final String BOT_NAME = "ArenaBot";
+
+    // A bot card is picked at random from this many catalog cards on either side of the target damage
+    private static final int PICK_RANGE = 2;
+
+    // The catalog only grows when packages are created, reading it once a minute is enough
+    private static final long CATALOG_MAX_AGE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final CardRepository cardRepository;
+    private final long waitMillis;
+
+    private volatile Card[] catalog;
+    private volatile long catalogLoadedNanos;
+
+    /**
+     * @param cardRepository The repository the card catalog is read from.
+     * @param waitMillis     How long a player waits for a real opponent before playing a bot; 0 disables bots.
+     */
+    public BotOpponent(CardRepository cardRepository, long waitMillis) {
+        this.cardRepository = cardRepository;
+        this.waitMillis = waitMillis;
+    }
+
+    /**
+     * Creates the bot opponent from system properties; bots are disabled unless a wait time is set.
+     *
+     * @param cardRepository The repository the card catalog is read from.
+     * @return The bot opponent.
+     */
+    public static BotOpponent fromSystemProperties(CardRepository cardRepository) {
+        return new BotOpponent(cardRepository, Long.getLong("mtcg.battle.botAfterMillis", 0));
+    }
+
+    public boolean isEnabled() {
+        return waitMillis > 0;
+    }
+
+    // How long a player waits for a real opponent
+    public long getWaitMillis() {
+        return waitMillis;
+    }
+
+    /**
+     * Creates a bot for a player.
+     *
+     * @param player The player that found no opponent.
+     * @return The bot with its deck, or null if the card catalog is empty.
+     */
+    Contender opponentFor(Contender player) {
+        Card[] cards = catalog();
+        List<Card> playerCards = player.getDeck().getCards();
+        if (cards.length == 0 || playerCards.isEmpty()) {
+            return null;
+        }
+
+        Card[] deck = new Card[playerCards.size()];
+        for (int i = 0; i < deck.length; i++) {
+            int closest = closestByDamage(cards, playerCards.get(i).getDamage());
+            int from = Math.max(0, closest - PICK_RANGE);
+            int to = Math.min(cards.length - 1, closest + PICK_RANGE);
+            deck[i] = cards[ThreadLocalRandom.current().nextInt(from, to + 1)];
+        }
+
+        // The bot is never stored as a user, its ID only has to differ from the player's
+        User bot = new User("bot-" + player.getUser().getId(), BOT_NAME, null, 0, player.getUser().getEloRating(), false);
+        return new Contender(bot, new BattleEngine.Deck(deck));
+    }
+
+    private Card[] catalog() {
+        Card[] cards = catalog;
+        if (cards == null || System.nanoTime() - catalogLoadedNanos > CATALOG_MAX_AGE_NANOS) {
+            // Concurrent reloads are harmless, the last one wins
+            cards = cardRepository.getAllCards().clone();
+            Arrays.sort(cards, Comparator.comparingInt(Card::getDamage));
+            catalog = cards;
+            catalogLoadedNanos = System.nanoTime();
+        }
+        return cards;
+    }
+
+    // Index of the first card with at least the given damage, or the last card
+    private static int closestByDamage(Card[] cards, int damage) {
+        int low = 0;
+        int high = cards.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cards[middle].getDamage() < damage) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
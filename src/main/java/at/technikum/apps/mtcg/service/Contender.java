@@ -0,0 +1,26 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.User;
+
+/**
+ * A player in the {@link MatchmakingQueue}, with the deck loaded and validated when the player entered it.
+ * A match starts fighting with these decks right away, without reading them again.
+ */
+class Contender {
+
+    private final User user;
+    private final BattleEngine.Deck deck;
+
+    Contender(User user, BattleEngine.Deck deck) {
+        this.user = user;
+        this.deck = deck;
+    }
+
+    User getUser() {
+        return user;
+    }
+
+    BattleEngine.Deck getDeck() {
+        return deck;
+    }
+}
@@ -4,13 +4,18 @@ import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
 import at.technikum.apps.mtcg.entity.Card;
 import at.technikum.apps.mtcg.entity.User;
 import at.technikum.apps.mtcg.repository.card.CardRepository;
+import at.technikum.apps.mtcg.repository.transaction.UnitOfWork;
 import at.technikum.server.http.HttpStatus;
 
+import java.util.Optional;
+
 public class DeckService {
     private final CardRepository cardRepository;
+    private final UnitOfWork unitOfWork;
 
-    public DeckService(CardRepository cardRepository) {
+    public DeckService(CardRepository cardRepository, UnitOfWork unitOfWork) {
         this.cardRepository = cardRepository;
+        this.unitOfWork = unitOfWork;
     }
 
     /**
@@ -70,11 +75,22 @@ public class DeckService {
      * @return True if the user's deck has exactly 4 cards, false otherwise.
      */
     public boolean hasDeckSet(String userId) {
+        return getBattleDeck(userId).isPresent();
+    }
+
+
+    /**
+     * Retrieves a user's deck if it is complete, so it can be used for a battle.
+     *
+     * @param userId The ID of the user.
+     * @return An Optional containing the cards of the deck, or an empty Optional if the deck does not have exactly 4 cards.
+     */
+    public Optional<Card[]> getBattleDeck(String userId) {
         // Retrieve the cards in the user's deck
         Card[] deckCards = cardRepository.getUserDeckCards(userId);
 
         // Check if the deck is set with exactly 4 cards
-        return deckCards != null && deckCards.length == 4;
+        return deckCards != null && deckCards.length == 4 ? Optional.of(deckCards) : Optional.empty();
     }
 
 
@@ -92,24 +108,27 @@ public class DeckService {
             throw new HttpStatusException(HttpStatus.BAD_REQUEST, "Exactly four card IDs are required");
         }
 
-        // Check if each card belongs to the user
-        for (String cardId : cardIds) {
-            if (!cardRepository.isCardInStack(user.getId(), cardId)) {
-                throw new HttpStatusException(HttpStatus.FORBIDDEN, "One or more cards do not belong to the user");
+        // Check ownership, reset the deck and add the new cards in one transaction, so a failure keeps the old deck
+        unitOfWork.run(() -> {
+            // Check if each card belongs to the user
+            for (String cardId : cardIds) {
+                if (!cardRepository.isCardInStack(user.getId(), cardId)) {
+                    throw new HttpStatusException(HttpStatus.FORBIDDEN, "One or more cards do not belong to the user");
+                }
             }
-        }
 
-        // Reset the user's deck and add the new cards
-        boolean isDeckReset = resetDeck(user.getId());
-        boolean areCardsAdded = true;
-        for (String cardId : cardIds) {
-            areCardsAdded &= addCardToDeck(user.getId(), cardId);
-        }
+            // Reset the user's deck and add the new cards
+            boolean isDeckReset = resetDeck(user.getId());
+            boolean areCardsAdded = true;
+            for (String cardId : cardIds) {
+                areCardsAdded &= addCardToDeck(user.getId(), cardId);
+            }
 
-        // Validate if the deck was reset and cards were added successfully
-        if (!isDeckReset || !areCardsAdded) {
-            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while adding to Deck - Try again!");
-        }
+            // Validate if the deck was reset and cards were added successfully
+            if (!isDeckReset || !areCardsAdded) {
+                throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while adding to Deck - Try again!");
+            }
+        });
 
         return true;
     }
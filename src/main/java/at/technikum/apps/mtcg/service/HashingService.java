@@ -1,10 +1,119 @@
 package at.technikum.apps.mtcg.service;
 
+import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
+import at.technikum.server.http.HttpStatus;
 import org.mindrot.jbcrypt.BCrypt;
 
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashes and checks passwords with BCrypt.
+ * <p>
+ * BCrypt is slow on purpose, so it runs on its own bounded pool instead of the request threads: a burst of logins or
+ * registrations uses at most {@code threads} cores and leaves the rest to battles and trades. When the pool and its
+ * queue are full, further requests get a 503 at once instead of piling up.
+ * <p>
+ * The cost factor can be calibrated at startup to take about a target time on the current hardware. Hashes made with a
+ * lower cost are reported by {@link #needsRehash(String)}, so they can be upgraded when the user logs in.
+ */
 public class HashingService {
 
+    // Cost of BCrypt.gensalt() without arguments; never hash with less
+    public static final int MIN_COST = 10;
+    public static final int MAX_COST = 16;
+
+    private static final int CALIBRATION_WARMUPS = 2;
+    private static final int CALIBRATION_SAMPLES = 5;
+
+    private final int cost;
+    private final int threads;
+    private final ThreadPoolExecutor executor;
+
+    // Background rehashes run one at a time, so they never take more than one hashing thread from logins
+    private final Semaphore rehashPermit = new Semaphore(1);
+
     public HashingService() {
+        this(MIN_COST, Math.max(1, Runtime.getRuntime().availableProcessors() / 2), 64);
+    }
+
+    /**
+     * @param cost          BCrypt cost factor (log2 of the rounds) for new hashes.
+     * @param threads       Threads hashing at the same time.
+     * @param queueCapacity Hashing requests that may wait for a thread; further ones get a 503.
+     */
+    public HashingService(int cost, int threads, int queueCapacity) {
+        if (cost < 4 || cost > 31) {
+            throw new IllegalArgumentException("Invalid BCrypt cost: " + cost);
+        }
+        this.cost = cost;
+        this.threads = threads;
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(
+                threads, threads,
+                60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "mtcg-bcrypt-" + counter.getAndIncrement());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /**
+     * Creates the service from system properties, falling back to defaults for missing values.
+     * Without a fixed {@code mtcg.hashing.cost} the cost is calibrated to {@code mtcg.hashing.targetMillis}.
+     *
+     * @return The hashing service.
+     */
+    public static HashingService fromSystemProperties() {
+        Integer fixedCost = Integer.getInteger("mtcg.hashing.cost");
+        int cost = fixedCost != null ? fixedCost : calibrateCost(Long.getLong("mtcg.hashing.targetMillis", 250));
+        System.out.println("BCrypt cost factor: " + cost);
+        return new HashingService(
+                cost,
+                Integer.getInteger("mtcg.hashing.threads", Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                Integer.getInteger("mtcg.hashing.queueCapacity", 64)
+        );
+    }
+
+    /**
+     * Finds the highest cost whose hash takes at most the target time on this machine, between {@link #MIN_COST}
+     * and {@link #MAX_COST}. Hashes at a low cost are measured a few times after a warm-up and the median is used, so
+     * a single slow run (e.g. a garbage collection) does not skew the result; every step above doubles the time.
+     *
+     * @param targetMillis How long one hash may take.
+     * @return The cost factor.
+     */
+    public static int calibrateCost(long targetMillis) {
+        int probeCost = 8;
+        String salt = BCrypt.gensalt(probeCost);
+        // The first runs load and warm up the code
+        for (int i = 0; i < CALIBRATION_WARMUPS; i++) {
+            BCrypt.hashpw("calibration", salt);
+        }
+        long[] samples = new long[CALIBRATION_SAMPLES];
+        for (int i = 0; i < samples.length; i++) {
+            long started = System.nanoTime();
+            BCrypt.hashpw("calibration", salt);
+            samples[i] = System.nanoTime() - started;
+        }
+        Arrays.sort(samples);
+        double probeMillis = Math.max(0.001, samples[samples.length / 2] / 1_000_000.0);
+
+        int cost = probeCost + (int) Math.floor(Math.log(targetMillis / probeMillis) / Math.log(2));
+        return Math.max(MIN_COST, Math.min(MAX_COST, cost));
     }
 
     /**
@@ -12,17 +121,46 @@ public class HashingService {
      *
      * @param password The plaintext password to be hashed.
      * @return The hashed password.
+     * @throws HttpStatusException If too many passwords are being hashed already.
      */
     public String encrypt(String password) {
-        // Generate a salt using BCrypt's gensalt method.
-        // (source: https://education.launchcode.org/java-web-development/chapters/auth/hashing-passwords.html#:~:text=You%20should%20use%20bcrypt.,as%20long%20as%20you%20like.)
-
-        // This ensures each hashed password is unique, even if two users have the same password.
-        String salt = BCrypt.gensalt();
+        return await(submit(() -> hash(password)));
+    }
 
-        // Hash the plaintext password using the generated salt and return the hashed password.
-        // BCrypt internally applies the salt and produces a hashed output.
-        return BCrypt.hashpw(password, salt);
+    /**
+     * Hashes a password in the background to upgrade an old hash, without waiting for the result.
+     * Upgrades only use spare capacity: one runs at a time, and only while no login or registration waits for a
+     * hashing thread. Otherwise the upgrade is skipped and can be retried on a later login.
+     *
+     * @param password The plaintext password to be hashed.
+     * @return The hashed password, completed exceptionally with a 503 if the upgrade was skipped.
+     */
+    public CompletableFuture<String> rehashAsync(String password) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        if (!rehashPermit.tryAcquire()) {
+            result.completeExceptionally(busy());
+            return result;
+        }
+        if (executor.getActiveCount() >= threads || !executor.getQueue().isEmpty()) {
+            rehashPermit.release();
+            result.completeExceptionally(busy());
+            return result;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(hash(password));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    rehashPermit.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rehashPermit.release();
+            result.completeExceptionally(busy());
+        }
+        return result;
     }
 
 
@@ -32,11 +170,87 @@ public class HashingService {
      * @param plaintextPassword The plaintext password to verify.
      * @param hashedPassword    The hashed password against which the plaintext password is compared.
      * @return True if the plaintext password matches the hashed password, false otherwise.
+     * @throws HttpStatusException If too many passwords are being checked already.
      */
     public boolean compareHash(String plaintextPassword, String hashedPassword) {
         // Use BCrypt's checkpw method to compare the plaintext password with the hashed password.
         // The method returns true if the plaintext password, once hashed, matches the provided hashed password.
-        return BCrypt.checkpw(plaintextPassword, hashedPassword);
+        return await(submit(() -> BCrypt.checkpw(plaintextPassword, hashedPassword)));
+    }
+
+    /**
+     * Checks whether a hash was made with a lower cost than new hashes get.
+     *
+     * @param hashedPassword The BCrypt hash, e.g. {@code $2a$10$...}.
+     * @return True if the hash should be replaced by a new one.
+     */
+    public boolean needsRehash(String hashedPassword) {
+        // The cost is the two digits after the version: $2a$10$
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$') {
+            return false;
+        }
+        int costStart = hashedPassword.indexOf('$', 1) + 1;
+        if (costStart == 0 || costStart + 2 > hashedPassword.length()) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(costStart, costStart + 2)) < cost;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The cost factor of new hashes.
+     */
+    public int getCost() {
+        return cost;
+    }
+
+    /**
+     * @return Hashing requests waiting for a thread.
+     */
+    public int getQueuedCount() {
+        return executor.getQueue().size();
     }
 
+    private String hash(String password) {
+        // Generate a salt using BCrypt's gensalt method.
+        // (source: https://education.launchcode.org/java-web-development/chapters/auth/hashing-passwords.html#:~:text=You%20should%20use%20bcrypt.,as%20long%20as%20you%20like.)
+
+        // This ensures each hashed password is unique, even if two users have the same password.
+        String salt = BCrypt.gensalt(cost);
+
+        // Hash the plaintext password using the generated salt and return the hashed password.
+        // BCrypt internally applies the salt and produces a hashed output.
+        return BCrypt.hashpw(password, salt);
+    }
+
+    private <T> Future<T> submit(Callable<T> task) {
+        try {
+            return executor.submit(task);
+        } catch (RejectedExecutionException e) {
+            throw busy();
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while hashing the password");
+        } catch (ExecutionException e) {
+            // Keep the behaviour of calling BCrypt directly, e.g. IllegalArgumentException for a malformed hash
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while hashing the password: " + e.getCause());
+        }
+    }
+
+    private static HttpStatusException busy() {
+        return new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many logins at the moment - Try again later");
+    }
 }
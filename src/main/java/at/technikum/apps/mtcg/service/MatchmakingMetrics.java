@@ -0,0 +1,51 @@
+package at.technikum.apps.mtcg.service;
+
+/**
+ * Snapshot of the {@link MatchmakingQueue} state.
+ */
+public class MatchmakingMetrics {
+
+    private final int waiting;
+    private final long matched;
+    private final long timedOut;
+    private final double averageTimeToMatchMillis;
+    private final double maxTimeToMatchMillis;
+
+    public MatchmakingMetrics(int waiting, long matched, long timedOut, double averageTimeToMatchMillis, double maxTimeToMatchMillis) {
+        this.waiting = waiting;
+        this.matched = matched;
+        this.timedOut = timedOut;
+        this.averageTimeToMatchMillis = averageTimeToMatchMillis;
+        this.maxTimeToMatchMillis = maxTimeToMatchMillis;
+    }
+
+    // Players currently waiting for an opponent (queue depth)
+    public int getWaiting() {
+        return waiting;
+    }
+
+    // Battles that found an opponent
+    public long getMatched() {
+        return matched;
+    }
+
+    // Players that gave up after the match timeout
+    public long getTimedOut() {
+        return timedOut;
+    }
+
+    // How long matched players waited for their opponent
+    public double getAverageTimeToMatchMillis() {
+        return averageTimeToMatchMillis;
+    }
+
+    public double getMaxTimeToMatchMillis() {
+        return maxTimeToMatchMillis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("waiting=%d, matched=%d, timedOut=%d, time to match avg=%.2fms max=%.2fms",
+                waiting, matched, timedOut, averageTimeToMatchMillis, maxTimeToMatchMillis);
+    }
+}
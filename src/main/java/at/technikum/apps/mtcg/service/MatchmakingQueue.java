@@ -0,0 +1,269 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
+import at.technikum.server.http.HttpStatus;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Battles waiting for an opponent, indexed by the host's ELO.
+ * Waiting battles are kept in buckets of similar ELO; a joiner looks at the buckets nearest to its own rating first
+ * and claims the closest battle whose rating window accepts it. A battle's window starts narrow and widens the longer
+ * its host waits, so players are matched with similar opponents when possible and with anyone before they time out.
+ * <p>
+ * A host parks on its {@link WaitingBattle} until a joiner claims it or the match timeout expires, so waiting
+ * takes no CPU. The number of hosts waiting at the same time is bounded; further players get a 503.
+ */
+public class MatchmakingQueue {
+
+    private final Semaphore waitingSlots;
+    private final long matchTimeoutMillis;
+
+    // ELO range per bucket, the window a new battle accepts, and how much it grows per second of waiting
+    private final int bucketWidth;
+    private final int baseWindow;
+    private final int windowGrowthPerSecond;
+    private final int maxWindow;
+
+    // Bucket (ELO / bucketWidth) to its waiting battles, oldest first
+    private final ConcurrentSkipListMap<Integer, Queue<WaitingBattle>> buckets = new ConcurrentSkipListMap<>();
+    private final AtomicInteger waitingCount = new AtomicInteger();
+
+    private final LongAdder matched = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder timeToMatchNanos = new LongAdder();
+    private final AtomicLong maxTimeToMatchNanos = new AtomicLong();
+
+    /**
+     * Creates a queue that matches any two players, regardless of their ELO.
+     *
+     * @param maxWaiting         How many players may wait for an opponent at the same time.
+     * @param matchTimeoutMillis How long a player waits for an opponent.
+     */
+    public MatchmakingQueue(int maxWaiting, long matchTimeoutMillis) {
+        this(maxWaiting, matchTimeoutMillis, 100, Integer.MAX_VALUE / 2, 0);
+    }
+
+    /**
+     * @param maxWaiting            How many players may wait for an opponent at the same time.
+     * @param matchTimeoutMillis    How long a player waits for an opponent.
+     * @param bucketWidth           ELO range of one bucket.
+     * @param baseWindow            Largest ELO difference a newly opened battle accepts.
+     * @param windowGrowthPerSecond How much the accepted ELO difference grows per second the host waits.
+     */
+    public MatchmakingQueue(int maxWaiting, long matchTimeoutMillis, int bucketWidth, int baseWindow, int windowGrowthPerSecond) {
+        if (bucketWidth < 1) {
+            throw new IllegalArgumentException("Invalid ELO bucket width: " + bucketWidth);
+        }
+        this.waitingSlots = new Semaphore(maxWaiting);
+        this.matchTimeoutMillis = matchTimeoutMillis;
+        this.bucketWidth = bucketWidth;
+        this.baseWindow = baseWindow;
+        this.windowGrowthPerSecond = windowGrowthPerSecond;
+        // Widest window any battle can reach before its host times out
+        this.maxWindow = (int) Math.min(Integer.MAX_VALUE / 2,
+                baseWindow + (long) windowGrowthPerSecond * TimeUnit.MILLISECONDS.toSeconds(matchTimeoutMillis));
+    }
+
+    /**
+     * Creates the queue from system properties, falling back to defaults for missing values.
+     *
+     * @return The matchmaking queue.
+     */
+    public static MatchmakingQueue fromSystemProperties() {
+        return new MatchmakingQueue(
+                Integer.getInteger("mtcg.battle.maxWaiting", 64),
+                Long.getLong("mtcg.battle.matchTimeoutMillis", 20000),
+                Integer.getInteger("mtcg.battle.eloBucketWidth", 25),
+                Integer.getInteger("mtcg.battle.eloWindow", 50),
+                Integer.getInteger("mtcg.battle.eloWindowGrowthPerSecond", 25)
+        );
+    }
+
+    /**
+     * Claims the waiting battle of another player with the closest ELO that accepts the player.
+     * The claim is atomic: a battle is given to exactly one joiner.
+     *
+     * @param player The joining player.
+     * @return The claimed battle, or an empty Optional if no suitable battle is waiting.
+     */
+    Optional<WaitingBattle> claim(Contender player) {
+        while (true) {
+            WaitingBattle candidate = findClosest(player, System.nanoTime());
+            if (candidate == null) {
+                return Optional.empty();
+            }
+            if (candidate.claim(player)) {
+                remove(candidate);
+                recordMatch(System.nanoTime() - candidate.getOpenedNanos());
+                return Optional.of(candidate);
+            }
+            // Another joiner was faster or the host timed out, look again
+        }
+    }
+
+    /**
+     * Opens a battle that other players can claim.
+     *
+     * @param host The player opening the battle.
+     * @return The battle; the caller must wait on it with {@link #awaitOpponent(WaitingBattle)}.
+     * @throws HttpStatusException If too many players are already waiting.
+     */
+    WaitingBattle open(Contender host) {
+        if (!waitingSlots.tryAcquire()) {
+            throw new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many players waiting for a battle - Try again later");
+        }
+        WaitingBattle battle = new WaitingBattle(UUID.randomUUID().toString(), host);
+        buckets.computeIfAbsent(bucketOf(battle.getEloRating()), bucket -> new ConcurrentLinkedQueue<>()).add(battle);
+        waitingCount.incrementAndGet();
+        return battle;
+    }
+
+    /**
+     * Parks the host until an opponent claims the battle or the match timeout expires.
+     *
+     * @param battle The battle opened by the host.
+     * @return The opponent, or null if nobody joined in time.
+     */
+    Contender awaitOpponent(WaitingBattle battle) {
+        return awaitOpponent(battle, matchTimeoutMillis);
+    }
+
+    /**
+     * Parks the host until an opponent claims the battle or the given time expires.
+     *
+     * @param battle        The battle opened by the host.
+     * @param timeoutMillis How long to wait, instead of the match timeout.
+     * @return The opponent, or null if nobody joined in time.
+     */
+    Contender awaitOpponent(WaitingBattle battle, long timeoutMillis) {
+        try {
+            return battle.getOpponent().get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            return giveUp(battle);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return giveUp(battle);
+        } catch (ExecutionException e) {
+            return null;
+        } finally {
+            remove(battle);
+            waitingSlots.release();
+        }
+    }
+
+    /**
+     * @return Number of players currently waiting for an opponent.
+     */
+    public int getWaitingCount() {
+        return waitingCount.get();
+    }
+
+    /**
+     * @return Queue depth, matches, timeouts and time-to-match.
+     */
+    public MatchmakingMetrics getMetrics() {
+        long count = matched.sum();
+        return new MatchmakingMetrics(waitingCount.get(), count, timedOut.sum(),
+                count == 0 ? 0 : timeToMatchNanos.sum() / 1_000_000.0 / count, maxTimeToMatchNanos.get() / 1_000_000.0);
+    }
+
+    /**
+     * Searches the buckets outwards from the player's own, stopping once no closer battle can follow.
+     */
+    private WaitingBattle findClosest(Contender player, long now) {
+        int elo = player.getUser().getEloRating();
+        int ownBucket = bucketOf(elo);
+        ConcurrentNavigableMap<Integer, Queue<WaitingBattle>> inRange =
+                buckets.subMap(bucketOf(elo - maxWindow), true, bucketOf(elo + maxWindow), true);
+        Iterator<Map.Entry<Integer, Queue<WaitingBattle>>> down = inRange.headMap(ownBucket, true).descendingMap().entrySet().iterator();
+        Iterator<Map.Entry<Integer, Queue<WaitingBattle>>> up = inRange.tailMap(ownBucket, false).entrySet().iterator();
+        Map.Entry<Integer, Queue<WaitingBattle>> nextDown = down.hasNext() ? down.next() : null;
+        Map.Entry<Integer, Queue<WaitingBattle>> nextUp = up.hasNext() ? up.next() : null;
+
+        WaitingBattle closest = null;
+        int closestDifference = Integer.MAX_VALUE;
+        while (nextDown != null || nextUp != null) {
+            // Take the nearer bucket next
+            boolean takeDown = nextUp == null || (nextDown != null && ownBucket - nextDown.getKey() <= nextUp.getKey() - ownBucket);
+            Map.Entry<Integer, Queue<WaitingBattle>> entry = takeDown ? nextDown : nextUp;
+
+            // Smallest ELO difference any battle in this bucket can have
+            int bucket = entry.getKey();
+            long lowerBound = bucket < ownBucket ? elo - ((long) (bucket + 1) * bucketWidth - 1)
+                    : bucket > ownBucket ? (long) bucket * bucketWidth - elo : 0;
+            if (lowerBound >= closestDifference) {
+                break;
+            }
+
+            for (WaitingBattle battle : entry.getValue()) {
+                int difference = Math.abs(battle.getEloRating() - elo);
+                if (difference < closestDifference && !battle.isClosed()
+                        && !battle.getHost().getUser().getId().equals(player.getUser().getId())
+                        && difference <= windowOf(battle, now)) {
+                    closest = battle;
+                    closestDifference = difference;
+                }
+            }
+
+            if (takeDown) {
+                nextDown = down.hasNext() ? down.next() : null;
+            } else {
+                nextUp = up.hasNext() ? up.next() : null;
+            }
+        }
+        return closest;
+    }
+
+    // The ELO difference a battle accepts after its host waited since it was opened
+    private long windowOf(WaitingBattle battle, long now) {
+        long waitedSeconds = TimeUnit.NANOSECONDS.toSeconds(now - battle.getOpenedNanos());
+        return baseWindow + windowGrowthPerSecond * waitedSeconds;
+    }
+
+    private int bucketOf(int elo) {
+        return Math.floorDiv(elo, bucketWidth);
+    }
+
+    /**
+     * Closes the battle after the timeout; if a joiner claimed it in the meantime, the claim wins.
+     */
+    private Contender giveUp(WaitingBattle battle) {
+        if (battle.close()) {
+            timedOut.increment();
+            return null;
+        }
+        return battle.getOpponent().join();
+    }
+
+    /**
+     * Takes the battle out of its bucket, once.
+     * Empty buckets are kept: there are only as many as distinct ELO ranges, and dropping them would race with open().
+     */
+    private void remove(WaitingBattle battle) {
+        Queue<WaitingBattle> queue = buckets.get(bucketOf(battle.getEloRating()));
+        if (queue != null && queue.remove(battle)) {
+            waitingCount.decrementAndGet();
+        }
+    }
+
+    private void recordMatch(long nanos) {
+        matched.increment();
+        timeToMatchNanos.add(nanos);
+        maxTimeToMatchNanos.accumulateAndGet(nanos, Math::max);
+    }
+}
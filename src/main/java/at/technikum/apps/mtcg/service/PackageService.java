@@ -6,6 +6,7 @@ import at.technikum.apps.mtcg.entity.Package;
 import at.technikum.apps.mtcg.entity.User;
 import at.technikum.apps.mtcg.repository.card.CardRepository;
 import at.technikum.apps.mtcg.repository.packages.PackageRepository;
+import at.technikum.apps.mtcg.repository.transaction.UnitOfWork;
 import at.technikum.server.http.HttpStatus;
 
 import java.util.HashSet;
@@ -18,10 +19,12 @@ public class PackageService {
 
     private final CardRepository cardRepository;
     private final PackageRepository packageRepository;
+    private final UnitOfWork unitOfWork;
 
-    public PackageService(CardRepository cardRepository, PackageRepository packageRepository) {
+    public PackageService(CardRepository cardRepository, PackageRepository packageRepository, UnitOfWork unitOfWork) {
         this.cardRepository = cardRepository;
         this.packageRepository = packageRepository;
+        this.unitOfWork = unitOfWork;
     }
 
     /**
@@ -54,12 +57,19 @@ public class PackageService {
         // Generate a new unique package ID
         String packageId = UUID.randomUUID().toString();
 
-        // Save the package and each card in the package
-        boolean isPackageSaved = packageRepository.savePackage(packageId);
-        for (PackageCard packageCard : packageCards) {
-            cardRepository.saveCard(packageCard);
-            packageRepository.addCardToPackage(packageId, packageCard.getId());
-        }
+        // Save the package and each card in the package in one transaction, so no half-filled package is left behind
+        unitOfWork.run(() -> {
+            boolean isPackageSaved = packageRepository.savePackage(packageId);
+            for (PackageCard packageCard : packageCards) {
+                isPackageSaved &= cardRepository.saveCard(packageCard)
+                        && packageRepository.addCardToPackage(packageId, packageCard.getId());
+            }
+
+            // Throwing rolls back the package and the cards saved so far
+            if (!isPackageSaved) {
+                throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while saving the package - Please try again!");
+            }
+        });
 
         return true;
     }
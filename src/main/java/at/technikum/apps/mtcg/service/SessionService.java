@@ -8,17 +8,25 @@ import at.technikum.apps.mtcg.repository.user.UserRepository;
 import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 
+import java.time.Duration;
 import java.util.Optional;
 
 public class SessionService {
     private final UserRepository userRepository;
     private final SessionRepository sessionRepository;
     private final HashingService hashingService;
+    private final TokenCache tokenCache;
 
     public SessionService(UserRepository userRepository, SessionRepository sessionRepository, HashingService hashingService) {
+        this(userRepository, sessionRepository, hashingService, new TokenCache(0, 0));
+    }
+
+    public SessionService(UserRepository userRepository, SessionRepository sessionRepository, HashingService hashingService,
+                          TokenCache tokenCache) {
         this.userRepository = userRepository;
         this.sessionRepository = sessionRepository;
         this.hashingService = hashingService;
+        this.tokenCache = tokenCache;
     }
 
     /**
@@ -38,6 +46,10 @@ public class SessionService {
         // Extract the token from the header
         String token = authHeader.split("\\s+")[1];
 
+        if (tokenCache.isEnabled()) {
+            return authenticateCached(token);
+        }
+
         // Verify the token's authenticity
         if (!authenticateToken(token)) {
             throw new HttpStatusException(HttpStatus.UNAUTHORIZED, "Invalid token");
@@ -52,6 +64,48 @@ public class SessionService {
         return userOpt.get();
     }
 
+    /**
+     * Authenticates a token through the token cache. A known token needs no query at all while its user is fresh,
+     * and a single lookup by primary key once the user is stale; an unknown token is validated in the database and cached.
+     *
+     * @param token The token to authenticate.
+     * @return The User associated with the token.
+     * @throws HttpStatusException If the token is invalid or the user does not exist.
+     */
+    private User authenticateCached(String token) {
+        TokenCache.Entry entry = tokenCache.get(token);
+        if (entry == null) {
+            long lookupStart = tokenCache.beginLookup();
+            // Validate the token and remember how long the database accepts it
+            Duration timeToLive = sessionRepository.getTokenTimeToLive(token)
+                    .orElseThrow(() -> new HttpStatusException(HttpStatus.UNAUTHORIZED, "Invalid token"));
+            User user = getUserByToken(token)
+                    .orElseThrow(() -> new HttpStatusException(HttpStatus.NOT_FOUND, "User does not exist"));
+            tokenCache.put(token, user, timeToLive, lookupStart);
+            return user;
+        }
+
+        if (entry.isUserStale()) {
+            // The token is still valid, only coins, ELO etc. may have changed
+            Optional<User> userOpt = userRepository.findUserById(entry.getUserId());
+            if (userOpt.isEmpty()) {
+                tokenCache.invalidate(token);
+                throw new HttpStatusException(HttpStatus.NOT_FOUND, "User does not exist");
+            }
+            tokenCache.refresh(token, entry, userOpt.get());
+            return userOpt.get();
+        }
+
+        return entry.getUser();
+    }
+
+    /**
+     * @return Size and hit rate of the token cache.
+     */
+    public TokenCacheMetrics getTokenCacheMetrics() {
+        return tokenCache.getMetrics();
+    }
+
 
     /**
      * Retrieves a token for a user based on their login credentials.
@@ -69,19 +123,41 @@ public class SessionService {
 
             // Verify the password against the stored hash
             if (hashingService.compareHash(tokenRequest.getPassword(), hashedPassword)) {
-                // Check for an existing token and delete it
-                Optional<String> existingToken = sessionRepository.findTokenByUserId(user.getId());
-                if (existingToken.isPresent()) {
-                    sessionRepository.deleteToken(user.getId());
+                if (hashingService.needsRehash(hashedPassword)) {
+                    upgradeHash(user, tokenRequest.getPassword());
                 }
-                // Generate and return a new token
-                return sessionRepository.generateToken(user);
+
+                // Generate a new token; an existing token of the user is replaced or revoked in the same step
+                Optional<String> token = sessionRepository.generateToken(user);
+
+                // Only now is the old token rejected by the repository, so it must not be served from the cache anymore,
+                // not even by a lookup that validated it just before
+                tokenCache.invalidateUser(user.getId());
+                return token;
             }
         }
         throw new HttpStatusException(HttpStatus.NOT_FOUND, "User does not exist");
     }
 
 
+    /**
+     * Hashes the password again with the current cost, in the background so the login is not slowed down.
+     * If logins are waiting for the hashing pool or another upgrade is running, the hash is upgraded on a later
+     * login instead.
+     *
+     * @param user     The user who just logged in.
+     * @param password The verified plaintext password.
+     */
+    private void upgradeHash(User user, String password) {
+        String oldHash = user.getPassword();
+        hashingService.rehashAsync(password).whenComplete((newHash, e) -> {
+            if (e == null) {
+                userRepository.updatePassword(user.getId(), oldHash, newHash);
+            }
+        });
+    }
+
+
     /**
      * Verifies the authenticity of a token.
      *
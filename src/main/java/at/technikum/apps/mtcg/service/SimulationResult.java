@@ -0,0 +1,95 @@
+package at.technikum.apps.mtcg.service;
+
+import java.util.List;
+
+/**
+ * Aggregate outcome of a {@link BattleSimulator} run.
+ * Matrices are indexed by participant: {@code wins[i][j]} is how often participant i beat participant j,
+ * {@code draws[i][j]} how often they drew, and losses are the wins of the other side.
+ */
+public class SimulationResult {
+
+    private final List<String> participants;
+    private final long[][] wins;
+    private final long[][] draws;
+    private final long battles;
+    private final long elapsedNanos;
+
+    public SimulationResult(List<String> participants, long[][] wins, long[][] draws, long battles, long elapsedNanos) {
+        this.participants = List.copyOf(participants);
+        this.wins = wins;
+        this.draws = draws;
+        this.battles = battles;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    // Participant names, in matrix order
+    public List<String> getParticipants() {
+        return participants;
+    }
+
+    public long getWins(int participant, int opponent) {
+        return wins[participant][opponent];
+    }
+
+    public long getDraws(int participant, int opponent) {
+        return draws[participant][opponent];
+    }
+
+    public long getLosses(int participant, int opponent) {
+        return wins[opponent][participant];
+    }
+
+    public long[][] getWinMatrix() {
+        return copy(wins);
+    }
+
+    public long[][] getDrawMatrix() {
+        return copy(draws);
+    }
+
+    public long[][] getLossMatrix() {
+        long[][] losses = new long[wins.length][wins.length];
+        for (int i = 0; i < wins.length; i++) {
+            for (int j = 0; j < wins.length; j++) {
+                losses[i][j] = wins[j][i];
+            }
+        }
+        return losses;
+    }
+
+    // Battles simulated in total
+    public long getBattles() {
+        return battles;
+    }
+
+    public double getBattlesPerSecond() {
+        return elapsedNanos == 0 ? 0 : battles * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder table = new StringBuilder(String.format("%d participants, %d battles, %.0f battles/s%n",
+                participants.size(), battles, getBattlesPerSecond()));
+        for (int i = 0; i < participants.size(); i++) {
+            long won = 0;
+            long drawn = 0;
+            long lost = 0;
+            for (int j = 0; j < participants.size(); j++) {
+                won += wins[i][j];
+                drawn += draws[i][j];
+                lost += wins[j][i];
+            }
+            table.append(String.format("%s: %d won, %d drawn, %d lost%n", participants.get(i), won, drawn, lost));
+        }
+        return table.toString();
+    }
+
+    private static long[][] copy(long[][] matrix) {
+        long[][] copy = new long[matrix.length][];
+        for (int i = 0; i < matrix.length; i++) {
+            copy[i] = matrix[i].clone();
+        }
+        return copy;
+    }
+}
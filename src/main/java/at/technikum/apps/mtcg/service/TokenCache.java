@@ -0,0 +1,247 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.User;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tokens that were validated recently, with the user they belong to.
+ * A token is kept until the expiry the database reported for it, so it is never accepted longer than the 20 minute
+ * window of the access_token table. The user is only kept for a short time: after {@code userMaxAgeMillis} it has to be
+ * reloaded, so coins and ELO changed by other requests show up quickly.
+ * <p>
+ * The cache holds at most {@code maxSize} tokens; when it is full, expired tokens are dropped first and then arbitrary ones.
+ * Users are copied in and out, so callers may change the user they get without affecting the cache.
+ * <p>
+ * A lookup that started before the tokens of its user were invalidated is not cached: it may have validated a token
+ * that was revoked in the meantime.
+ */
+public class TokenCache {
+
+    // Power of two; users sharing a stripe only cost each other a cache miss
+    private static final int INVALIDATION_STRIPES = 1024;
+
+    private final int maxSize;
+    private final long userMaxAgeNanos;
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    // Counts invalidateUser calls; each stripe of users remembers the count of its last invalidation
+    private final AtomicLong invalidationCount = new AtomicLong();
+    private final AtomicLongArray invalidatedAt = new AtomicLongArray(INVALIDATION_STRIPES);
+
+    /**
+     * @param maxSize          How many tokens the cache holds; 0 disables the cache.
+     * @param userMaxAgeMillis How long a cached user is used before it is reloaded.
+     */
+    public TokenCache(int maxSize, long userMaxAgeMillis) {
+        this.maxSize = maxSize;
+        this.userMaxAgeNanos = TimeUnit.MILLISECONDS.toNanos(userMaxAgeMillis);
+    }
+
+    /**
+     * Creates the cache from system properties, falling back to defaults for missing values.
+     *
+     * @return The token cache.
+     */
+    public static TokenCache fromSystemProperties() {
+        return new TokenCache(
+                Integer.getInteger("mtcg.session.cache.maxSize", 10000),
+                Long.getLong("mtcg.session.cache.userMaxAgeMillis", 2000)
+        );
+    }
+
+    /**
+     * @return True if tokens are cached at all.
+     */
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    /**
+     * Looks up a token that has not expired yet.
+     *
+     * @param token The token.
+     * @return The cached entry, or null if the token is unknown or expired.
+     */
+    Entry get(String token) {
+        Entry entry = entries.get(token);
+        if (entry != null && entry.isExpired(System.nanoTime())) {
+            entries.remove(token, entry);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return entry;
+    }
+
+    /**
+     * Marks the start of a token lookup whose result is to be cached; call it before validating the token.
+     *
+     * @return The value to pass to {@link #put(String, User, Duration, long)}.
+     */
+    long beginLookup() {
+        return invalidationCount.get();
+    }
+
+    /**
+     * Caches a validated token with its user, unless the tokens of the user were invalidated since the lookup started.
+     *
+     * @param token       The token.
+     * @param user        The user of the token.
+     * @param timeToLive  How long the token stays valid.
+     * @param lookupStart The value {@link #beginLookup()} returned before the token was validated.
+     */
+    void put(String token, User user, Duration timeToLive, long lookupStart) {
+        if (!isEnabled() || invalidatedSince(user.getId(), lookupStart)) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (entries.size() >= maxSize && !entries.containsKey(token)) {
+            makeRoom(now);
+        }
+        Entry entry = new Entry(copyOf(user), now + timeToLive.toNanos(), now);
+        entries.put(token, entry);
+        // An invalidation between the check and the put did not see the entry yet
+        if (invalidatedSince(user.getId(), lookupStart)) {
+            entries.remove(token, entry);
+        }
+    }
+
+    /**
+     * Replaces the user of a cached token after it was reloaded; the token keeps its expiry.
+     *
+     * @param token The token.
+     * @param entry The entry the user was reloaded for.
+     * @param user  The reloaded user.
+     */
+    void refresh(String token, Entry entry, User user) {
+        // Only if the token was not invalidated or replaced in the meantime
+        entries.replace(token, entry, new Entry(copyOf(user), entry.expiresNanos, System.nanoTime()));
+    }
+
+    /**
+     * Drops a single token.
+     *
+     * @param token The token.
+     */
+    void invalidate(String token) {
+        if (entries.remove(token) != null) {
+            invalidations.increment();
+        }
+    }
+
+    /**
+     * Drops all tokens of a user, e.g. when the user logs in again or the token is deleted.
+     *
+     * @param userId The user ID.
+     */
+    void invalidateUser(String userId) {
+        // Marked before removing, so a concurrent put either sees the mark or its entry is removed here
+        long count = invalidationCount.incrementAndGet();
+        invalidatedAt.accumulateAndGet(stripe(userId), count, Math::max);
+        entries.values().removeIf(entry -> {
+            if (entry.user.getId().equals(userId)) {
+                invalidations.increment();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    /**
+     * @return Number of cached tokens.
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return Size, hits, misses and evictions of the cache.
+     */
+    public TokenCacheMetrics getMetrics() {
+        return new TokenCacheMetrics(entries.size(), hits.sum(), misses.sum(), evictions.sum(), invalidations.sum());
+    }
+
+    /**
+     * Drops expired tokens and, if that was not enough, arbitrary ones until there is room for one more.
+     */
+    private void makeRoom(long now) {
+        if (entries.values().removeIf(entry -> entry.isExpired(now))) {
+            if (entries.size() < maxSize) {
+                return;
+            }
+        }
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (entries.size() >= maxSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private boolean invalidatedSince(String userId, long lookupStart) {
+        return invalidatedAt.get(stripe(userId)) > lookupStart;
+    }
+
+    private static int stripe(String userId) {
+        int hash = userId.hashCode();
+        return (hash ^ (hash >>> 16)) & (INVALIDATION_STRIPES - 1);
+    }
+
+    private static User copyOf(User user) {
+        return new User(user.getId(), user.getUsername(), user.getPassword(), user.getCoins(), user.getEloRating(), user.isAdmin());
+    }
+
+    /**
+     * A cached token: the user, when the token expires and when the user was loaded.
+     */
+    final class Entry {
+        private final User user;
+        private final long expiresNanos;
+        private final long loadedNanos;
+
+        private Entry(User user, long expiresNanos, long loadedNanos) {
+            this.user = user;
+            this.expiresNanos = expiresNanos;
+            this.loadedNanos = loadedNanos;
+        }
+
+        /**
+         * @return A copy of the cached user.
+         */
+        User getUser() {
+            return copyOf(user);
+        }
+
+        String getUserId() {
+            return user.getId();
+        }
+
+        /**
+         * @return True if the user was loaded longer ago than the maximum age and should be reloaded.
+         */
+        boolean isUserStale() {
+            return System.nanoTime() - loadedNanos >= userMaxAgeNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresNanos >= 0;
+        }
+    }
+}
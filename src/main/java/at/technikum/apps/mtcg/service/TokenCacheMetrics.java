@@ -0,0 +1,57 @@
+package at.technikum.apps.mtcg.service;
+
+/**
+ * Snapshot of the {@link TokenCache} state.
+ */
+public class TokenCacheMetrics {
+
+    private final int size;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long invalidations;
+
+    public TokenCacheMetrics(int size, long hits, long misses, long evictions, long invalidations) {
+        this.size = size;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.invalidations = invalidations;
+    }
+
+    // Tokens currently cached
+    public int getSize() {
+        return size;
+    }
+
+    // Requests authenticated without asking the database whether the token is valid
+    public long getHits() {
+        return hits;
+    }
+
+    // Requests whose token had to be looked up in the database
+    public long getMisses() {
+        return misses;
+    }
+
+    // Valid tokens dropped because the cache was full
+    public long getEvictions() {
+        return evictions;
+    }
+
+    // Tokens dropped because their user logged in again or the token was deleted
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    public double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("size=%d, hits=%d, misses=%d, hit rate=%.1f%%, evictions=%d, invalidations=%d",
+                size, hits, misses, getHitRate() * 100, evictions, invalidations);
+    }
+}
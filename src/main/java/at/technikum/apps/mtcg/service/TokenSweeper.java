@@ -0,0 +1,150 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.repository.session.SessionRepository;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Deletes expired session tokens in the background, so the token table does not grow with every login.
+ * <p>
+ * Each run deletes in batches of {@code batchSize} until a batch comes back short or {@code maxBatchesPerRun} is reached;
+ * whatever is left is picked up by the next run. Every batch is a separate short statement that skips rows locked
+ * by logins, so sweeping never makes a login wait.
+ */
+public class TokenSweeper {
+
+    private final SessionRepository sessionRepository;
+    private final long intervalMillis;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+
+    private ScheduledExecutorService scheduler;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder deleted = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final AtomicLong lastRunDeleted = new AtomicLong();
+
+    /**
+     * @param sessionRepository The repository whose expired tokens are deleted.
+     * @param intervalMillis    Time between two runs; 0 disables the sweeper.
+     * @param batchSize         Tokens deleted per statement.
+     * @param maxBatchesPerRun  Statements per run at most.
+     */
+    public TokenSweeper(SessionRepository sessionRepository, long intervalMillis, int batchSize, int maxBatchesPerRun) {
+        if (batchSize < 1 || maxBatchesPerRun < 1) {
+            throw new IllegalArgumentException("Invalid token sweeper batch size: " + batchSize + " x " + maxBatchesPerRun);
+        }
+        this.sessionRepository = sessionRepository;
+        this.intervalMillis = intervalMillis;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+    }
+
+    /**
+     * Creates the sweeper from system properties, falling back to defaults for missing values.
+     *
+     * @param sessionRepository The repository whose expired tokens are deleted.
+     * @return The token sweeper; not started yet.
+     */
+    public static TokenSweeper fromSystemProperties(SessionRepository sessionRepository) {
+        return new TokenSweeper(
+                sessionRepository,
+                Long.getLong("mtcg.session.sweepIntervalMillis", 60000),
+                Integer.getInteger("mtcg.session.sweepBatchSize", 500),
+                Integer.getInteger("mtcg.session.sweepMaxBatches", 20)
+        );
+    }
+
+    /**
+     * Starts sweeping in the configured interval on a daemon thread, unless the sweeper is disabled.
+     *
+     * @return This sweeper, for chaining.
+     */
+    public synchronized TokenSweeper start() {
+        if (intervalMillis > 0 && scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "mtcg-token-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::sweepSafely, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        }
+        return this;
+    }
+
+    /**
+     * Stops sweeping; a run in progress finishes its current batch.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Deletes expired tokens in batches.
+     *
+     * @return The number of deleted tokens.
+     */
+    public int sweep() {
+        int total = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int count = sessionRepository.purgeExpiredTokens(batchSize);
+            total += count;
+            if (count < batchSize || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+        }
+        runs.increment();
+        deleted.add(total);
+        lastRunDeleted.set(total);
+        return total;
+    }
+
+    // A failed run must not end the schedule
+    private void sweepSafely() {
+        try {
+            int count = sweep();
+            if (count > 0) {
+                System.out.println("Token sweeper deleted " + count + " expired tokens");
+            }
+        } catch (RuntimeException e) {
+            failures.increment();
+            System.out.println("Token sweeper failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return Completed runs.
+     */
+    public long getRuns() {
+        return runs.sum();
+    }
+
+    /**
+     * @return Tokens deleted since the start.
+     */
+    public long getDeletedCount() {
+        return deleted.sum();
+    }
+
+    /**
+     * @return Tokens deleted by the last run.
+     */
+    public long getLastRunDeletedCount() {
+        return lastRunDeleted.get();
+    }
+
+    /**
+     * @return Runs that failed, e.g. because the database was unreachable.
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+}
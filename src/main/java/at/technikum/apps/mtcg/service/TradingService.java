@@ -6,6 +6,7 @@ import at.technikum.apps.mtcg.entity.TradeRequest;
 import at.technikum.apps.mtcg.entity.User;
 import at.technikum.apps.mtcg.repository.card.CardRepository;
 import at.technikum.apps.mtcg.repository.trading.TradingRepository;
+import at.technikum.apps.mtcg.repository.transaction.UnitOfWork;
 import at.technikum.apps.mtcg.repository.user.UserRepository;
 import at.technikum.server.http.HttpStatus;
 
@@ -15,11 +16,14 @@ public class TradingService {
     private final TradingRepository tradingRepository;
     private final CardRepository cardRepository;
     private final UserRepository userRepository;
+    private final UnitOfWork unitOfWork;
 
-    public TradingService(TradingRepository tradingRepository, CardRepository cardRepository, UserRepository userRepository) {
+    public TradingService(TradingRepository tradingRepository, CardRepository cardRepository, UserRepository userRepository,
+                          UnitOfWork unitOfWork) {
         this.tradingRepository = tradingRepository;
         this.cardRepository = cardRepository;
         this.userRepository = userRepository;
+        this.unitOfWork = unitOfWork;
     }
 
     /**
@@ -150,40 +154,48 @@ public class TradingService {
 
     /**
      * Executes a trading deal.
+     * The checks and the card swap run in one database transaction, so a failed step swaps nothing.
      *
      * @param requester     The User requesting the trade.
      * @param tradingId     The ID of the trading deal to be executed.
      * @param offeredCardId The ID of the card being offered in the trade.
      * @return True if the trade is successfully executed, false otherwise.
-     * @throws HttpStatusException If the trading deal is not found, or the user cannot trade with themselves, or if the offered card is not valid.
+     * @throws HttpStatusException If the trading deal is not found, or the user cannot trade with themselves, or if the offered card is not valid, or swapping the cards fails.
      */
     public boolean trade(User requester, String tradingId, String offeredCardId) {
-
-        // Retrieve the trade request
-        Optional<TradeRequest> trade = getTradeById(tradingId);
-        if (trade.isEmpty()) {
-            throw new HttpStatusException(HttpStatus.NOT_FOUND, "Trading deal not found");
-        } else if (requester.getId().equals(trade.get().getUserId())) {
-            throw new HttpStatusException(HttpStatus.FORBIDDEN, "User cannot trade with themselves");
-        }
-
-        // Validate the offered card
-        if (!cardRepository.isCardInStack(requester.getId(), offeredCardId) ||
-                cardRepository.isCardInDeck(requester.getId(), offeredCardId)) {
-            throw new HttpStatusException(HttpStatus.FORBIDDEN, "The offered card is not owned by the user or is locked in the deck");
-        }
-
-        // Check if the offered card meets the trade requirements
-        if (!meetsRequirements(trade.get(), offeredCardId)) {
-            throw new HttpStatusException(HttpStatus.FORBIDDEN, "The offered card does not meet the trade requirements or is locked in the deck.");
-        }
-
-        // Execute the trade by swapping cards and deleting the trade
-        return cardRepository.deleteCardFromStack(requester.getId(), offeredCardId) &&
-                cardRepository.addCardToStack(trade.get().getUserId(), offeredCardId) &&
-                cardRepository.deleteCardFromStack(trade.get().getUserId(), trade.get().getCardToTrade()) &&
-                cardRepository.addCardToStack(requester.getId(), offeredCardId) &&
-                tradingRepository.deleteTrade(tradingId);
+        return unitOfWork.call(() -> {
+            // Retrieve the trade request
+            Optional<TradeRequest> trade = getTradeById(tradingId);
+            if (trade.isEmpty()) {
+                throw new HttpStatusException(HttpStatus.NOT_FOUND, "Trading deal not found");
+            } else if (requester.getId().equals(trade.get().getUserId())) {
+                throw new HttpStatusException(HttpStatus.FORBIDDEN, "User cannot trade with themselves");
+            }
+
+            // Validate the offered card
+            if (!cardRepository.isCardInStack(requester.getId(), offeredCardId) ||
+                    cardRepository.isCardInDeck(requester.getId(), offeredCardId)) {
+                throw new HttpStatusException(HttpStatus.FORBIDDEN, "The offered card is not owned by the user or is locked in the deck");
+            }
+
+            // Check if the offered card meets the trade requirements
+            if (!meetsRequirements(trade.get(), offeredCardId)) {
+                throw new HttpStatusException(HttpStatus.FORBIDDEN, "The offered card does not meet the trade requirements or is locked in the deck.");
+            }
+
+            // Execute the trade by swapping cards and deleting the trade
+            boolean swapped = cardRepository.deleteCardFromStack(requester.getId(), offeredCardId) &&
+                    cardRepository.addCardToStack(trade.get().getUserId(), offeredCardId) &&
+                    cardRepository.deleteCardFromStack(trade.get().getUserId(), trade.get().getCardToTrade()) &&
+                    cardRepository.addCardToStack(requester.getId(), trade.get().getCardToTrade()) &&
+                    tradingRepository.deleteTrade(tradingId);
+
+            // Throwing rolls back the steps that already succeeded
+            if (!swapped) {
+                throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while trading - Please try again!");
+            }
+            return true;
+        });
     }
 
 }
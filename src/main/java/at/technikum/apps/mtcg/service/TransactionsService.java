@@ -6,6 +6,7 @@ import at.technikum.apps.mtcg.entity.Package;
 import at.technikum.apps.mtcg.entity.User;
 import at.technikum.apps.mtcg.repository.coins.CoinRepository;
 import at.technikum.apps.mtcg.repository.packages.PackageRepository;
+import at.technikum.apps.mtcg.repository.transaction.UnitOfWork;
 import at.technikum.apps.mtcg.repository.user.UserRepository;
 import at.technikum.server.http.HttpStatus;
 
@@ -15,53 +16,62 @@ public class TransactionsService {
     private final UserRepository userRepository;
     private final PackageRepository packageRepository;
     private final CoinRepository coinRepository;
+    private final UnitOfWork unitOfWork;
 
-    public TransactionsService(UserRepository userRepository, PackageRepository packageRepository, CoinRepository coinRepository) {
+    public TransactionsService(UserRepository userRepository, PackageRepository packageRepository, CoinRepository coinRepository,
+                               UnitOfWork unitOfWork) {
         this.userRepository = userRepository;
         this.packageRepository = packageRepository;
         this.coinRepository = coinRepository;
+        this.unitOfWork = unitOfWork;
     }
 
     /**
      * Executes a transaction for buying a package.
+     * Payment, adding the cards and deleting the package run in one database transaction,
+     * so a failure in any step leaves the coins and the package untouched. Only one buyer can get a package.
      *
      * @param packageId The ID of the package being bought.
      * @param userId    The ID of the user buying the package.
      * @param price     The price of the package.
      * @return True if the transaction is successful, false otherwise.
-     * @throws HttpStatusException If there is an error during the payment process or while adding cards.
+     * @throws HttpStatusException If there is an error during the payment process or while adding cards,
+     *                             or if someone else bought the package first.
      */
     public boolean executeTransaction(String packageId, String userId, int price) {
-        // Deduct the price from the user's coins
-        boolean coinsUpdated = coinRepository.updateCoins(userId, -price);
+        return unitOfWork.call(() -> {
+            // Deduct the price from the user's coins
+            boolean coinsUpdated = coinRepository.updateCoins(userId, -price);
 
-        // Check if the coin deduction was successful
-        if (!coinsUpdated) {
-            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while payment - Please try again!");
-        }
+            // Check if the coin deduction was successful
+            if (!coinsUpdated) {
+                throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while payment - Please try again!");
+            }
 
-        // Retrieve the cards included in the package
-        Card[] cards = packageRepository.getPackageCardsById(packageId);
+            // Retrieve the cards included in the package
+            Card[] cards = packageRepository.getPackageCardsById(packageId);
 
-        // Verify the correct number of cards is retrieved
-        if (cards == null || cards.length != 5) {
-            coinRepository.updateCoins(userId, price); // Reverse the coin deduction
-            throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving Package cards - Please try again!");
-        }
+            // Verify the correct number of cards is retrieved (the payment is rolled back)
+            if (cards == null || cards.length != 5) {
+                throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error retrieving Package cards - Please try again!");
+            }
 
-        // Add each card from the package to the user's stack
-        for (Card card : cards) {
-            boolean cardAdded = userRepository.addCardToStack(userId, card);
-            if (!cardAdded) {
-                coinRepository.updateCoins(userId, price); // Reverse the coin deduction
-                throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while adding cards to your Stack - Please try again!");
+            // Add each card from the package to the user's stack
+            for (Card card : cards) {
+                boolean cardAdded = userRepository.addCardToStack(userId, card);
+                if (!cardAdded) {
+                    throw new HttpStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Error while adding cards to your Stack - Please try again!");
+                }
             }
-        }
 
-        // Delete the package after successful transaction
-        packageRepository.deletePackage(packageId);
+            // Delete the package after successful transaction; it only succeeds for the first of two concurrent
+            // buyers, the other one waits for the row lock, finds the package sold and rolls back
+            if (!packageRepository.deletePackage(packageId)) {
+                throw new HttpStatusException(HttpStatus.CONFLICT, "Package was already sold - Please try another one!");
+            }
 
-        return true; // Transaction was successful
+            return true; // Transaction was successful
+        });
     }
 
 
@@ -30,17 +30,17 @@ public class UserService {
         // Generate a new unique ID for the user if not already set
         if (user.getId() == null) user.setId(UUID.randomUUID().toString());
 
+        // Check if the username already exists in the system, before spending time on hashing
+        if (userRepository.isUsernameExists(user.getUsername())) {
+            throw new HttpStatusException(HttpStatus.CONFLICT, "User with same username already registered");
+        }
+
         // Encrypt the user's password
         user.setPassword(hashingService.encrypt(user.getPassword()));
 
         // Set the user as admin if the username is 'admin'
         user.setAdmin(Objects.equals(user.getUsername(), "admin"));
 
-        // Check if the username already exists in the system
-        if (userRepository.isUsernameExists(user.getUsername())) {
-            throw new HttpStatusException(HttpStatus.CONFLICT, "User with same username already registered");
-        }
-
         // Save the user in the repository and return the result
         return userRepository.saveUser(user);
     }
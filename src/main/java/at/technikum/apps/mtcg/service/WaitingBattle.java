@@ -0,0 +1,78 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.BattleResult;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A battle opened by a host that waits in the {@link MatchmakingQueue} for an opponent.
+ * Host and opponent come with their decks, so the battle can start as soon as it is claimed.
+ * The opponent is handed over through a future: completing it is atomic, so only one joiner can claim the battle,
+ * and the host thread parks on it instead of polling. The host runs the battle and hands the result back to the
+ * opponent through a second future, so the opponent does not read the database while waiting.
+ */
+class WaitingBattle {
+
+    private final String battleId;
+    private final Contender host;
+    private final int eloRating;
+    private final long openedNanos = System.nanoTime();
+    private final CompletableFuture<Contender> opponent = new CompletableFuture<>();
+    private final CompletableFuture<BattleResult> result = new CompletableFuture<>();
+
+    WaitingBattle(String battleId, Contender host) {
+        this.battleId = battleId;
+        this.host = host;
+        this.eloRating = host.getUser().getEloRating();
+    }
+
+    String getBattleId() {
+        return battleId;
+    }
+
+    Contender getHost() {
+        return host;
+    }
+
+    // ELO of the host when the battle was opened, used to find opponents of similar strength
+    int getEloRating() {
+        return eloRating;
+    }
+
+    long getOpenedNanos() {
+        return openedNanos;
+    }
+
+    // True once an opponent claimed the battle or the host gave up
+    boolean isClosed() {
+        return opponent.isDone();
+    }
+
+    CompletableFuture<Contender> getOpponent() {
+        return opponent;
+    }
+
+    // Completed by the host when the battle is over, exceptionally if it failed
+    CompletableFuture<BattleResult> getResult() {
+        return result;
+    }
+
+    /**
+     * Claims the battle for a joining player.
+     *
+     * @param player The joining player.
+     * @return False if another player claimed it first or the host gave up waiting.
+     */
+    boolean claim(Contender player) {
+        return opponent.complete(player);
+    }
+
+    /**
+     * Closes the battle for the host that gives up waiting.
+     *
+     * @return False if a player claimed it first.
+     */
+    boolean close() {
+        return opponent.complete(null);
+    }
+}
@@ -0,0 +1,28 @@
+package at.technikum.server;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs waits in which a request handler blocks on another request, e.g. a battle host waiting for an opponent.
+ * The server decides how: if it limits the requests running at the same time, a waiting request must not count
+ * against the limit, or it could hold the slot the request it waits for needs.
+ */
+public interface BlockingWait {
+
+    // Runs the wait on the calling thread; for servers without a request limit
+    BlockingWait DIRECT = new BlockingWait() {
+        @Override
+        public <T> T await(Supplier<T> wait) {
+            return wait.get();
+        }
+    };
+
+    /**
+     * Runs a wait on the calling thread.
+     *
+     * @param wait The wait, e.g. for a battle opponent.
+     * @param <T>  The result of the wait.
+     * @return The result of the wait.
+     */
+    <T> T await(Supplier<T> wait);
+}
@@ -0,0 +1,25 @@
+package at.technikum.server;
+
+import java.util.function.Supplier;
+
+/**
+ * A {@link BlockingWait} that the application hands to its services before the server exists,
+ * and that the server points to its own implementation when it starts.
+ * Until then, waits run directly.
+ */
+public class BlockingWaitHook implements BlockingWait {
+
+    private volatile BlockingWait installed = BlockingWait.DIRECT;
+
+    /**
+     * @param blockingWait How waits are run from now on.
+     */
+    public void install(BlockingWait blockingWait) {
+        this.installed = blockingWait;
+    }
+
+    @Override
+    public <T> T await(Supplier<T> wait) {
+        return installed.await(wait);
+    }
+}
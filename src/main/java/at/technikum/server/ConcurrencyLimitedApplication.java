@@ -0,0 +1,98 @@
+package at.technikum.server;
+
+import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpStatus;
+import at.technikum.server.http.Request;
+import at.technikum.server.http.Response;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Wraps a {@link ServerApplication} so that at most a fixed number of requests run at the same time.
+ * Handlers waiting for a permit simply park, which is cheap on virtual threads.
+ * <p>
+ * Handlers that wait for another request rather than for the database, e.g. a battle host waiting for an opponent,
+ * give their permit back for the wait through {@link #await(Supplier)}, which the server installs as the
+ * application's {@link BlockingWait}. Otherwise waiting requests could hold every permit while the requests they wait
+ * for queue behind them.
+ */
+public class ConcurrencyLimitedApplication implements ServerApplication, BlockingWait {
+
+    // Set while the current thread holds a permit of this instance
+    private final ThreadLocal<Boolean> holdsPermit = new ThreadLocal<>();
+
+    private final ServerApplication delegate;
+    private final Semaphore permits;
+    private final int maxQueuedRequests;
+
+    public ConcurrencyLimitedApplication(ServerApplication delegate, int maxInFlightRequests) {
+        this(delegate, maxInFlightRequests, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param delegate            The application handling the requests.
+     * @param maxInFlightRequests Requests handled at the same time.
+     * @param maxQueuedRequests   Requests that may wait for a permit; further ones get a 503 right away.
+     */
+    public ConcurrencyLimitedApplication(ServerApplication delegate, int maxInFlightRequests, int maxQueuedRequests) {
+        this.delegate = delegate;
+        // Fair, so that parked requests are served in arrival order
+        this.permits = new Semaphore(maxInFlightRequests, true);
+        this.maxQueuedRequests = maxQueuedRequests;
+    }
+
+    @Override
+    public Response handle(Request request) {
+        try {
+            // The timed tryAcquire respects the fair order, unlike the untimed one
+            if (!permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                if (permits.getQueueLength() >= maxQueuedRequests) {
+                    return new Response(HttpStatus.SERVICE_UNAVAILABLE, HttpContentType.TEXT_PLAIN, HttpStatus.SERVICE_UNAVAILABLE.getMessage());
+                }
+                permits.acquire();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new Response(HttpStatus.SERVICE_UNAVAILABLE, HttpContentType.TEXT_PLAIN, HttpStatus.SERVICE_UNAVAILABLE.getMessage());
+        }
+
+        holdsPermit.set(Boolean.TRUE);
+        try {
+            return delegate.handle(request);
+        } finally {
+            holdsPermit.remove();
+            permits.release();
+        }
+    }
+
+    /**
+     * Runs a wait without counting it against the limit: the permit of the current request is released for the
+     * wait and taken again afterwards. Outside a limited request the wait simply runs.
+     *
+     * @param wait The wait, e.g. for a battle opponent.
+     * @param <T>  The result of the wait.
+     * @return The result of the wait.
+     */
+    @Override
+    public <T> T await(Supplier<T> wait) {
+        if (holdsPermit.get() == null) {
+            return wait.get();
+        }
+        permits.release();
+        try {
+            return wait.get();
+        } finally {
+            // Uninterruptibly, so the release in handle always has a permit to give back
+            permits.acquireUninterruptibly();
+        }
+    }
+
+    /**
+     * @return The number of requests currently waiting for a permit.
+     */
+    public int getQueuedRequests() {
+        return permits.getQueueLength();
+    }
+}
@@ -0,0 +1,57 @@
+package at.technikum.server;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordingStream;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Reports virtual threads that stay pinned to their carrier thread, e.g. while blocking inside a
+ * synchronized block of the JDBC driver. Uses the JDK Flight Recorder event jdk.VirtualThreadPinned.
+ */
+public class PinningDiagnostics {
+
+    // Number of stack frames printed per pinning event
+    private static final int MAX_FRAMES = 8;
+
+    private RecordingStream stream;
+
+    /**
+     * Starts listening for pinning events in the background.
+     *
+     * @param threshold Only pinning that lasts at least this long is reported.
+     */
+    public void start(Duration threshold) {
+        stream = new RecordingStream();
+        stream.enable("jdk.VirtualThreadPinned").withThreshold(threshold).withStackTrace();
+        stream.onEvent("jdk.VirtualThreadPinned", this::report);
+        stream.startAsync();
+        System.out.println("Virtual thread pinning diagnostics enabled (threshold " + threshold.toMillis() + " ms)");
+    }
+
+    public void stop() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    private void report(RecordedEvent event) {
+        StringBuilder message = new StringBuilder("Virtual thread pinned for ")
+                .append(event.getDuration().toMillis()).append(" ms");
+
+        if (event.getStackTrace() != null) {
+            List<RecordedFrame> frames = event.getStackTrace().getFrames();
+            for (int i = 0; i < Math.min(MAX_FRAMES, frames.size()); i++) {
+                RecordedFrame frame = frames.get(i);
+                message.append(System.lineSeparator())
+                        .append("    at ").append(frame.getMethod().getType().getName())
+                        .append('.').append(frame.getMethod().getName())
+                        .append(" (line ").append(frame.getLineNumber()).append(')');
+            }
+        }
+
+        System.out.println(message);
+    }
+}
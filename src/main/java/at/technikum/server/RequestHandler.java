@@ -1,35 +1,52 @@
 package at.technikum.server;
 
+import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
-import at.technikum.server.util.HttpRequestParser;
-import at.technikum.server.util.HttpResponseFormatter;
+import at.technikum.server.util.HttpRequestDecoder;
+import at.technikum.server.util.EncodedResponse;
+import at.technikum.server.util.HttpResponseWriter;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
 import java.net.Socket;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
 
 public class RequestHandler implements Runnable {
 
-    private BufferedReader in;
-    private PrintWriter out;
+    // Requests larger than this are rejected
+    private static final int MAX_REQUEST_BYTES = 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private InputStream in;
+    private WritableByteChannel out;
+
+    // Received bytes not decoded yet, reused for all requests on the connection
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
 
     private final Socket client;
 
     private final ServerApplication app;
 
-    // Instances of HttpRequestParser and HttpResponseFormatter
-    private final HttpRequestParser requestParser = new HttpRequestParser();
-    private final HttpResponseFormatter responseFormatter = new HttpResponseFormatter();
+    // Keep-alive limits: idle time between two requests and requests served per connection
+    private final int keepAliveTimeoutMillis;
+    private final int maxRequestsPerConnection;
 
+    // Instances of HttpRequestDecoder and HttpResponseWriter
+    private final HttpRequestDecoder requestDecoder = new HttpRequestDecoder();
+    private final HttpResponseWriter responseWriter = new HttpResponseWriter();
 
-    public RequestHandler(Socket client, ServerApplication app) {
+
+    public RequestHandler(Socket client, ServerApplication app, ServerConfig config) {
         this.client = client;
         this.app = app;
+        this.keepAliveTimeoutMillis = config.getKeepAliveTimeoutMillis();
+        this.maxRequestsPerConnection = config.getMaxRequestsPerConnection();
     }
 
     @Override
@@ -41,52 +58,95 @@ public class RequestHandler implements Runnable {
         }
     }
 
+    /**
+     * Serves requests on the client socket until the client closes the connection, asks for "Connection: close",
+     * stays idle longer than the keep-alive timeout or reaches the request limit.
+     * Pipelined requests are answered one after another in the order they arrived.
+     */
     public void handle() throws IOException {
-        in = new BufferedReader(new InputStreamReader(client.getInputStream()));
-
-        String httpRequest = getHttpStringFromStream(in);
-
-        // Use instance of HttpRequestParser
-        Request request = requestParser.toRequestObject(httpRequest);
-        Response response = app.handle(request);
-
-        out = new PrintWriter(client.getOutputStream(), true);
-
-        // Use instance of HttpResponseFormatter
-        out.write(responseFormatter.toResponseString(response));
-
-        out.close();
-        in.close();
-        client.close();
+        try {
+            client.setSoTimeout(keepAliveTimeoutMillis);
+            in = client.getInputStream();
+            // Sockets accepted from a channel support gathering writes, plain sockets fall back to the stream
+            out = client.getChannel() != null ? client.getChannel() : Channels.newChannel(client.getOutputStream());
+
+            int handledRequests = 0;
+            boolean keepAlive = true;
+            while (keepAlive) {
+                Request request;
+                try {
+                    request = readRequest();
+                } catch (SocketTimeoutException e) {
+                    // Idle connection - close it
+                    break;
+                } catch (IllegalArgumentException e) {
+                    Response badRequest = new Response(HttpStatus.BAD_REQUEST, HttpContentType.TEXT_PLAIN, "Bad Request: " + e.getMessage());
+                    write(badRequest, false);
+                    break;
+                }
+                if (request == null) {
+                    // Client closed the connection
+                    break;
+                }
+
+                handledRequests++;
+                keepAlive = request.isKeepAliveRequested() && handledRequests < maxRequestsPerConnection;
+
+                Response response = app.handle(request);
+
+                // Use instance of HttpResponseWriter
+                write(response, keepAlive);
+            }
+        } finally {
+            client.close();
+        }
     }
 
-    // THOUGHT: create a SocketReader class
-    private String getHttpStringFromStream(BufferedReader in) throws IOException {
-        StringBuilder builder = new StringBuilder();
-
-        String inputLine;
-        while ((inputLine = in.readLine()) != null && !inputLine.equals("")) {
-            builder
-                    .append(inputLine)
-                    .append(System.lineSeparator());
+    private void write(Response response, boolean keepAlive) throws IOException {
+        EncodedResponse encoded = responseWriter.encode(response, keepAlive);
+        try {
+            encoded.writeFully(out);
+        } finally {
+            encoded.release();
         }
+    }
 
-        String httpRequest = builder.toString();
-
-        Pattern regex = Pattern.compile("^Content-Length:\\s(.+)", Pattern.MULTILINE);
-        Matcher matcher = regex.matcher(httpRequest);
-
-        if (!matcher.find()) {
-            return builder.toString();
+    /**
+     * Reads from the socket until the decoder has a complete request.
+     * Bytes belonging to the next pipelined request stay in the buffer for the next call.
+     *
+     * @return The request, or null if the client closed the connection.
+     * @throws IllegalArgumentException If the received bytes are not a valid request.
+     */
+    private Request readRequest() throws IOException {
+        while (true) {
+            buffer.flip();
+            Request request;
+            try {
+                request = requestDecoder.decode(buffer);
+            } finally {
+                buffer.compact();
+            }
+            if (request != null) {
+                return request;
+            }
+
+            if (!buffer.hasRemaining()) {
+                if (buffer.capacity() >= MAX_REQUEST_BYTES) {
+                    throw new IllegalArgumentException("Request too large");
+                }
+                // Grow the buffer, the request does not fit yet
+                ByteBuffer bigger = ByteBuffer.allocate(Math.min(buffer.capacity() * 2, MAX_REQUEST_BYTES));
+                buffer.flip();
+                bigger.put(buffer);
+                buffer = bigger;
+            }
+
+            int read = in.read(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            if (read < 0) {
+                return null;
+            }
+            buffer.position(buffer.position() + read);
         }
-
-        builder.append(System.lineSeparator());
-
-        int contentLength = Integer.parseInt(matcher.group(1));
-        char[] buffer = new char[contentLength];
-        in.read(buffer, 0, contentLength);
-        builder.append(buffer);
-
-        return builder.toString();
     }
 }
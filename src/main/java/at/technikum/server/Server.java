@@ -1,33 +1,98 @@
 package at.technikum.server;
 
+import at.technikum.server.nio.NioServer;
+
 import java.io.IOException;
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class Server {
 
-    private ServerSocket server;
+    // Channel based, so accepted sockets support gathering writes
+    private ServerSocketChannel server;
 
     private final ServerApplication app;
 
+    private final ServerConfig config;
+
     public Server(ServerApplication app) {
+        this(app, ServerConfig.fromSystemProperties());
+    }
+
+    public Server(ServerApplication app, ServerConfig config) {
         this.app = app;
+        this.config = config;
     }
 
     public void start() {
+        switch (config.getMode()) {
+            case NIO:
+                startNio();
+                break;
+            case VIRTUAL_THREADS:
+                startVirtualThreads();
+                break;
+            case THREAD_PER_CONNECTION:
+            default:
+                startThreadPerConnection();
+                break;
+        }
+    }
+
+    private void startNio() {
+        try {
+            new NioServer(config, app).start();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void startVirtualThreads() {
+        if (config.getPinningThresholdMillis() > 0) {
+            new PinningDiagnostics().start(Duration.ofMillis(config.getPinningThresholdMillis()));
+        }
+
+        // Virtual threads are cheap, the database is not: cap the requests running at once
+        ConcurrencyLimitedApplication limitedApp = new ConcurrencyLimitedApplication(app, config.getMaxInFlightRequests());
+        // Handlers waiting for another request give their slot back meanwhile
+        app.installBlockingWait(limitedApp);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            server = ServerSocketChannel.open().bind(new InetSocketAddress(config.getPort()));
+
+            System.out.println("Server started on http://localhost:" + config.getPort()
+                    + " (virtual threads, max " + config.getMaxInFlightRequests() + " requests in flight)");
+
+            while (true) {
+                Socket socket = server.accept().socket();
+                executor.execute(new RequestHandler(socket, limitedApp, config));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void startThreadPerConnection() {
+        // Every connection has its own thread and nothing is limited, so waits simply block that thread
+        app.installBlockingWait(BlockingWait.DIRECT);
+
         try {
-            server = new ServerSocket(10001);
+            server = ServerSocketChannel.open().bind(new InetSocketAddress(config.getPort()));
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
 
-        System.out.println("Server started on http://localhost:10001");
+        System.out.println("Server started on http://localhost:" + config.getPort());
 
         while (true) {
             try {
-                Socket socket = server.accept();
+                Socket socket = server.accept().socket();
 
-                RequestHandler handler = new RequestHandler(socket, app);
+                RequestHandler handler = new RequestHandler(socket, app, config);
                 Thread thread = new Thread(handler);
                 thread.start();
 
@@ -6,4 +6,12 @@ import at.technikum.server.http.Response;
 public interface ServerApplication {
 
     Response handle(Request request);
+
+    /**
+     * Called by the server before it accepts connections, with the way handlers must run waits on other requests.
+     *
+     * @param blockingWait How the server wants blocking waits to run.
+     */
+    default void installBlockingWait(BlockingWait blockingWait) {
+    }
 }
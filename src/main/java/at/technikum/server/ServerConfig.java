@@ -0,0 +1,99 @@
+package at.technikum.server;
+
+/**
+ * Runtime settings of the {@link Server}.
+ * Every value can be overridden with a system property (e.g. -Dmtcg.server.mode=nio).
+ */
+public class ServerConfig {
+
+    private final int port;
+    private final ServerMode mode;
+
+    // Keep-alive: idle time before an open connection is closed and requests served per connection
+    private final int keepAliveTimeoutMillis;
+    private final int maxRequestsPerConnection;
+
+    // NIO mode: threads running a selector loop
+    private final int ioThreads;
+
+    // NIO mode: requests in ServerApplication.handle at the same time (on virtual threads, battles waiting for an
+    // opponent excluded) and requests that may wait for one of these slots
+    private final int workerThreads;
+    private final int workerQueueCapacity;
+
+    // Virtual thread mode: requests handled at the same time (keeps database connections bounded)
+    private final int maxInFlightRequests;
+
+    // Virtual thread mode: report virtual threads pinned to their carrier for at least this long (0 = off)
+    private final int pinningThresholdMillis;
+
+    public ServerConfig(int port, ServerMode mode, int keepAliveTimeoutMillis, int maxRequestsPerConnection,
+                        int ioThreads, int workerThreads, int workerQueueCapacity,
+                        int maxInFlightRequests, int pinningThresholdMillis) {
+        this.port = port;
+        this.mode = mode;
+        this.keepAliveTimeoutMillis = keepAliveTimeoutMillis;
+        this.maxRequestsPerConnection = maxRequestsPerConnection;
+        this.ioThreads = ioThreads;
+        this.workerThreads = workerThreads;
+        this.workerQueueCapacity = workerQueueCapacity;
+        this.maxInFlightRequests = maxInFlightRequests;
+        this.pinningThresholdMillis = pinningThresholdMillis;
+    }
+
+    /**
+     * Creates the configuration from system properties, falling back to defaults for missing values.
+     *
+     * @return The server configuration.
+     */
+    public static ServerConfig fromSystemProperties() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return new ServerConfig(
+                Integer.getInteger("mtcg.server.port", 10001),
+                ServerMode.fromName(System.getProperty("mtcg.server.mode", ServerMode.THREAD_PER_CONNECTION.name())),
+                Integer.getInteger("mtcg.server.keepAliveTimeoutMillis", 5000),
+                Integer.getInteger("mtcg.server.maxRequestsPerConnection", 100),
+                Integer.getInteger("mtcg.server.ioThreads", Math.max(1, Math.min(4, cores / 2))),
+                Integer.getInteger("mtcg.server.workerThreads", 32),
+                Integer.getInteger("mtcg.server.workerQueueCapacity", 1024),
+                Integer.getInteger("mtcg.server.maxInFlight", 64),
+                Integer.getInteger("mtcg.server.pinningThresholdMillis", 0)
+        );
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public ServerMode getMode() {
+        return mode;
+    }
+
+    public int getKeepAliveTimeoutMillis() {
+        return keepAliveTimeoutMillis;
+    }
+
+    public int getMaxRequestsPerConnection() {
+        return maxRequestsPerConnection;
+    }
+
+    public int getIoThreads() {
+        return ioThreads;
+    }
+
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    public int getWorkerQueueCapacity() {
+        return workerQueueCapacity;
+    }
+
+    public int getMaxInFlightRequests() {
+        return maxInFlightRequests;
+    }
+
+    public int getPinningThresholdMillis() {
+        return pinningThresholdMillis;
+    }
+}
@@ -0,0 +1,26 @@
+package at.technikum.server;
+
+/**
+ * The ways the {@link Server} can dispatch incoming connections.
+ */
+public enum ServerMode {
+    // One platform thread per accepted socket (original behaviour)
+    THREAD_PER_CONNECTION,
+
+    // Selector based event loop with a small set of I/O threads; requests run on a bounded number of virtual threads
+    NIO,
+
+    // One virtual thread per accepted socket, in-flight requests capped by a semaphore
+    VIRTUAL_THREADS;
+
+    /**
+     * Resolves a server mode from its name, ignoring case and accepting dashes instead of underscores.
+     *
+     * @param name The configured mode name, e.g. "nio" or "virtual-threads".
+     * @return The matching ServerMode.
+     * @throws IllegalArgumentException If no mode with the given name exists.
+     */
+    public static ServerMode fromName(String name) {
+        return ServerMode.valueOf(name.trim().toUpperCase().replace('-', '_'));
+    }
+}
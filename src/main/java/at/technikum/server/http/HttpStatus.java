@@ -13,7 +13,8 @@ public enum HttpStatus {
     CONFLICT(409, "Conflict in request, resource already exists"),
 
     INTERNAL_SERVER_ERROR(500, "Internal server error"),
-    NOT_IMPLEMENTED(501, "Requested functionality not implemented");
+    NOT_IMPLEMENTED(501, "Requested functionality not implemented"),
+    SERVICE_UNAVAILABLE(503, "Server is busy, please try again later");
 
 
     private final int code;
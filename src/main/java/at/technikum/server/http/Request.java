@@ -1,16 +1,34 @@
 package at.technikum.server.http;
 
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
 
 public class Request {
 
     // GET, POST, PUT, DELETE
     private String method;
 
-    // /, /home, /package
+    private HttpMethod httpMethod;
+
+    // /, /home, /package, /deck?format=plain
     private String route;
 
+    // route without the query string: /deck
+    private String path;
+
+    // format -> plain, parsed once when the route is set
+    private Map<String, String> queryParameters = Collections.emptyMap();
+
+    // {username} -> kienboec, filled by the router
+    private Map<String, String> pathParameters = Collections.emptyMap();
+
+    // HTTP/1.1, HTTP/1.0
+    private String version = "HTTP/1.1";
+
     private String host;
 
     // application/json, text/plain
@@ -19,7 +37,7 @@ public class Request {
     // 0, 17
     private int contentLength;
 
-    private final Map<String, String> headers = new HashMap<>(); // for multiple Headers
+    private final Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER); // for multiple Headers, names are case-insensitive
 
     // none, "{ "name": "foo" }"
     private String body;
@@ -29,15 +47,66 @@ public class Request {
     }
 
     public void setMethod(HttpMethod httpMethod) {
+        this.httpMethod = httpMethod;
         this.method = httpMethod.getMethod();
     }
 
+    public HttpMethod getHttpMethod() {
+        return httpMethod;
+    }
+
     public String getRoute() {
         return route;
     }
 
+    /**
+     * Sets the requested route and splits it into path and query parameters.
+     *
+     * @param route The route as sent by the client, including the query string.
+     */
     public void setRoute(String route) {
         this.route = route;
+
+        int queryStart = route.indexOf('?');
+        if (queryStart < 0) {
+            this.path = route;
+            this.queryParameters = Collections.emptyMap();
+        } else {
+            this.path = route.substring(0, queryStart);
+            this.queryParameters = parseQuery(route.substring(queryStart + 1));
+        }
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Map<String, String> getQueryParameters() {
+        return queryParameters;
+    }
+
+    public String getQueryParameter(String name) {
+        return queryParameters.get(name);
+    }
+
+    public Map<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
+    public String getPathParameter(String name) {
+        return pathParameters.get(name);
+    }
+
+    public void setPathParameters(Map<String, String> pathParameters) {
+        this.pathParameters = pathParameters;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(String version) {
+        this.version = version;
     }
 
     public String getHost() {
@@ -88,4 +157,33 @@ public class Request {
     public String getAuthenticationHeader() {
         return getHeader("Authorization");
     }
+
+    /**
+     * Checks whether the client wants to reuse the connection for further requests.
+     * HTTP/1.1 keeps connections open unless "Connection: close" is sent, HTTP/1.0 only with "Connection: keep-alive".
+     *
+     * @return True if the connection should stay open after the response.
+     */
+    public boolean isKeepAliveRequested() {
+        String connection = getHeader("Connection");
+        if ("HTTP/1.0".equals(version)) {
+            return connection != null && connection.equalsIgnoreCase("keep-alive");
+        }
+        return connection == null || !connection.equalsIgnoreCase("close");
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        for (String pair : query.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            // The first value wins if a parameter is repeated
+            parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
 }
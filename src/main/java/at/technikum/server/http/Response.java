@@ -2,6 +2,11 @@ package at.technikum.server.http;
 
 public class Response {
 
+    // Kept as enums as well, so the response writer can use their pre-encoded bytes
+    private HttpStatus status;
+
+    private HttpContentType httpContentType;
+
     private int statusCode;
 
     private String statusMessage;
@@ -14,17 +19,24 @@ public class Response {
     }
 
     public Response(HttpStatus httpStatus, HttpContentType httpContentType, String body) {
+        this.status = httpStatus;
         this.statusCode = httpStatus.getCode();
         this.statusMessage = httpStatus.getMessage();
+        this.httpContentType = httpContentType;
         this.contentType = httpContentType.getMimeType();
         this.body = body;
     }
 
     public void setStatus(HttpStatus httpStatus) {
+        this.status = httpStatus;
         this.statusCode = httpStatus.getCode();
         this.statusMessage = httpStatus.getMessage();
     }
 
+    public HttpStatus getStatus() {
+        return status;
+    }
+
     public int getStatusCode() {
         return statusCode;
     }
@@ -38,9 +50,14 @@ public class Response {
     }
 
     public void setContentType(HttpContentType httpContentType) {
+        this.httpContentType = httpContentType;
         this.contentType = httpContentType.getMimeType();
     }
 
+    public HttpContentType getHttpContentType() {
+        return httpContentType;
+    }
+
     public String getBody() {
         return body;
     }
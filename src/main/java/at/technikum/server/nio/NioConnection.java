@@ -0,0 +1,173 @@
+package at.technikum.server.nio;
+
+import at.technikum.server.http.Request;
+import at.technikum.server.util.EncodedResponse;
+import at.technikum.server.util.HttpRequestDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * State of a single client connection handled by an {@link NioEventLoop}.
+ * Only the owning event loop thread reads from or writes to the channel.
+ */
+class NioConnection {
+
+    // Requests larger than this are rejected by closing the connection
+    static final int MAX_REQUEST_BYTES = 1024 * 1024;
+
+    private static final int INITIAL_BUFFER_SIZE = 4096;
+
+    private final SocketChannel channel;
+    private final NioEventLoop loop;
+    private SelectionKey key;
+
+    private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private EncodedResponse pendingResponse;
+    private final HttpRequestDecoder decoder = new HttpRequestDecoder();
+
+    // Keep-alive bookkeeping, only touched by the owning loop (and the worker while a request is in flight)
+    private int handledRequests;
+    private boolean inFlight;
+    private volatile boolean keepAlive;
+    private long lastActivity = System.currentTimeMillis();
+
+    NioConnection(SocketChannel channel, NioEventLoop loop) {
+        this.channel = channel;
+        this.loop = loop;
+    }
+
+    SocketChannel getChannel() {
+        return channel;
+    }
+
+    NioEventLoop getLoop() {
+        return loop;
+    }
+
+    int incrementHandledRequests() {
+        return ++handledRequests;
+    }
+
+    boolean isInFlight() {
+        return inFlight;
+    }
+
+    void setInFlight(boolean inFlight) {
+        this.inFlight = inFlight;
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    void setKeepAlive(boolean keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    long getLastActivity() {
+        return lastActivity;
+    }
+
+    void touch() {
+        this.lastActivity = System.currentTimeMillis();
+    }
+
+    SelectionKey getKey() {
+        return key;
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    /**
+     * Reads all bytes currently available on the channel into the read buffer.
+     *
+     * @return False if the client closed the connection or the request grew too large, true otherwise.
+     * @throws IOException If reading from the channel fails.
+     */
+    boolean readAvailable() throws IOException {
+        while (true) {
+            if (!readBuffer.hasRemaining()) {
+                if (readBuffer.capacity() >= MAX_REQUEST_BYTES) {
+                    return false;
+                }
+                // Grow the buffer, the request does not fit yet
+                ByteBuffer bigger = ByteBuffer.allocate(Math.min(readBuffer.capacity() * 2, MAX_REQUEST_BYTES));
+                readBuffer.flip();
+                bigger.put(readBuffer);
+                readBuffer = bigger;
+            }
+
+            int read = channel.read(readBuffer);
+            if (read < 0) {
+                return false;
+            }
+            if (read == 0) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Decodes the next complete HTTP request from the read buffer.
+     * Bytes of an incomplete request and of following pipelined requests stay in the buffer.
+     *
+     * @return The request, or null if it has not been fully received yet.
+     * @throws IllegalArgumentException If the received bytes are not a valid request.
+     */
+    Request pollCompleteRequest() {
+        readBuffer.flip();
+        try {
+            return decoder.decode(readBuffer);
+        } finally {
+            readBuffer.compact();
+        }
+    }
+
+    /**
+     * Queues the encoded response for writing; the loop flushes it on the next OP_WRITE.
+     *
+     * @param response The encoded response.
+     */
+    void setResponse(EncodedResponse response) {
+        this.pendingResponse = response;
+    }
+
+    /**
+     * Writes as much of the pending response as the socket accepts, headers and body in one gathering write.
+     *
+     * @return True if the whole response has been written.
+     * @throws IOException If writing to the channel fails.
+     */
+    boolean writePending() throws IOException {
+        if (pendingResponse == null) {
+            return true;
+        }
+        pendingResponse.writeTo(channel);
+        if (pendingResponse.hasRemaining()) {
+            return false;
+        }
+        pendingResponse.release();
+        pendingResponse = null;
+        return true;
+    }
+
+    void close() {
+        if (pendingResponse != null) {
+            pendingResponse.release();
+            pendingResponse = null;
+        }
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            System.out.println("Error closing connection: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package at.technikum.server.nio;
+
+import at.technikum.server.ServerApplication;
+import at.technikum.server.ServerConfig;
+import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpStatus;
+import at.technikum.server.http.Request;
+import at.technikum.server.http.Response;
+import at.technikum.server.util.HttpResponseWriter;
+
+import java.io.IOException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A selector loop owning a set of client connections.
+ * It reads and decodes requests, hands complete requests to the workers and writes the responses back.
+ * Connections are kept open (HTTP keep-alive); pipelined requests are processed one at a time in arrival order.
+ */
+class NioEventLoop implements Runnable {
+
+    // How often idle connections are looked for
+    private static final long IDLE_CHECK_INTERVAL_MILLIS = 1000;
+
+    private final Selector selector;
+    private final ExecutorService workers;
+    private final ServerApplication app;
+    private final int keepAliveTimeoutMillis;
+    private final int maxRequestsPerConnection;
+
+    private final HttpResponseWriter responseWriter = new HttpResponseWriter();
+
+    // Filled by the acceptor and the worker threads, drained by this loop
+    private final Queue<SocketChannel> pendingRegistrations = new ConcurrentLinkedQueue<>();
+    private final Queue<NioConnection> pendingWrites = new ConcurrentLinkedQueue<>();
+
+    private volatile boolean running = true;
+    private long lastIdleCheck = System.currentTimeMillis();
+
+    NioEventLoop(ExecutorService workers, ServerApplication app, ServerConfig config) throws IOException {
+        this.selector = Selector.open();
+        this.workers = workers;
+        this.app = app;
+        this.keepAliveTimeoutMillis = config.getKeepAliveTimeoutMillis();
+        this.maxRequestsPerConnection = config.getMaxRequestsPerConnection();
+    }
+
+    /**
+     * Hands a freshly accepted channel to this loop. Safe to call from any thread.
+     *
+     * @param channel The accepted client channel.
+     */
+    void register(SocketChannel channel) {
+        pendingRegistrations.add(channel);
+        selector.wakeup();
+    }
+
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select(IDLE_CHECK_INTERVAL_MILLIS);
+                registerPendingChannels();
+                enablePendingWrites();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    NioConnection connection = (NioConnection) key.attachment();
+                    if (!key.isValid()) {
+                        connection.close();
+                        continue;
+                    }
+
+                    try {
+                        if (key.isReadable()) {
+                            onReadable(connection);
+                        } else if (key.isWritable()) {
+                            onWritable(connection);
+                        }
+                    } catch (IOException e) {
+                        connection.close();
+                    }
+                }
+
+                closeIdleConnections();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            System.out.println("Event loop stopped: " + e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void registerPendingChannels() throws IOException {
+        SocketChannel channel;
+        while ((channel = pendingRegistrations.poll()) != null) {
+            channel.configureBlocking(false);
+            NioConnection connection = new NioConnection(channel, this);
+            connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+        }
+    }
+
+    private void enablePendingWrites() {
+        NioConnection connection;
+        while ((connection = pendingWrites.poll()) != null) {
+            if (connection.getKey().isValid()) {
+                connection.getKey().interestOps(SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    private void onReadable(NioConnection connection) throws IOException {
+        connection.touch();
+        if (!connection.readAvailable()) {
+            connection.close();
+            return;
+        }
+        dispatchNextRequest(connection);
+    }
+
+    private void onWritable(NioConnection connection) throws IOException {
+        if (!connection.writePending()) {
+            // Socket buffer full, continue on the next OP_WRITE
+            return;
+        }
+
+        connection.touch();
+        connection.setInFlight(false);
+        if (!connection.isKeepAlive()) {
+            connection.close();
+            return;
+        }
+
+        // Read the next request; a pipelined one may already be buffered
+        connection.getKey().interestOps(SelectionKey.OP_READ);
+        dispatchNextRequest(connection);
+    }
+
+    /**
+     * Hands the next complete request of the connection to the worker pool, if there is one.
+     * Only one request per connection is processed at a time so responses keep the request order.
+     */
+    private void dispatchNextRequest(NioConnection connection) {
+        if (connection.isInFlight()) {
+            return;
+        }
+
+        Request request;
+        try {
+            request = connection.pollCompleteRequest();
+        } catch (IllegalArgumentException e) {
+            connection.setInFlight(true);
+            connection.getKey().interestOps(0);
+            connection.setKeepAlive(false);
+            respond(connection, new Response(HttpStatus.BAD_REQUEST, HttpContentType.TEXT_PLAIN, "Bad Request: " + e.getMessage()));
+            return;
+        }
+        if (request == null) {
+            // Wait for the rest of the request
+            return;
+        }
+
+        // Stop reading while the request is being processed
+        connection.setInFlight(true);
+        connection.getKey().interestOps(0);
+        connection.setKeepAlive(request.isKeepAliveRequested()
+                && connection.incrementHandledRequests() < maxRequestsPerConnection);
+
+        try {
+            workers.execute(() -> process(connection, request));
+        } catch (RejectedExecutionException e) {
+            // The server is shutting down - answer right away instead of dropping the request
+            connection.setKeepAlive(false);
+            respond(connection, new Response(HttpStatus.SERVICE_UNAVAILABLE, HttpContentType.TEXT_PLAIN, HttpStatus.SERVICE_UNAVAILABLE.getMessage()));
+        }
+    }
+
+    /**
+     * Runs on a worker thread: lets the application handle the request and queues the response.
+     */
+    private void process(NioConnection connection, Request request) {
+        Response response;
+        try {
+            response = app.handle(request);
+        } catch (RuntimeException e) {
+            connection.setKeepAlive(false);
+            response = new Response(HttpStatus.INTERNAL_SERVER_ERROR, HttpContentType.TEXT_PLAIN, "Internal Server Error: " + e.getMessage());
+        }
+        respond(connection, response);
+    }
+
+    private void respond(NioConnection connection, Response response) {
+        connection.setResponse(responseWriter.encode(response, connection.isKeepAlive()));
+        pendingWrites.add(connection);
+        selector.wakeup();
+    }
+
+    private void closeIdleConnections() {
+        long now = System.currentTimeMillis();
+        if (now - lastIdleCheck < IDLE_CHECK_INTERVAL_MILLIS) {
+            return;
+        }
+        lastIdleCheck = now;
+
+        for (SelectionKey key : selector.keys()) {
+            NioConnection connection = (NioConnection) key.attachment();
+            if (!connection.isInFlight() && now - connection.getLastActivity() > keepAliveTimeoutMillis) {
+                connection.close();
+            }
+        }
+    }
+
+    private void closeAll() {
+        for (SelectionKey key : selector.keys()) {
+            ((NioConnection) key.attachment()).close();
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            System.out.println("Error closing selector: " + e.getMessage());
+        }
+    }
+}
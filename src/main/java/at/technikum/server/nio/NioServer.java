@@ -0,0 +1,78 @@
+package at.technikum.server.nio;
+
+import at.technikum.server.ConcurrencyLimitedApplication;
+import at.technikum.server.ServerApplication;
+import at.technikum.server.ServerConfig;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Non-blocking HTTP server: one acceptor selector, a fixed number of I/O event loops
+ * and virtual threads that run the application, at most {@code workerThreads} at a time.
+ * The number of platform threads is fixed by the configuration and does not grow with the number of connections.
+ */
+public class NioServer {
+
+    private final ServerConfig config;
+    private final ServerApplication app;
+
+    public NioServer(ServerConfig config, ServerApplication app) {
+        this.config = config;
+        this.app = app;
+    }
+
+    /**
+     * Binds the server socket and runs the accept loop on the calling thread.
+     *
+     * @throws IOException If the server socket or a selector cannot be opened.
+     */
+    public void start() throws IOException {
+        // Requests run on virtual threads, limited to workerThreads at a time: a handler parked in matchmaking
+        // gives its slot back, so waiting battle hosts cannot starve the joiners they wait for
+        ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+        ConcurrencyLimitedApplication limitedApp = new ConcurrencyLimitedApplication(app, config.getWorkerThreads(), config.getWorkerQueueCapacity());
+        app.installBlockingWait(limitedApp);
+
+        NioEventLoop[] loops = new NioEventLoop[config.getIoThreads()];
+        for (int i = 0; i < loops.length; i++) {
+            loops[i] = new NioEventLoop(workers, limitedApp, config);
+            Thread thread = new Thread(loops[i], "mtcg-io-" + i);
+            thread.start();
+        }
+
+        try (ServerSocketChannel serverChannel = ServerSocketChannel.open();
+             Selector acceptSelector = Selector.open()) {
+            serverChannel.bind(new InetSocketAddress(config.getPort()));
+            serverChannel.configureBlocking(false);
+            serverChannel.register(acceptSelector, SelectionKey.OP_ACCEPT);
+
+            System.out.println("Server started on http://localhost:" + config.getPort() + " (NIO, "
+                    + loops.length + " I/O threads, " + config.getWorkerThreads() + " workers)");
+
+            int next = 0;
+            while (true) {
+                acceptSelector.select();
+                acceptSelector.selectedKeys().clear();
+
+                SocketChannel client;
+                while ((client = serverChannel.accept()) != null) {
+                    // Spread connections round robin over the event loops
+                    loops[next].register(client);
+                    next = (next + 1) % loops.length;
+                }
+            }
+        } finally {
+            for (NioEventLoop loop : loops) {
+                loop.shutdown();
+            }
+            workers.shutdown();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package at.technikum.server.routing;
+
+import at.technikum.server.http.Request;
+import at.technikum.server.http.Response;
+
+/**
+ * Handles the requests of one route (method and path template).
+ */
+@FunctionalInterface
+public interface RouteHandler {
+
+    Response handle(Request request);
+}
@@ -0,0 +1,32 @@
+package at.technikum.server.routing;
+
+import java.util.Map;
+
+/**
+ * Result of a successful path lookup in the {@link Router}.
+ */
+public class RouteMatch {
+
+    // Handler for the request method, null if the path exists but not for this method
+    private final RouteHandler handler;
+
+    // Values of the template parameters, e.g. id -> 6cd85277
+    private final Map<String, String> pathParameters;
+
+    RouteMatch(RouteHandler handler, Map<String, String> pathParameters) {
+        this.handler = handler;
+        this.pathParameters = pathParameters;
+    }
+
+    public RouteHandler getHandler() {
+        return handler;
+    }
+
+    public Map<String, String> getPathParameters() {
+        return pathParameters;
+    }
+
+    public boolean isMethodAllowed() {
+        return handler != null;
+    }
+}
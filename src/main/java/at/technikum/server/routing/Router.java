@@ -0,0 +1,116 @@
+package at.technikum.server.routing;
+
+import at.technikum.server.http.HttpMethod;
+import at.technikum.server.http.Request;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Route table built once at startup: a trie over the path segments with the handlers per method at its nodes.
+ * Templates use {@code {name}} for variable segments, e.g. {@code /tradings/{id}}.
+ * A fixed segment wins over a variable one at the same position.
+ * <p>
+ * Routes are added before the server starts; lookups afterwards are read-only and thread-safe.
+ */
+public class Router {
+
+    private static class Node {
+        private final Map<String, Node> children = new HashMap<>();
+        private Node parameterChild;
+        private String parameterName;
+        private final Map<HttpMethod, RouteHandler> handlers = new EnumMap<>(HttpMethod.class);
+    }
+
+    private final Node root = new Node();
+
+    /**
+     * Registers a handler for a method and path template.
+     *
+     * @param method   The HTTP method.
+     * @param template The path template, e.g. /users/{username}.
+     * @param handler  The handler for matching requests.
+     * @return This router, for chaining.
+     * @throws IllegalStateException If the route is already taken or a parameter is named differently than before.
+     */
+    public Router add(HttpMethod method, String template, RouteHandler handler) {
+        Node node = root;
+        for (String segment : template.split("/")) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            if (segment.startsWith("{") && segment.endsWith("}")) {
+                String name = segment.substring(1, segment.length() - 1);
+                if (node.parameterChild == null) {
+                    node.parameterChild = new Node();
+                    node.parameterName = name;
+                } else if (!node.parameterName.equals(name)) {
+                    throw new IllegalStateException("Conflicting parameter {" + name + "} in " + template);
+                }
+                node = node.parameterChild;
+            } else {
+                node = node.children.computeIfAbsent(segment, key -> new Node());
+            }
+        }
+
+        if (node.handlers.putIfAbsent(method, handler) != null) {
+            throw new IllegalStateException("Route " + method.getMethod() + " " + template + " is already registered");
+        }
+        return this;
+    }
+
+    /**
+     * Looks up the route of a request.
+     *
+     * @param request The request; its path (without query string) is matched.
+     * @return The match, or null if no route has this path.
+     */
+    public RouteMatch match(Request request) {
+        return match(request.getHttpMethod(), request.getPath());
+    }
+
+    /**
+     * Looks up a route by method and path.
+     *
+     * @param method The request method.
+     * @param path   The path without query string.
+     * @return The match, or null if no route has this path. The match has no handler if the path exists for other methods only.
+     */
+    public RouteMatch match(HttpMethod method, String path) {
+        Node node = root;
+        Map<String, String> parameters = Collections.emptyMap();
+
+        int start = 0;
+        int length = path.length();
+        while (start < length) {
+            int end = path.indexOf('/', start);
+            if (end < 0) {
+                end = length;
+            }
+            if (end > start) {
+                String segment = path.substring(start, end);
+                Node child = node.children.get(segment);
+                if (child == null && node.parameterChild != null) {
+                    if (parameters.isEmpty()) {
+                        parameters = new HashMap<>(4);
+                    }
+                    parameters.put(node.parameterName, segment);
+                    child = node.parameterChild;
+                }
+                if (child == null) {
+                    return null;
+                }
+                node = child;
+            }
+            start = end + 1;
+        }
+
+        if (node.handlers.isEmpty()) {
+            // Only an intermediate segment, e.g. /transactions
+            return null;
+        }
+        return new RouteMatch(method == null ? null : node.handlers.get(method), parameters);
+    }
+}
@@ -0,0 +1,65 @@
+package at.technikum.server.util;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded, thread-safe pool of equally sized direct buffers.
+ * Direct buffers are handed to the socket without the extra copy the JDK makes for heap buffers.
+ * Requests for more than the pooled size get a one-off heap buffer that is left to the garbage collector.
+ */
+public class ByteBufferPool {
+
+    private final int bufferSize;
+    private final int maxPooled;
+
+    private final Queue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    /**
+     * @param bufferSize Capacity of the pooled buffers.
+     * @param maxPooled  Maximum number of idle buffers kept for reuse.
+     */
+    public ByteBufferPool(int bufferSize, int maxPooled) {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * Takes a cleared buffer with at least the given capacity.
+     *
+     * @param capacity The number of bytes the caller needs.
+     * @return A pooled buffer, or a new one if the pool is empty or the capacity exceeds the pooled size.
+     */
+    public ByteBuffer acquire(int capacity) {
+        if (capacity > bufferSize) {
+            return ByteBuffer.allocate(capacity);
+        }
+        ByteBuffer buffer = pool.poll();
+        if (buffer == null) {
+            return ByteBuffer.allocateDirect(bufferSize);
+        }
+        pooled.decrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Returns a buffer taken with {@link #acquire(int)}. The caller must not use it afterwards.
+     *
+     * @param buffer The buffer to give back.
+     */
+    public void release(ByteBuffer buffer) {
+        if (!buffer.isDirect() || buffer.capacity() != bufferSize) {
+            return;
+        }
+        if (pooled.incrementAndGet() > maxPooled) {
+            // Pool is full, let this one go
+            pooled.decrementAndGet();
+            return;
+        }
+        buffer.clear();
+        pool.offer(buffer);
+    }
+}
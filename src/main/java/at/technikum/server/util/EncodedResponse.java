@@ -0,0 +1,72 @@
+package at.technikum.server.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A response encoded by {@link HttpResponseWriter}: the header bytes and the body bytes in two pooled buffers,
+ * sent together with one gathering write.
+ * The buffers go back to their pools with {@link #release()} once the response has been written.
+ */
+public class EncodedResponse {
+
+    private final ByteBuffer[] buffers;
+    private final ByteBufferPool headerPool;
+    private final ByteBufferPool bodyPool;
+    private boolean released;
+
+    EncodedResponse(ByteBuffer header, ByteBuffer body, ByteBufferPool headerPool, ByteBufferPool bodyPool) {
+        this.buffers = new ByteBuffer[]{header, body};
+        this.headerPool = headerPool;
+        this.bodyPool = bodyPool;
+    }
+
+    public boolean hasRemaining() {
+        return buffers[0].hasRemaining() || buffers[1].hasRemaining();
+    }
+
+    /**
+     * Writes as much as the channel accepts with one gathering write.
+     * Meant for non-blocking channels; call again while {@link #hasRemaining()} is true.
+     *
+     * @param channel The channel to write to.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(GatheringByteChannel channel) throws IOException {
+        channel.write(buffers);
+    }
+
+    /**
+     * Writes the whole response to a blocking channel.
+     *
+     * @param channel The channel to write to, gathering if the channel supports it.
+     * @throws IOException If writing fails.
+     */
+    public void writeFully(WritableByteChannel channel) throws IOException {
+        if (channel instanceof GatheringByteChannel gathering) {
+            while (hasRemaining()) {
+                gathering.write(buffers);
+            }
+            return;
+        }
+        for (ByteBuffer buffer : buffers) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+    /**
+     * Gives the buffers back to their pools. Safe to call more than once.
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        headerPool.release(buffers[0]);
+        bodyPool.release(buffers[1]);
+    }
+}
@@ -0,0 +1,298 @@
+package at.technikum.server.util;
+
+import at.technikum.server.http.HttpMethod;
+import at.technikum.server.http.Request;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Incremental HTTP/1.1 request decoder working directly on the bytes received from the socket.
+ * Bytes can be fed in any chunks; the decoder remembers where it stopped and continues once more bytes arrived.
+ * Method, version and well-known header names/values are matched byte by byte and mapped to shared constants,
+ * so only the route, uncommon header values and the body turn into new strings.
+ * <p>
+ * A decoder keeps per-request state and must not be shared between connections.
+ */
+public class HttpRequestDecoder {
+
+    // Longest accepted request line or header line
+    public static final int MAX_LINE_BYTES = 8192;
+
+    // Largest accepted body
+    public static final int MAX_BODY_BYTES = 1024 * 1024 - MAX_LINE_BYTES;
+
+    private static final String HTTP_1_0 = "HTTP/1.0";
+    private static final String HTTP_1_1 = "HTTP/1.1";
+
+    private static final HttpMethod[] METHODS = HttpMethod.values();
+    private static final byte[][] METHOD_BYTES = ascii(names(METHODS));
+    private static final byte[][] VERSION_BYTES = ascii(new String[]{HTTP_1_1, HTTP_1_0});
+
+    // Header names and values common enough to be worth mapping to constants
+    private static final String[] KNOWN_NAMES = {
+            "Host", "Content-Length", "Content-Type", "Connection", "Authorization", "Accept", "User-Agent",
+            "Accept-Encoding", "Prefer"
+    };
+    private static final byte[][] KNOWN_NAME_BYTES = ascii(KNOWN_NAMES);
+
+    // Positions in KNOWN_NAMES of the headers the request keeps separately
+    private static final int HOST = 0;
+    private static final int CONTENT_LENGTH = 1;
+    private static final int CONTENT_TYPE = 2;
+
+    private static final String[] KNOWN_VALUES = {
+            "application/json", "text/plain", "keep-alive", "close", "*/*"
+    };
+    private static final byte[][] KNOWN_VALUE_BYTES = ascii(KNOWN_VALUES);
+
+    private enum State {
+        REQUEST_LINE,
+        HEADERS,
+        BODY
+    }
+
+    private State state = State.REQUEST_LINE;
+    private Request request;
+    private int contentLength;
+
+    // Bytes of the current line already searched for the line feed, so a partial line is not scanned twice
+    private int scanned;
+
+    // Used to turn bytes of a direct buffer into strings
+    private byte[] scratch = new byte[256];
+
+    /**
+     * Decodes as much of the buffer as possible.
+     * The buffer must be in read mode; consumed bytes advance its position, an incomplete line or body stays in place
+     * so the caller can compact the buffer and read more bytes before calling again.
+     *
+     * @param buffer The received bytes.
+     * @return The complete request, or null if more bytes are needed.
+     * @throws IllegalArgumentException If the bytes are not a valid HTTP request or exceed the limits.
+     */
+    public Request decode(ByteBuffer buffer) {
+        while (true) {
+            if (state == State.BODY) {
+                if (buffer.remaining() < contentLength) {
+                    return null;
+                }
+                request.setBody(string(buffer, buffer.position(), contentLength, StandardCharsets.UTF_8));
+                buffer.position(buffer.position() + contentLength);
+                return finish();
+            }
+
+            int lineFeed = findLineFeed(buffer);
+            if (lineFeed < 0) {
+                return null;
+            }
+
+            int start = buffer.position();
+            int end = lineFeed > start && buffer.get(lineFeed - 1) == '\r' ? lineFeed - 1 : lineFeed;
+            buffer.position(lineFeed + 1);
+            scanned = 0;
+
+            if (state == State.REQUEST_LINE) {
+                // Tolerate empty lines in front of a request (e.g. between pipelined requests)
+                if (end > start) {
+                    parseRequestLine(buffer, start, end);
+                    state = State.HEADERS;
+                }
+            } else if (end > start) {
+                parseHeader(buffer, start, end);
+            } else if (contentLength > 0) {
+                state = State.BODY;
+            } else {
+                return finish();
+            }
+        }
+    }
+
+    /**
+     * Drops a partially decoded request, e.g. after a decoding error.
+     */
+    public void reset() {
+        state = State.REQUEST_LINE;
+        request = null;
+        contentLength = 0;
+        scanned = 0;
+    }
+
+    private Request finish() {
+        Request complete = request;
+        reset();
+        return complete;
+    }
+
+    private int findLineFeed(ByteBuffer buffer) {
+        int from = buffer.position() + scanned;
+        int limit = buffer.limit();
+        for (int i = from; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+
+        scanned = limit - buffer.position();
+        if (scanned > MAX_LINE_BYTES) {
+            throw new IllegalArgumentException("Header line too long");
+        }
+        return -1;
+    }
+
+    private void parseRequestLine(ByteBuffer buffer, int start, int end) {
+        int methodEnd = indexOf(buffer, start, end, (byte) ' ');
+        if (methodEnd < 0) {
+            throw new IllegalArgumentException("Malformed request line");
+        }
+        int match = match(buffer, start, methodEnd, METHOD_BYTES, false);
+        if (match < 0) {
+            throw new IllegalArgumentException("Unsupported method " + string(buffer, start, methodEnd - start, StandardCharsets.US_ASCII));
+        }
+
+        int routeStart = methodEnd + 1;
+        int routeEnd = indexOf(buffer, routeStart, end, (byte) ' ');
+        String version;
+        if (routeEnd < 0) {
+            // No version given, treat it like HTTP/1.0
+            routeEnd = end;
+            version = HTTP_1_0;
+        } else {
+            int versionMatch = match(buffer, routeEnd + 1, end, VERSION_BYTES, false);
+            version = versionMatch == 0 ? HTTP_1_1
+                    : versionMatch == 1 ? HTTP_1_0
+                    : string(buffer, routeEnd + 1, end - routeEnd - 1, StandardCharsets.US_ASCII);
+        }
+        if (routeEnd == routeStart) {
+            throw new IllegalArgumentException("Missing route");
+        }
+
+        request = new Request();
+        request.setMethod(METHODS[match]);
+        request.setRoute(string(buffer, routeStart, routeEnd - routeStart, StandardCharsets.UTF_8));
+        request.setVersion(version);
+    }
+
+    private void parseHeader(ByteBuffer buffer, int start, int end) {
+        int colon = indexOf(buffer, start, end, (byte) ':');
+        if (colon <= start) {
+            throw new IllegalArgumentException("Malformed header line");
+        }
+
+        int valueStart = colon + 1;
+        while (valueStart < end && isWhitespace(buffer.get(valueStart))) {
+            valueStart++;
+        }
+        int valueEnd = end;
+        while (valueEnd > valueStart && isWhitespace(buffer.get(valueEnd - 1))) {
+            valueEnd--;
+        }
+
+        int nameMatch = match(buffer, start, colon, KNOWN_NAME_BYTES, true);
+        String name = nameMatch >= 0 ? KNOWN_NAMES[nameMatch] : string(buffer, start, colon - start, StandardCharsets.US_ASCII);
+        int valueMatch = match(buffer, valueStart, valueEnd, KNOWN_VALUE_BYTES, true);
+        String value = valueMatch >= 0 ? KNOWN_VALUES[valueMatch] : string(buffer, valueStart, valueEnd - valueStart, StandardCharsets.UTF_8);
+
+        request.addHeader(name, value);
+
+        // Fields the request keeps separately
+        if (nameMatch == HOST) {
+            request.setHost(value);
+        } else if (nameMatch == CONTENT_LENGTH) {
+            contentLength = parseContentLength(buffer, valueStart, valueEnd);
+            request.setContentLength(contentLength);
+        } else if (nameMatch == CONTENT_TYPE) {
+            request.setContentType(value);
+        }
+    }
+
+    private static int parseContentLength(ByteBuffer buffer, int start, int end) {
+        if (start == end) {
+            throw new IllegalArgumentException("Invalid Content-Length");
+        }
+        long length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            if (b < '0' || b > '9') {
+                throw new IllegalArgumentException("Invalid Content-Length");
+            }
+            length = length * 10 + (b - '0');
+            if (length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body too large");
+            }
+        }
+        return (int) length;
+    }
+
+    /**
+     * Finds the candidate equal to the bytes in [start, end).
+     *
+     * @return The index of the matching candidate, or -1.
+     */
+    private static int match(ByteBuffer buffer, int start, int end, byte[][] candidates, boolean ignoreCase) {
+        int length = end - start;
+        for (int c = 0; c < candidates.length; c++) {
+            byte[] candidate = candidates[c];
+            if (candidate.length != length) {
+                continue;
+            }
+            int i = 0;
+            while (i < length && equal(buffer.get(start + i), candidate[i], ignoreCase)) {
+                i++;
+            }
+            if (i == length) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean equal(byte a, byte b, boolean ignoreCase) {
+        if (a == b) {
+            return true;
+        }
+        // ASCII letters only differ in the 0x20 bit
+        return ignoreCase && (a | 0x20) == (b | 0x20) && (a | 0x20) >= 'a' && (a | 0x20) <= 'z';
+    }
+
+    private static int indexOf(ByteBuffer buffer, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t';
+    }
+
+    private String string(ByteBuffer buffer, int start, int length, Charset charset) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, charset);
+        }
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        buffer.get(start, scratch, 0, length);
+        return new String(scratch, 0, length, charset);
+    }
+
+    private static String[] names(HttpMethod[] methods) {
+        String[] names = new String[methods.length];
+        for (int i = 0; i < methods.length; i++) {
+            names[i] = methods[i].getMethod();
+        }
+        return names;
+    }
+
+    private static byte[][] ascii(String[] values) {
+        byte[][] bytes = new byte[values.length][];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = values[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return bytes;
+    }
+}
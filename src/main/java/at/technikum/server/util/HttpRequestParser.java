@@ -6,6 +6,13 @@ import at.technikum.server.http.Request;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+/**
+ * String based request parser used before {@link HttpRequestDecoder}.
+ * Kept as the baseline for the parser benchmark.
+ *
+ * @deprecated Use {@link HttpRequestDecoder}, which parses the received bytes directly.
+ */
+@Deprecated
 public class HttpRequestParser {
 
     public Request toRequestObject(String httpRequest) {
@@ -13,6 +20,7 @@ public class HttpRequestParser {
 
         request.setMethod(getHttpMethod(httpRequest));
         request.setRoute(getRoute(httpRequest));
+        request.setVersion(getVersion(httpRequest));
 
         parseHeaders(httpRequest, request);
 
@@ -53,4 +61,10 @@ public class HttpRequestParser {
     private String getRoute(String httpRequest) {
         return httpRequest.split(" ")[1];
     }
+
+    private String getVersion(String httpRequest) {
+        String requestLine = httpRequest.split("\\R", 2)[0];
+        String[] parts = requestLine.split(" ");
+        return parts.length > 2 ? parts[2].trim() : "HTTP/1.0";
+    }
 }
\ No newline at end of file
@@ -2,13 +2,40 @@ package at.technikum.server.util;
 
 import at.technikum.server.http.Response;
 
+import java.nio.charset.StandardCharsets;
+
 public class HttpResponseFormatter {
 
     public String toResponseString(Response response) {
+        return toResponseString(response, false);
+    }
+
+    /**
+     * Formats the response including a Connection header.
+     * Content-Length is the number of UTF-8 encoded body bytes, not the number of characters.
+     *
+     * @param response  The response to format.
+     * @param keepAlive Whether the connection stays open after this response.
+     * @return The complete HTTP response.
+     */
+    public String toResponseString(Response response, boolean keepAlive) {
+        String body = response.getBody() == null ? "" : response.getBody();
         return "HTTP/1.1 " + response.getStatusCode() + " " + response.getStatusMessage() + "\r\n" +
                 "Content-Type: " + response.getContentType() + "\r\n" +
-                "Content-Length: " + response.getBody().length() + "\r\n" +
+                "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n" +
+                "Connection: " + (keepAlive ? "keep-alive" : "close") + "\r\n" +
                 "\r\n" +
-                response.getBody();
+                body;
+    }
+
+    /**
+     * Formats the response and encodes it as UTF-8, ready to be written to a socket.
+     *
+     * @param response  The response to format.
+     * @param keepAlive Whether the connection stays open after this response.
+     * @return The encoded HTTP response.
+     */
+    public byte[] toResponseBytes(Response response, boolean keepAlive) {
+        return toResponseString(response, keepAlive).getBytes(StandardCharsets.UTF_8);
     }
 }
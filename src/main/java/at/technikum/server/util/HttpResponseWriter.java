@@ -0,0 +1,157 @@
+package at.technikum.server.util;
+
+import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpStatus;
+import at.technikum.server.http.Response;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Encodes responses straight into pooled buffers.
+ * The status line of every {@link HttpStatus} and the Content-Type header of every {@link HttpContentType}
+ * are encoded once; per response only the Content-Length digits and the body are written.
+ * The body is encoded as UTF-8 without an intermediate byte array.
+ * <p>
+ * Thread-safe, one instance can be shared by all connections.
+ */
+public class HttpResponseWriter {
+
+    private static final int HEADER_BUFFER_SIZE = 512;
+    private static final int BODY_BUFFER_SIZE = 16 * 1024;
+
+    private static final byte[][] STATUS_LINES = new byte[HttpStatus.values().length][];
+    private static final byte[][] CONTENT_TYPE_HEADERS = new byte[HttpContentType.values().length][];
+    private static final byte[] CONTENT_LENGTH = ascii("Content-Length: ");
+    private static final byte[] KEEP_ALIVE = ascii("\r\nConnection: keep-alive\r\n\r\n");
+    private static final byte[] CLOSE = ascii("\r\nConnection: close\r\n\r\n");
+
+    // Pools shared by all writers, so buffers are reused across connections
+    private static final ByteBufferPool SHARED_HEADER_POOL = new ByteBufferPool(HEADER_BUFFER_SIZE, 1024);
+    private static final ByteBufferPool SHARED_BODY_POOL = new ByteBufferPool(BODY_BUFFER_SIZE, 256);
+
+    // Shared by every empty body, nothing is ever written into it
+    private static final ByteBuffer EMPTY_BODY = ByteBuffer.allocate(0);
+
+    static {
+        for (HttpStatus status : HttpStatus.values()) {
+            STATUS_LINES[status.ordinal()] = statusLine(status.getCode(), status.getMessage());
+        }
+        for (HttpContentType contentType : HttpContentType.values()) {
+            CONTENT_TYPE_HEADERS[contentType.ordinal()] = ascii("Content-Type: " + contentType.getMimeType() + "\r\n");
+        }
+    }
+
+    private final ByteBufferPool headerPool;
+    private final ByteBufferPool bodyPool;
+
+    public HttpResponseWriter() {
+        this(SHARED_HEADER_POOL, SHARED_BODY_POOL);
+    }
+
+    public HttpResponseWriter(ByteBufferPool headerPool, ByteBufferPool bodyPool) {
+        this.headerPool = headerPool;
+        this.bodyPool = bodyPool;
+    }
+
+    /**
+     * Encodes the response including Content-Length (in bytes) and Connection headers.
+     *
+     * @param response  The response to encode.
+     * @param keepAlive Whether the connection stays open after this response.
+     * @return The encoded response; release it after it has been written.
+     */
+    public EncodedResponse encode(Response response, boolean keepAlive) {
+        String body = response.getBody() == null ? "" : response.getBody();
+        int bodyLength = utf8Length(body);
+
+        ByteBuffer header = headerPool.acquire(HEADER_BUFFER_SIZE);
+        HttpStatus status = response.getStatus();
+        header.put(status != null ? STATUS_LINES[status.ordinal()] : statusLine(response.getStatusCode(), response.getStatusMessage()));
+        if (response.getHttpContentType() != null) {
+            header.put(CONTENT_TYPE_HEADERS[response.getHttpContentType().ordinal()]);
+        }
+        header.put(CONTENT_LENGTH);
+        putDigits(header, bodyLength);
+        header.put(keepAlive ? KEEP_ALIVE : CLOSE);
+        header.flip();
+
+        ByteBuffer encodedBody;
+        if (bodyLength == 0) {
+            encodedBody = EMPTY_BODY;
+        } else {
+            encodedBody = bodyPool.acquire(bodyLength);
+            putUtf8(encodedBody, body);
+            encodedBody.flip();
+        }
+
+        return new EncodedResponse(header, encodedBody, headerPool, bodyPool);
+    }
+
+    /**
+     * Counts the bytes of the UTF-8 encoding, the same way {@link String#getBytes} encodes
+     * (an unpaired surrogate becomes a single '?').
+     */
+    static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static void putUtf8(ByteBuffer buffer, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+
+    private static void putDigits(ByteBuffer buffer, int value) {
+        int divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        while (divisor > 0) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+            divisor /= 10;
+        }
+    }
+
+    private static byte[] statusLine(int code, String message) {
+        return ascii("HTTP/1.1 " + code + " " + message + "\r\n");
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
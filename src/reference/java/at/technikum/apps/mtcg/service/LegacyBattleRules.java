@@ -0,0 +1,133 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.Card;
+
+/**
+ * String based round rules used before {@link BattleEngine}.
+ * Kept as the reference the engine is tested against and as the baseline of the battle benchmark; src/reference/java
+ * is added to the test sources and to the sources of the benchmark profile, so production code does not ship it.
+ */
+class LegacyBattleRules {
+
+    private LegacyBattleRules() {
+    }
+
+    /**
+     * Determines the winner of a battle round between two cards.
+     *
+     * @param cardA The first card in the battle round of player A or B.
+     * @param cardB The second card in the battle round of player A or B.
+     * @return The winning card, or null if the round ends in a draw.
+     */
+    static Card determineRoundWinner(Card cardA, Card cardB) {
+        // Check if any special rules apply to these cards
+        if (isSpecialRuleApplicable(cardA, cardB)) {
+            // Determine the winner based on special rules
+            return getSpecialRuleWinner(cardA, cardB);
+        }
+
+        // If either card is a spell, use element type logic to determine the winner
+        if (cardA.getCardType().equals("spell") || cardB.getCardType().equals("spell")) {
+            // Calculate the effective damage for each card
+            double damageA = getEffectiveDamage(cardA, cardB);
+            double damageB = getEffectiveDamage(cardB, cardA);
+
+            // Compare the damages to determine the winner
+            if (damageA > damageB) return cardA;
+            if (damageB > damageA) return cardB;
+            // If damages are equal, the result is a draw
+            return null;
+        }
+
+        // For non-spell cards, directly compare their damage values
+        if (cardA.getDamage() > cardB.getDamage()) return cardA;
+        if (cardB.getDamage() > cardA.getDamage()) return cardB;
+
+        // If none of the above conditions apply, the round is a draw
+        return null;
+    }
+
+
+    /**
+     * Checks if any special rules apply to the given pair of cards.
+     *
+     * @param cardA The first card in the battle round.
+     * @param cardB The second card in the battle round.
+     * @return True if a special rule applies to the pair of cards, false otherwise.
+     */
+    private static boolean isSpecialRuleApplicable(Card cardA, Card cardB) {
+        // Check for specific matchups where special rules apply
+        return (cardA.getName().equalsIgnoreCase("Goblin") && cardB.getName().equalsIgnoreCase("Dragon")) ||
+                (cardA.getName().equalsIgnoreCase("Wizzard") && cardB.getName().equalsIgnoreCase("Ork")) ||
+                (cardA.getName().equalsIgnoreCase("Knight") && cardB.getCardType().equalsIgnoreCase("spell") && cardB.getElementType().equalsIgnoreCase("Water")) ||
+                (cardA.getName().equalsIgnoreCase("Kraken") && cardB.getCardType().equalsIgnoreCase("spell")) ||
+                (cardA.getName().equalsIgnoreCase("FireElf") && cardB.getName().equalsIgnoreCase("Dragon"));
+    }
+
+
+    /**
+     * Determines the winner of a battle round based on special rules.
+     *
+     * @param cardA The first card in the battle round.
+     * @param cardB The second card in the battle round.
+     * @return The card that wins according to the special rules, or null if the rules result in a draw.
+     */
+    private static Card getSpecialRuleWinner(Card cardA, Card cardB) {
+        // Determine the winner based on the matchup and special rules
+        if (cardA.getName().equalsIgnoreCase("Goblin") && cardB.getName().equalsIgnoreCase("Dragon")) return cardB;
+        if (cardA.getName().equalsIgnoreCase("Wizzard") && cardB.getName().equalsIgnoreCase("Ork")) return cardA;
+        if (cardA.getName().equalsIgnoreCase("Knight") && cardB.getCardType().equalsIgnoreCase("spell") && cardB.getElementType().equalsIgnoreCase("Water"))
+            return cardB;
+        if (cardA.getName().equalsIgnoreCase("Kraken") && cardB.getCardType().equalsIgnoreCase("spell")) return cardA;
+        if (cardA.getName().equalsIgnoreCase("FireElf") && cardB.getName().equalsIgnoreCase("Dragon")) return cardA;
+
+        // If no special rule dictates a winner, the result is a draw
+        return null;
+    }
+
+
+    /**
+     * Calculates the effective damage of an attacking card against a defending card,
+     * taking into account the elemental strengths and weaknesses.
+     *
+     * @param attacker The attacking card.
+     * @param defender The defending card.
+     * @return The effective damage value after considering elemental effects.
+     */
+    private static double getEffectiveDamage(Card attacker, Card defender) {
+        // Start with the base damage of the attacking card
+        double damage = attacker.getDamage();
+
+        // If the attacker is a spell card, adjust damage based on elemental types
+        if (attacker.getCardType().equals("spell")) {
+            switch (attacker.getElementType().toLowerCase()) {
+                case "water":
+                    // Water is effective against Fire but weak against Normal
+                    if (defender.getElementType().equalsIgnoreCase("fire")) {
+                        damage *= 2; // Double damage against Fire
+                    } else if (defender.getElementType().equalsIgnoreCase("normal")) {
+                        damage /= 2; // Half damage against Normal
+                    }
+                    break;
+                case "fire":
+                    // Fire is effective against Normal but weak against Water
+                    if (defender.getElementType().equalsIgnoreCase("normal")) {
+                        damage *= 2; // Double damage against Normal
+                    } else if (defender.getElementType().equalsIgnoreCase("water")) {
+                        damage /= 2; // Half damage against Water
+                    }
+                    break;
+                case "normal":
+                    // Normal is effective against Water but weak against Fire
+                    if (defender.getElementType().equalsIgnoreCase("water")) {
+                        damage *= 2; // Double damage against Water
+                    } else if (defender.getElementType().equalsIgnoreCase("fire")) {
+                        damage /= 2; // Half damage against Fire
+                    }
+                    break;
+            }
+        }
+        // Return the adjusted damage value
+        return damage;
+    }
+}
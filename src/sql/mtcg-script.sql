@@ -26,6 +26,10 @@ CREATE TABLE access_token
     token_timestamp TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
 
+-- Expired tokens are found by age (token sweeper), a user's token by user (logout)
+CREATE INDEX IF NOT EXISTS access_token_timestamp_idx ON access_token (token_timestamp);
+CREATE INDEX IF NOT EXISTS access_token_user_idx ON access_token (user_fk);
+
 
 CREATE TABLE userdata
 (
@@ -99,9 +103,14 @@ CREATE TABLE battles
     winner_fk   VARCHAR(255),
     FOREIGN KEY (winner_fk) REFERENCES users (user_id),
     start_time  TIMESTAMP,
-    status      VARCHAR(255) CHECK (status IN ('waiting', 'active', 'completed'))
+    status      VARCHAR(255) CHECK (status IN ('waiting', 'active', 'completed')),
+    practice    BOOLEAN NOT NULL DEFAULT FALSE
 );
 
+-- Databases created before bot battles existed lack the column; stats and bot battles need it
+ALTER TABLE battles
+    ADD COLUMN IF NOT EXISTS practice BOOLEAN NOT NULL DEFAULT FALSE;
+
 
 CREATE TABLE battle_logs
 (
@@ -3,6 +3,7 @@ package at.technikum.apps.mtcg.controller;
 import at.technikum.apps.mtcg.entity.BattleResult;
 import at.technikum.apps.mtcg.entity.User;
 import at.technikum.apps.mtcg.service.BattleService;
+import at.technikum.apps.mtcg.service.BattleTicket;
 import at.technikum.apps.mtcg.service.SessionService;
 import at.technikum.server.http.HttpMethod;
 import at.technikum.server.http.HttpStatus;
@@ -10,9 +11,14 @@ import at.technikum.server.http.Request;
 import at.technikum.server.http.Response;
 import org.junit.jupiter.api.Test;
 
+import java.util.Optional;
+
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class BattleControllerTest {
@@ -20,6 +26,7 @@ public class BattleControllerTest {
     void BattleControllerSupportsCorrectRoute() {
         BattleController controller = new BattleController(null, null);
         assertTrue(controller.supports("/battles"));
+        assertTrue(controller.supports("/battles/ticketId?wait=10"));
     }
 
 
@@ -50,4 +57,65 @@ public class BattleControllerTest {
         assertEquals(HttpStatus.OK.getCode(), response.getStatusCode());
     }
 
+    @Test
+    void shouldAnswerAsyncBattleRequestWithTicket() {
+        // Mock Services
+        BattleService mockBattleService = mock(BattleService.class);
+        SessionService mockSessionService = mock(SessionService.class);
+
+        BattleController controller = new BattleController(mockBattleService, mockSessionService);
+
+        // POST Request that asks for an asynchronous response
+        Request postRequest = new Request();
+        postRequest.setRoute("/battles");
+        postRequest.setMethod(HttpMethod.POST);
+        postRequest.addHeader("Prefer", "respond-async");
+
+        User requester = new User("testuser", "password");
+        when(mockSessionService.authenticateRequest(any(Request.class))).thenReturn(requester);
+        BattleTicket ticket = mock(BattleTicket.class);
+        when(ticket.getId()).thenReturn("ticketId");
+        when(mockBattleService.submit(requester)).thenReturn(ticket);
+
+        Response response = controller.handle(postRequest);
+
+        // The player is queued without waiting for the battle
+        assertEquals(HttpStatus.ACCEPTED.getCode(), response.getStatusCode());
+        assertTrue(response.getBody().contains("\"ticket\":\"ticketId\""));
+        verify(mockBattleService, never()).battle(any(User.class));
+    }
+
+
+    @Test
+    void shouldLongPollBattleTicket() {
+        // Mock Services
+        BattleService mockBattleService = mock(BattleService.class);
+        SessionService mockSessionService = mock(SessionService.class);
+
+        BattleController controller = new BattleController(mockBattleService, mockSessionService);
+
+        User requester = new User("testuser", "password");
+        when(mockSessionService.authenticateRequest(any(Request.class))).thenReturn(requester);
+        BattleTicket ticket = mock(BattleTicket.class);
+        when(ticket.getId()).thenReturn("ticketId");
+        when(mockBattleService.findTicket("ticketId", requester)).thenReturn(Optional.of(ticket));
+        when(mockBattleService.findTicket(eq("unknown"), any(User.class))).thenReturn(Optional.empty());
+
+        // Still running after the wait: 202 with the ticket again
+        Request pollRequest = new Request();
+        pollRequest.setRoute("/battles/ticketId?wait=5");
+        pollRequest.setMethod(HttpMethod.GET);
+        when(mockBattleService.awaitTicket(ticket, 5000L)).thenReturn(null);
+        assertEquals(HttpStatus.ACCEPTED.getCode(), controller.handle(pollRequest).getStatusCode());
+
+        // Finished: 200 with the battle result
+        when(mockBattleService.awaitTicket(ticket, 5000L)).thenReturn(new BattleResult());
+        assertEquals(HttpStatus.OK.getCode(), controller.handle(pollRequest).getStatusCode());
+
+        // Unknown tickets are not found
+        Request unknownRequest = new Request();
+        unknownRequest.setRoute("/battles/unknown");
+        unknownRequest.setMethod(HttpMethod.GET);
+        assertEquals(HttpStatus.NOT_FOUND.getCode(), controller.handle(unknownRequest).getStatusCode());
+    }
 }
@@ -0,0 +1,116 @@
+package at.technikum.apps.mtcg.database;
+
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ConnectionPoolTest {
+
+    private static PoolConfig config(int maxSize) {
+        return config(maxSize, 0);
+    }
+
+    private static PoolConfig config(int maxSize, int statementCacheSize) {
+        // No minimum, long idle and validation intervals, no leak detection
+        return new PoolConfig("jdbc:test", "user", "password", 0, maxSize, 200, 60000, 60000, 0, 0, statementCacheSize);
+    }
+
+    @Test
+    void closedConnectionShouldBeReusedAndReset() throws SQLException {
+        Connection physical = mock(Connection.class);
+        when(physical.getAutoCommit()).thenReturn(false);
+        ConnectionPool.ConnectionOpener opener = mock(ConnectionPool.ConnectionOpener.class);
+        when(opener.open()).thenReturn(physical);
+
+        try (ConnectionPool pool = new ConnectionPool(config(2), opener)) {
+            Connection first = pool.getConnection();
+            first.setAutoCommit(false);
+            first.close();
+            Connection second = pool.getConnection();
+
+            // Assertions to check that the physical connection was reused and the open transaction rolled back
+            verify(opener, times(1)).open();
+            verify(physical).rollback();
+            verify(physical).setAutoCommit(true);
+            verify(physical, never()).close();
+            assertTrue(first.isClosed());
+            assertThrows(SQLException.class, first::createStatement);
+            assertEquals(1, pool.getMetrics().getActive());
+            second.close();
+        }
+    }
+
+    @Test
+    void getConnectionShouldTimeOutWhenPoolIsExhausted() throws SQLException {
+        ConnectionPool.ConnectionOpener opener = () -> mock(Connection.class);
+
+        try (ConnectionPool pool = new ConnectionPool(config(1), opener)) {
+            Connection held = pool.getConnection();
+
+            assertThrows(SQLTransientConnectionException.class, pool::getConnection);
+            assertEquals(1, pool.getMetrics().getTimeouts());
+
+            held.close();
+            assertNotNull(pool.getConnection());
+        }
+    }
+
+    @Test
+    void failedOpenShouldFreeTheSlot() throws SQLException {
+        ConnectionPool.ConnectionOpener opener = mock(ConnectionPool.ConnectionOpener.class);
+        when(opener.open()).thenThrow(new SQLException("Connection refused")).thenReturn(mock(Connection.class));
+
+        try (ConnectionPool pool = new ConnectionPool(config(1), opener)) {
+            assertThrows(SQLException.class, pool::getConnection);
+            assertNotNull(pool.getConnection());
+        }
+    }
+
+    @Test
+    void preparedStatementsShouldBeReusedAcrossCheckouts() throws SQLException {
+        Connection physical = mock(Connection.class);
+        when(physical.getAutoCommit()).thenReturn(true);
+        when(physical.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+
+        try (ConnectionPool pool = new ConnectionPool(config(1, 1), () -> physical)) {
+            try (Connection connection = pool.getConnection();
+                 PreparedStatement statement = connection.prepareStatement("SELECT 1")) {
+                statement.setInt(1, 1);
+            }
+            try (Connection connection = pool.getConnection()) {
+                connection.prepareStatement("SELECT 1").close();
+                // Evicts "SELECT 1" from the cache of size 1
+                connection.prepareStatement("SELECT 2").close();
+            }
+
+            // Assertions to check that "SELECT 1" was prepared once and only closed on eviction
+            verify(physical, times(1)).prepareStatement("SELECT 1");
+            verify(physical, times(1)).prepareStatement("SELECT 2");
+            assertEquals(1, pool.getMetrics().getStatementCacheHits());
+            assertEquals(2, pool.getMetrics().getStatementCacheMisses());
+        }
+    }
+
+    @Test
+    void statementInUseShouldNotBeHandedOutTwice() throws SQLException {
+        Connection physical = mock(Connection.class);
+        when(physical.prepareStatement(anyString())).thenAnswer(invocation -> mock(PreparedStatement.class));
+
+        try (ConnectionPool pool = new ConnectionPool(config(1, 8), () -> physical);
+             Connection connection = pool.getConnection()) {
+            PreparedStatement outer = connection.prepareStatement("SELECT 1");
+            PreparedStatement inner = connection.prepareStatement("SELECT 1");
+
+            assertNotSame(outer, inner);
+            outer.close();
+            assertTrue(outer.isClosed());
+            assertThrows(SQLException.class, outer::executeQuery);
+        }
+    }
+}
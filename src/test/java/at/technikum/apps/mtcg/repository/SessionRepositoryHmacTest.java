@@ -0,0 +1,93 @@
+package at.technikum.apps.mtcg.repository;
+
+import at.technikum.apps.mtcg.entity.User;
+import at.technikum.apps.mtcg.repository.session.SessionRepository_hmac;
+import at.technikum.apps.mtcg.repository.user.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SessionRepositoryHmacTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00Z");
+
+    @Test
+    void tokenShouldBeValidatedWithoutDatabase() {
+        // Mock dependencies and create a repository with a fixed clock
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        User user = new User("userId", "user", "password", 20, 100, true);
+        when(mockedUserRepository.findUserById("userId")).thenReturn(Optional.of(user));
+
+        SessionRepository_hmac sessionRepository = new SessionRepository_hmac(mockedUserRepository, "k1", secret(1), Clock.fixed(NOW, ZoneOffset.UTC));
+
+        String token = sessionRepository.generateToken(user).orElseThrow();
+
+        // The token carries the user ID, the admin flag and the expiry, and is checked without any lookup
+        assertTrue(sessionRepository.authenticateToken(token));
+        SessionRepository_hmac.Claims claims = sessionRepository.decode(token).orElseThrow();
+        assertEquals("userId", claims.getUserId());
+        assertTrue(claims.isAdmin());
+        assertEquals(Duration.ofMinutes(20), sessionRepository.getTokenTimeToLive(token).orElseThrow());
+        verify(mockedUserRepository, never()).findUserById(anyString());
+
+        // Only loading the user needs the user repository
+        assertSame(user, sessionRepository.findByToken(token).orElseThrow());
+
+        // A changed character breaks the signature
+        char last = token.charAt(token.length() - 1);
+        assertFalse(sessionRepository.authenticateToken(token.substring(0, token.length() - 1) + (last == 'A' ? 'B' : 'A')));
+        assertFalse(sessionRepository.authenticateToken("user-mtcgToken"));
+    }
+
+    @Test
+    void tokenShouldExpireAndBeRevoked() {
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        User user = new User("userId", "user", "password");
+
+        SessionRepository_hmac earlier = new SessionRepository_hmac(mockedUserRepository, "k1", secret(1), Clock.fixed(NOW, ZoneOffset.UTC));
+        String token = earlier.generateToken(user).orElseThrow();
+
+        // The same secret 20 minutes later no longer accepts the token
+        SessionRepository_hmac later = new SessionRepository_hmac(mockedUserRepository, "k1", secret(1),
+                Clock.fixed(NOW.plus(Duration.ofMinutes(20)), ZoneOffset.UTC));
+        assertFalse(later.authenticateToken(token));
+
+        // Deleting the token revokes it, logging in again issues a valid one
+        assertTrue(earlier.deleteToken(user.getId()));
+        assertFalse(earlier.authenticateToken(token));
+        assertTrue(earlier.authenticateToken(earlier.generateToken(user).orElseThrow()));
+    }
+
+    @Test
+    void tokensOfRetiredKeysShouldStayValidUntilTheyExpire() {
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        User user = new User("userId", "user", "password");
+
+        SessionRepository_hmac sessionRepository = new SessionRepository_hmac(mockedUserRepository, "k1", secret(1), Clock.fixed(NOW, ZoneOffset.UTC));
+        String oldToken = sessionRepository.generateToken(user).orElseThrow();
+
+        // After the rotation new tokens are signed with the new key, old ones are still accepted
+        sessionRepository.rotateKey("k2", secret(2));
+        assertTrue(sessionRepository.authenticateToken(oldToken));
+        assertTrue(sessionRepository.generateToken(new User("otherId", "other", "password")).orElseThrow().startsWith("k2."));
+
+        // Another node that only knows the new key rejects the old token
+        SessionRepository_hmac otherNode = new SessionRepository_hmac(mockedUserRepository, "k2", secret(2), Clock.fixed(NOW, ZoneOffset.UTC));
+        assertFalse(otherNode.authenticateToken(oldToken));
+    }
+
+    private static byte[] secret(int seed) {
+        byte[] secret = new byte[32];
+        Arrays.fill(secret, (byte) seed);
+        return secret;
+    }
+}
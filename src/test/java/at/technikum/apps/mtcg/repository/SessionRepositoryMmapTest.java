@@ -0,0 +1,123 @@
+package at.technikum.apps.mtcg.repository;
+
+import at.technikum.apps.mtcg.entity.User;
+import at.technikum.apps.mtcg.repository.session.SessionRepository_mmap;
+import at.technikum.apps.mtcg.repository.user.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SessionRepositoryMmapTest {
+
+    private static final Instant NOW = Instant.parse("2024-01-01T12:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sessionsShouldSurviveARestart() {
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        User user = new User("userId", "user", "password");
+        when(mockedUserRepository.findUserById("userId")).thenReturn(Optional.of(user));
+        Path file = directory.resolve("sessions.mmap");
+
+        SessionRepository_mmap sessionRepository = new SessionRepository_mmap(mockedUserRepository, file, 1024, true, Clock.fixed(NOW, ZoneOffset.UTC));
+        String token = sessionRepository.generateToken(user).orElseThrow();
+        assertTrue(sessionRepository.authenticateToken(token));
+        sessionRepository.close();
+
+        // A new instance on the same file, as after a deploy, knows the token at once
+        SessionRepository_mmap restarted = new SessionRepository_mmap(mockedUserRepository, file, 1024, true, Clock.fixed(NOW, ZoneOffset.UTC));
+        assertTrue(restarted.authenticateToken(token));
+        assertEquals(Duration.ofMinutes(20), restarted.getTokenTimeToLive(token).orElseThrow());
+        verify(mockedUserRepository, never()).findUserById(anyString());
+        assertSame(user, restarted.findByToken(token).orElseThrow());
+        assertFalse(restarted.authenticateToken("user-mtcgToken"));
+        restarted.close();
+    }
+
+    @Test
+    void tokensShouldBeReplacedDeletedAndExpire() {
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        User user = new User("userId", "user", "password");
+        Path file = directory.resolve("sessions.mmap");
+
+        SessionRepository_mmap sessionRepository = new SessionRepository_mmap(mockedUserRepository, file, 1024, false, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        // Logging in again replaces the previous token
+        String first = sessionRepository.generateToken(user).orElseThrow();
+        String second = sessionRepository.generateToken(user).orElseThrow();
+        assertFalse(sessionRepository.authenticateToken(first));
+        assertTrue(sessionRepository.authenticateToken(second));
+        sessionRepository.close();
+
+        // The token is not valid 20 minutes later
+        SessionRepository_mmap later = new SessionRepository_mmap(mockedUserRepository, file, 1024, false,
+                Clock.fixed(NOW.plus(Duration.ofMinutes(20)), ZoneOffset.UTC));
+        assertFalse(later.authenticateToken(second));
+        assertEquals(1, later.purgeExpiredTokens(100));
+        assertEquals(0, later.getSessionCount());
+
+        // Deleting the token logs the user out
+        String third = later.generateToken(user).orElseThrow();
+        assertTrue(later.deleteToken(user.getId()));
+        assertFalse(later.authenticateToken(third));
+        later.close();
+    }
+
+    @Test
+    void slotsDamagedByACrashShouldBeDropped() throws IOException {
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        Path file = directory.resolve("sessions.mmap");
+
+        SessionRepository_mmap sessionRepository = new SessionRepository_mmap(mockedUserRepository, file, 1024, true, Clock.fixed(NOW, ZoneOffset.UTC));
+        String token = sessionRepository.generateToken(new User("userId", "user", "password")).orElseThrow();
+        sessionRepository.close();
+
+        // Damage the user ID of every used slot, like a write torn by a crash
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(file));
+        for (int offset = 128; offset < content.capacity(); offset += 128) {
+            if (content.getInt(offset) != 0) {
+                content.put(offset + 40, (byte) (content.get(offset + 40) ^ 0xFF));
+            }
+        }
+        Files.write(file, content.array());
+
+        // The damaged token is not accepted after the restart
+        SessionRepository_mmap restarted = new SessionRepository_mmap(mockedUserRepository, file, 1024, true, Clock.fixed(NOW, ZoneOffset.UTC));
+        assertFalse(restarted.authenticateToken(token));
+        assertEquals(0, restarted.getSessionCount());
+        restarted.close();
+    }
+
+    @Test
+    void theFileShouldOnlyBeOpenedOnce() {
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        Path file = directory.resolve("sessions.mmap");
+
+        SessionRepository_mmap sessionRepository = new SessionRepository_mmap(mockedUserRepository, file, 1024, false, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        // A second server on the same file fails instead of overwriting the sessions of the first
+        assertThrows(
+                IllegalStateException.class,
+                () -> new SessionRepository_mmap(mockedUserRepository, file, 1024, false, Clock.fixed(NOW, ZoneOffset.UTC))
+        );
+
+        // Once closed, the file can be opened again
+        sessionRepository.close();
+        new SessionRepository_mmap(mockedUserRepository, file, 1024, false, Clock.fixed(NOW, ZoneOffset.UTC)).close();
+    }
+}
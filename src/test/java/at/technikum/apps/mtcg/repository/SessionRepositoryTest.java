@@ -42,4 +42,22 @@ class SessionRepositoryTest {
         assertTrue(generatedToken.isPresent());
         assertEquals("user-mtcgToken", generatedToken.get());
     }
-}
\ No newline at end of file
+
+    @Test
+    void purgeExpiredTokensShouldDeleteOneBatch() throws SQLException {
+        // Create mock objects to simulate database interactions
+        Database mockedDatabase = mock(Database.class);
+        Connection mockedConnection = mock(Connection.class);
+        PreparedStatement mockedStatement = mock(PreparedStatement.class);
+
+        when(mockedDatabase.getConnection()).thenReturn(mockedConnection);
+        when(mockedConnection.prepareStatement(contains("SKIP LOCKED"))).thenReturn(mockedStatement);
+        when(mockedStatement.executeUpdate()).thenReturn(42);
+
+        SessionRepository_db sessionRepository = new SessionRepository_db(mockedDatabase);
+
+        // The batch size limits the statement, which returns the number of deleted rows
+        assertEquals(42, sessionRepository.purgeExpiredTokens(100));
+        verify(mockedStatement).setInt(1, 100);
+    }
+}
@@ -0,0 +1,56 @@
+package at.technikum.apps.mtcg.repository;
+
+import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
+import at.technikum.apps.mtcg.database.Database;
+import at.technikum.apps.mtcg.repository.transaction.UnitOfWork_db;
+import at.technikum.server.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class UnitOfWorkTest {
+
+    @Test
+    void callShouldCommitWhenWorkSucceeds() throws SQLException {
+        // Create mock objects to simulate the database transaction
+        Database mockedDatabase = mock(Database.class);
+        when(mockedDatabase.beginTransaction()).thenReturn(true);
+
+        UnitOfWork_db unitOfWork = new UnitOfWork_db(mockedDatabase);
+        String result = unitOfWork.call(() -> "done");
+
+        assertEquals("done", result);
+        verify(mockedDatabase).endTransaction(true);
+    }
+
+    @Test
+    void runShouldRollBackWhenWorkThrows() throws SQLException {
+        Database mockedDatabase = mock(Database.class);
+        when(mockedDatabase.beginTransaction()).thenReturn(true);
+
+        UnitOfWork_db unitOfWork = new UnitOfWork_db(mockedDatabase);
+        HttpStatusException exception = assertThrows(HttpStatusException.class, () -> unitOfWork.run(() -> {
+            throw new HttpStatusException(HttpStatus.FORBIDDEN, "Not allowed");
+        }));
+
+        // The exception of the work is passed on and the transaction is rolled back
+        assertEquals(HttpStatus.FORBIDDEN, exception.getStatus());
+        verify(mockedDatabase).endTransaction(false);
+    }
+
+    @Test
+    void nestedRunShouldJoinOuterTransaction() throws SQLException {
+        Database mockedDatabase = mock(Database.class);
+        when(mockedDatabase.beginTransaction()).thenReturn(false);
+
+        UnitOfWork_db unitOfWork = new UnitOfWork_db(mockedDatabase);
+        unitOfWork.run(() -> {
+        });
+
+        // Only the outer unit of work ends the transaction
+        verify(mockedDatabase, never()).endTransaction(anyBoolean());
+    }
+}
@@ -0,0 +1,87 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.Card;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BattleEngineTest {
+
+    @Test
+    @SuppressWarnings("deprecation")
+    void roundWinnerShouldMatchLegacyRulesForAllCardCombinations() {
+        // Names, elements and card types in the spellings the legacy rules treat differently
+        String[] names = {"Goblin", "goblin", "Dragon", "Wizzard", "Ork", "Knight", "Kraken", "FireElf", "Elf", "WaterGoblin"};
+        String[] elements = {"water", "Water", "fire", "FIRE", "normal", "regular"};
+        String[] cardTypes = {"spell", "Spell", "monster"};
+        int[] damages = {0, 5, 10, 20, 40};
+
+        List<Card> cards = new ArrayList<>();
+        for (String name : names) {
+            for (String element : elements) {
+                for (String cardType : cardTypes) {
+                    for (int damage : damages) {
+                        cards.add(new Card("id", name, damage, element, cardType));
+                    }
+                }
+            }
+        }
+
+        for (Card cardA : cards) {
+            int profileA = BattleEngine.profileOf(cardA);
+            for (Card template : cards) {
+                // A distinct instance, so the legacy winner can be told apart by identity
+                Card cardB = new Card("otherId", template.getName(), template.getDamage(), template.getElementType(), template.getCardType());
+
+                Card legacyWinner = LegacyBattleRules.determineRoundWinner(cardA, cardB);
+                int expected = legacyWinner == null ? BattleEngine.DRAW : legacyWinner == cardA ? BattleEngine.A_WINS : BattleEngine.B_WINS;
+
+                assertEquals(expected, BattleEngine.roundWinner(profileA, cardA.getDamage(), BattleEngine.profileOf(cardB), cardB.getDamage()),
+                        () -> describe(cardA) + " vs " + describe(cardB));
+            }
+        }
+    }
+
+    @Test
+    void fightShouldMoveLosingCardsToTheWinnersDeck() {
+        // A water spell always beats a fire monster of the same damage
+        BattleEngine.Deck deckA = new BattleEngine.Deck(new Card[]{new Card("a", "WaterSpell", 10, "water", "spell")});
+        BattleEngine.Deck deckB = new BattleEngine.Deck(new Card[]{new Card("b", "FireTroll", 10, "fire", "monster")});
+
+        int[] roundsWonByA = new int[1];
+        int outcome = BattleEngine.fight(deckA, deckB, new SplittableRandom(42), (round, cardA, cardB, roundOutcome) -> {
+            // B never wins; captured trolls only draw against B's troll
+            assertNotEquals(BattleEngine.B_WINS, roundOutcome);
+            if (roundOutcome == BattleEngine.A_WINS) {
+                roundsWonByA[0]++;
+            }
+        });
+
+        // Every round won by A captures a copy of B's card; B keeps its card
+        assertEquals(BattleEngine.A_WINS, outcome);
+        assertTrue(roundsWonByA[0] > 0);
+        assertEquals(1 + roundsWonByA[0], deckA.size());
+        assertEquals(1, deckB.size());
+    }
+
+    @Test
+    void fightShouldBeADrawWhenNoRoundHasAWinner() {
+        Card card = new Card("cardId", "Dragon", 10, "fire", "monster");
+        BattleEngine.Deck deckA = new BattleEngine.Deck(new Card[]{card});
+        BattleEngine.Deck deckB = new BattleEngine.Deck(new Card[]{card});
+        int[] rounds = new int[1];
+
+        int outcome = BattleEngine.fight(deckA, deckB, new SplittableRandom(42), (round, cardA, cardB, roundOutcome) -> rounds[0] = round);
+
+        assertEquals(BattleEngine.DRAW, outcome);
+        assertEquals(BattleEngine.MAX_ROUNDS, rounds[0]);
+    }
+
+    private static String describe(Card card) {
+        return card.getName() + "/" + card.getElementType() + "/" + card.getCardType() + "/" + card.getDamage();
+    }
+}
@@ -6,9 +6,21 @@ import at.technikum.apps.mtcg.entity.User;
 import at.technikum.apps.mtcg.repository.battle.BattleRepository;
 import at.technikum.apps.mtcg.repository.card.CardRepository;
 import at.technikum.apps.mtcg.repository.elo.ELORepository;
+import at.technikum.apps.mtcg.repository.transaction.UnitOfWork;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
 
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 public class BattleLogicTest {
@@ -21,7 +33,7 @@ public class BattleLogicTest {
         ELORepository mockedELORepository = mock(ELORepository.class);
 
         // Create an instance of BattleLogic with mocked dependencies
-        BattleLogic battleLogic = new BattleLogic(mockedBattleRepository, mockedCardRepository, mockedELORepository);
+        BattleLogic battleLogic = new BattleLogic(mockedBattleRepository, mockedCardRepository, mockedELORepository, Runnable::run);
 
         // Create two user instances representing players in the battle
         User playerA = new User("playerAId", "playerA", "password", 100, 100, false);
@@ -45,5 +57,152 @@ public class BattleLogicTest {
         verify(mockedBattleRepository).crownWinner(battleId, null);
     }
 
+    @Test
+    void battleLogShouldBeWrittenOnceBeforeCrowning() {
+        // Mock dependencies
+        BattleRepository mockedBattleRepository = mock(BattleRepository.class);
+        CardRepository mockedCardRepository = mock(CardRepository.class);
+        ELORepository mockedELORepository = mock(ELORepository.class);
+        BattleLogic battleLogic = new BattleLogic(mockedBattleRepository, mockedCardRepository, mockedELORepository, Runnable::run, 0);
+
+        User playerA = new User("playerAId", "playerA", "password", 100, 100, false);
+        User playerB = new User("playerBId", "playerB", "password", 100, 100, false);
+        when(mockedBattleRepository.startBattle(anyString(), anyString(), anyString())).thenReturn(true);
+
+        // Equal cards draw every round, so the battle runs all 100 rounds
+        Card card = new Card("cardId", "Dragon", 10, "fire", "monster");
+        when(mockedCardRepository.getUserDeckCards(playerA.getId())).thenReturn(new Card[]{card});
+        when(mockedCardRepository.getUserDeckCards(playerB.getId())).thenReturn(new Card[]{card});
+
+        battleLogic.performBattle("battleId", playerA, playerB);
+
+        // Verify that the whole log is written with one insert, before the battle is crowned
+        InOrder inOrder = inOrder(mockedBattleRepository);
+        inOrder.verify(mockedBattleRepository).startLog(eq("battleId"), contains("Epic Round 100"));
+        inOrder.verify(mockedBattleRepository).crownWinner("battleId", null);
+        verify(mockedBattleRepository, never()).addToLog(anyString(), anyString());
+    }
+
+    @Test
+    void battleLogShouldBeStreamedEveryNRounds() {
+        // Mock dependencies
+        BattleRepository mockedBattleRepository = mock(BattleRepository.class);
+        CardRepository mockedCardRepository = mock(CardRepository.class);
+        ELORepository mockedELORepository = mock(ELORepository.class);
+        BattleLogic battleLogic = new BattleLogic(mockedBattleRepository, mockedCardRepository, mockedELORepository, Runnable::run, 25);
+
+        User playerA = new User("playerAId", "playerA", "password", 100, 100, false);
+        User playerB = new User("playerBId", "playerB", "password", 100, 100, false);
+        when(mockedBattleRepository.startBattle(anyString(), anyString(), anyString())).thenReturn(true);
+
+        Card card = new Card("cardId", "Dragon", 10, "fire", "monster");
+        when(mockedCardRepository.getUserDeckCards(playerA.getId())).thenReturn(new Card[]{card});
+        when(mockedCardRepository.getUserDeckCards(playerB.getId())).thenReturn(new Card[]{card});
+
+        battleLogic.performBattle("battleId", playerA, playerB);
+
+        // 100 rounds: the first flush creates the log, three more after rounds 50, 75, 100 and the final one append
+        verify(mockedBattleRepository, times(1)).startLog(eq("battleId"), anyString());
+        verify(mockedBattleRepository, times(4)).addToLog(eq("battleId"), anyString());
+    }
+
+    @Test
+    void decksShouldBeSavedToStacksWithOneCallPerPlayer() {
+        // Mock dependencies
+        BattleRepository mockedBattleRepository = mock(BattleRepository.class);
+        CardRepository mockedCardRepository = mock(CardRepository.class);
+        ELORepository mockedELORepository = mock(ELORepository.class);
+        BattleLogic battleLogic = new BattleLogic(mockedBattleRepository, mockedCardRepository, mockedELORepository, Runnable::run, 0);
+
+        User playerA = new User("playerAId", "playerA", "password", 100, 100, false);
+        User playerB = new User("playerBId", "playerB", "password", 100, 100, false);
+        when(mockedBattleRepository.startBattle(anyString(), anyString(), anyString())).thenReturn(true);
+
+        // The water spell wins every round and captures the fire monster, which is new to player A's stack
+        Card waterSpell = new Card("waterSpellId", "WaterSpell", 10, "water", "spell");
+        Card fireTroll = new Card("fireTrollId", "FireTroll", 10, "fire", "monster");
+        when(mockedCardRepository.getUserDeckCards(playerA.getId())).thenReturn(new Card[]{waterSpell});
+        when(mockedCardRepository.getUserDeckCards(playerB.getId())).thenReturn(new Card[]{fireTroll});
+        when(mockedCardRepository.addCardsToStack(eq(playerA.getId()), anyCollection())).thenReturn(List.of("fireTrollId"));
+        when(mockedELORepository.updateELO(anyString(), anyInt())).thenReturn(Optional.of(100));
+
+        battleLogic.performBattle("battleId", playerA, playerB);
+
+        // The 100 captured copies are saved with a single statement, without per-card checks
+        verify(mockedCardRepository).addCardsToStack(playerA.getId(), Set.of("waterSpellId", "fireTrollId"));
+        verify(mockedCardRepository).addCardsToStack(playerB.getId(), Set.of("fireTrollId"));
+        verify(mockedCardRepository, never()).isCardInStack(anyString(), anyString());
+        verify(mockedCardRepository, never()).addCardToStack(anyString(), anyString());
+        verify(mockedBattleRepository).startLog(eq("battleId"), contains("Card FireTroll added to stack for playerA."));
+    }
+
+    @Test
+    void battleShouldBeFinishedInOneUnitOfWorkWithRelativeEloChanges() {
+        // Mock dependencies, with a unit of work that records whether the finalization ran inside it
+        BattleRepository mockedBattleRepository = mock(BattleRepository.class);
+        CardRepository mockedCardRepository = mock(CardRepository.class);
+        ELORepository mockedELORepository = mock(ELORepository.class);
+        boolean[] inUnitOfWork = new boolean[1];
+        UnitOfWork unitOfWork = work -> {
+            inUnitOfWork[0] = true;
+            work.run();
+            inUnitOfWork[0] = false;
+        };
+        BattleLogic battleLogic = new BattleLogic(mockedBattleRepository, mockedCardRepository, mockedELORepository, unitOfWork, 0);
 
+        // The players' ratings were read before the battle and are stale by now
+        User playerA = new User("playerAId", "playerA", "password", 100, 100, false);
+        User playerB = new User("playerBId", "playerB", "password", 100, 100, false);
+        when(mockedBattleRepository.startBattle(anyString(), anyString(), anyString())).thenReturn(true);
+        when(mockedCardRepository.getUserDeckCards(playerA.getId())).thenReturn(new Card[]{new Card("a", "WaterSpell", 10, "water", "spell")});
+        when(mockedCardRepository.getUserDeckCards(playerB.getId())).thenReturn(new Card[]{new Card("b", "FireTroll", 10, "fire", "monster")});
+        when(mockedELORepository.updateELO(eq(playerA.getId()), anyInt())).thenAnswer(invocation -> {
+            assertTrue(inUnitOfWork[0]);
+            return Optional.of(120);
+        });
+        when(mockedELORepository.updateELO(eq(playerB.getId()), anyInt())).thenReturn(Optional.of(90));
+        when(mockedBattleRepository.crownWinner(anyString(), anyString())).thenAnswer(invocation -> {
+            assertTrue(inUnitOfWork[0]);
+            return true;
+        });
+
+        battleLogic.performBattle("battleId", playerA, playerB);
+
+        // Only the changes are sent, and the log reports the rating stored in the database
+        verify(mockedELORepository).updateELO(playerA.getId(), 3);
+        verify(mockedELORepository).updateELO(playerB.getId(), -5);
+        verify(mockedBattleRepository).startLog(eq("battleId"), contains("playerA wins the battle with final ELO: 120"));
+        verify(mockedBattleRepository).crownWinner("battleId", playerA.getId());
+    }
+
+    @Test
+    void botBattleShouldChangeNeitherEloNorCards() {
+        // Mock dependencies
+        BattleRepository mockedBattleRepository = mock(BattleRepository.class);
+        CardRepository mockedCardRepository = mock(CardRepository.class);
+        ELORepository mockedELORepository = mock(ELORepository.class);
+        UnitOfWork mockedUnitOfWork = mock(UnitOfWork.class);
+        BattleLogic battleLogic = new BattleLogic(mockedBattleRepository, mockedCardRepository, mockedELORepository, mockedUnitOfWork, 0);
+
+        // The bot is not a stored user
+        User player = new User("playerId", "player", "password", 100, 100, false);
+        User bot = new User("bot-playerId", "ArenaBot", null, 0, 100, false);
+        when(mockedBattleRepository.startPracticeBattle("battleId", player.getId())).thenReturn(true);
+        when(mockedBattleRepository.findBattleById("battleId")).thenReturn(Optional.of(new BattleResult("battleId", player, "completed")));
+
+        // The bot's water spell beats the player's fire monster
+        BattleEngine.Deck playerDeck = new BattleEngine.Deck(new Card[]{new Card("b", "FireTroll", 10, "fire", "monster")});
+        BattleEngine.Deck botDeck = new BattleEngine.Deck(new Card[]{new Card("a", "WaterSpell", 10, "water", "spell")});
+
+        BattleResult result = battleLogic.performBotBattle("battleId", player, playerDeck, bot, botDeck);
+
+        // Only the battle and its log are recorded, as practice and without a stored winner
+        verify(mockedBattleRepository, never()).startBattle(anyString(), anyString(), any());
+        verify(mockedBattleRepository).crownWinner("battleId", null);
+        verify(mockedBattleRepository).startLog(eq("battleId"), contains("ArenaBot wins the battle."));
+        verifyNoInteractions(mockedELORepository, mockedUnitOfWork);
+        verify(mockedCardRepository, never()).addCardsToStack(anyString(), anyCollection());
+        assertSame(bot, result.getPlayerB());
+        assertSame(bot, result.getWinner());
+    }
 }
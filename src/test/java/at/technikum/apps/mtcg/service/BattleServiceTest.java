@@ -2,14 +2,22 @@ package at.technikum.apps.mtcg.service;
 
 import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
 import at.technikum.apps.mtcg.entity.BattleResult;
+import at.technikum.apps.mtcg.entity.Card;
 import at.technikum.apps.mtcg.entity.User;
-import at.technikum.apps.mtcg.repository.battle.BattleRepository;
+import at.technikum.apps.mtcg.repository.card.CardRepository;
+import at.technikum.server.BlockingWait;
+import at.technikum.server.BlockingWaitHook;
+import at.technikum.server.ConcurrencyLimitedApplication;
+import at.technikum.server.ServerApplication;
+import at.technikum.server.http.HttpContentType;
 import at.technikum.server.http.HttpStatus;
+import at.technikum.server.http.Request;
+import at.technikum.server.http.Response;
 import org.junit.jupiter.api.Test;
 
 import java.util.Optional;
-import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -19,18 +27,17 @@ class BattleServiceTest {
     @Test
     void shouldReturnNoOpponentWhenNoOpponentJoins() {
         // Mock dependencies and create an instance of BattleService
-        BattleRepository mockedBattleRepository = mock(BattleRepository.class);
         BattleLogic mockedBattleLogic = mock(BattleLogic.class);
         DeckService mockedDeckService = mock(DeckService.class);
-        ConcurrentHashMap<String, BattleResult> battlesWaiting = new ConcurrentHashMap<>();
+        MatchmakingQueue matchmakingQueue = new MatchmakingQueue(4, 200);
 
-        BattleService battleService = new BattleService(mockedBattleRepository, mockedBattleLogic, battlesWaiting, mockedDeckService);
+        BattleService battleService = new BattleService(mockedBattleLogic, matchmakingQueue, mockedDeckService, mock(BotOpponent.class), BlockingWait.DIRECT);
 
         // Create a user instance
         User player = new User("userId", "username", "password");
 
         // Configure the mock behavior for checking if a deck is set for the player
-        when(mockedDeckService.hasDeckSet(player.getId())).thenReturn(true);
+        when(mockedDeckService.getBattleDeck(player.getId())).thenReturn(Optional.of(deck()));
 
         // Assert that an HttpStatusException is thrown with a specific message
         HttpStatusException exception = assertThrows(
@@ -46,18 +53,17 @@ class BattleServiceTest {
     @Test
     void shouldThrowExceptionWhenNoDeckSet() {
         // Mock dependencies and create an instance of BattleService
-        BattleRepository mockedBattleRepository = mock(BattleRepository.class);
         BattleLogic mockedBattleLogic = mock(BattleLogic.class);
         DeckService mockedDeckService = mock(DeckService.class);
-        ConcurrentHashMap<String, BattleResult> battlesWaiting = new ConcurrentHashMap<>();
+        MatchmakingQueue matchmakingQueue = new MatchmakingQueue(4, 200);
 
-        BattleService battleService = new BattleService(mockedBattleRepository, mockedBattleLogic, battlesWaiting, mockedDeckService);
+        BattleService battleService = new BattleService(mockedBattleLogic, matchmakingQueue, mockedDeckService, mock(BotOpponent.class), BlockingWait.DIRECT);
 
         // Create a user instance
         User player = new User("userId", "username", "password");
 
         // Configure the mock behavior for checking if a deck is set for the player
-        when(mockedDeckService.hasDeckSet(player.getId())).thenReturn(false);
+        when(mockedDeckService.getBattleDeck(player.getId())).thenReturn(Optional.empty());
 
         // Assert that an HttpStatusException is thrown
         HttpStatusException exception = assertThrows(
@@ -72,43 +78,206 @@ class BattleServiceTest {
 
 
     @Test
-    void shouldCompleteBattle() {
+    void shouldCompleteBattle() throws Exception {
         // Mock dependencies and create an instance of BattleService
-        BattleRepository mockedBattleRepository = mock(BattleRepository.class);
         BattleLogic mockedBattleLogic = mock(BattleLogic.class);
         DeckService mockedDeckService = mock(DeckService.class);
-        ConcurrentHashMap<String, BattleResult> battlesWaiting = new ConcurrentHashMap<>();
+        MatchmakingQueue matchmakingQueue = new MatchmakingQueue(4, 5000);
 
-        BattleService battleService = new BattleService(mockedBattleRepository, mockedBattleLogic, battlesWaiting, mockedDeckService);
+        BattleService battleService = new BattleService(mockedBattleLogic, matchmakingQueue, mockedDeckService, mock(BotOpponent.class), BlockingWait.DIRECT);
 
         // Create user instances for players A and B
         User playerA = new User("playerAId", "playerA", "password");
         User playerB = new User("playerBId", "playerB", "password");
 
-        // Configure the mock behavior for checking if a deck is set for any user
-        when(mockedDeckService.hasDeckSet(anyString())).thenReturn(true);
-
-        // Generate a unique battle ID
-        String battleId = UUID.randomUUID().toString();
-
-        // Create an open battle result and add it to the battlesWaiting map
-        BattleResult openBattle = new BattleResult(battleId, playerA, "waiting");
-        battlesWaiting.put(battleId, openBattle);
+        // Configure the mock behavior for loading the deck of any user
+        when(mockedDeckService.getBattleDeck(anyString())).thenReturn(Optional.of(deck()));
 
         // Simulate logic for a completed battle
-        BattleResult completedBattle = new BattleResult(battleId, playerA, playerB, "completed", playerA, "startTime", "logEntry");
-        when(mockedBattleLogic.performBattle(eq(battleId), any(User.class), any(User.class))).thenReturn(completedBattle);
-        when(mockedBattleRepository.findBattleById(battleId)).thenReturn(Optional.of(completedBattle));
+        when(mockedBattleLogic.performBattle(anyString(), eq(playerA), any(BattleEngine.Deck.class), eq(playerB), any(BattleEngine.Deck.class)))
+                .thenAnswer(invocation ->
+                        new BattleResult(invocation.getArgument(0), playerA, playerB, "completed", playerA, "startTime", "logEntry"));
 
-        // Perform the battle
+        // Player A opens a battle and waits in the queue
+        CompletableFuture<BattleResult> hostResult = CompletableFuture.supplyAsync(() -> battleService.battle(playerA));
+        while (matchmakingQueue.getWaitingCount() == 0) {
+            Thread.sleep(10);
+        }
+
+        // Player B joins and gets the result from player A's thread
         BattleResult battleResult = battleService.battle(playerB);
 
-        // Assertions to check the completed battle result
+        // Assertions to check the completed battle result, handed over by player A
         assertEquals("completed", battleResult.getStatus());
         assertNotNull(battleResult.getPlayerB());
         assertNotNull(battleResult.getPlayerA());
+        assertSame(battleResult, hostResult.get(5, TimeUnit.SECONDS));
+
+        // Each deck was loaded once when its player entered the queue, not again for the battle
+        verify(mockedDeckService).getBattleDeck(playerA.getId());
+        verify(mockedDeckService).getBattleDeck(playerB.getId());
+        verify(mockedBattleLogic, never()).performBattle(anyString(), any(User.class), any(User.class));
     }
 
+    @Test
+    void shouldRejectPlayersWhenWaitingQueueIsFull() {
+        // Mock dependencies and create a queue with room for one waiting player
+        BattleLogic mockedBattleLogic = mock(BattleLogic.class);
+        DeckService mockedDeckService = mock(DeckService.class);
+        MatchmakingQueue matchmakingQueue = new MatchmakingQueue(1, 200);
 
-}
+        BattleService battleService = new BattleService(mockedBattleLogic, matchmakingQueue, mockedDeckService, mock(BotOpponent.class), BlockingWait.DIRECT);
+
+        // Player A occupies the only waiting slot with its own open battle
+        User playerA = new User("playerAId", "playerA", "password");
+        matchmakingQueue.open(new Contender(playerA, new BattleEngine.Deck(deck())));
+        when(mockedDeckService.getBattleDeck(anyString())).thenReturn(Optional.of(deck()));
+
+        // Player A cannot join its own battle and finds no free slot to wait in
+        HttpStatusException exception = assertThrows(
+                HttpStatusException.class,
+                () -> battleService.battle(playerA)
+        );
+
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+    }
 
+    @Test
+    void shouldPlayAgainstABotWhenNoOpponentJoinsInTime() {
+        // Mock dependencies, with bots stepping in after 50ms instead of the 5s match timeout
+        BattleLogic mockedBattleLogic = mock(BattleLogic.class);
+        DeckService mockedDeckService = mock(DeckService.class);
+        CardRepository mockedCardRepository = mock(CardRepository.class);
+        MatchmakingQueue matchmakingQueue = new MatchmakingQueue(4, 5000);
+        BotOpponent botOpponent = new BotOpponent(mockedCardRepository, 50);
+
+        BattleService battleService = new BattleService(mockedBattleLogic, matchmakingQueue, mockedDeckService, botOpponent, BlockingWait.DIRECT);
+
+        User player = new User("playerId", "player", "password", 20, 100, false);
+        when(mockedDeckService.getBattleDeck(player.getId())).thenReturn(Optional.of(deck()));
+        when(mockedCardRepository.getAllCards()).thenReturn(deck());
+        when(mockedBattleLogic.performBotBattle(anyString(), eq(player), any(BattleEngine.Deck.class), any(User.class), any(BattleEngine.Deck.class)))
+                .thenAnswer(invocation -> new BattleResult(invocation.getArgument(0), player, invocation.getArgument(3), "completed",
+                        player, "startTime", "logEntry"));
+
+        long started = System.nanoTime();
+        BattleResult battleResult = battleService.battle(player);
+
+        // The player got a bot with 4 catalog cards and the same ELO, long before the match timeout
+        assertEquals("completed", battleResult.getStatus());
+        assertEquals(100, battleResult.getPlayerB().getEloRating());
+        assertNotEquals(player.getId(), battleResult.getPlayerB().getId());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started) < 5000);
+        verify(mockedBattleLogic).performBotBattle(anyString(), eq(player), any(BattleEngine.Deck.class), any(User.class),
+                argThat(botDeck -> botDeck.size() == 4));
+        verify(mockedBattleLogic, never()).performBattle(anyString(), any(User.class), any(BattleEngine.Deck.class), any(User.class), any(BattleEngine.Deck.class));
+    }
+
+    @Test
+    void shouldKeepWaitingForAPlayerWhenNoBotCanBeCreated() throws Exception {
+        // Bots would step in after 50ms, but the card catalog is empty
+        BattleLogic mockedBattleLogic = mock(BattleLogic.class);
+        DeckService mockedDeckService = mock(DeckService.class);
+        CardRepository mockedCardRepository = mock(CardRepository.class);
+        MatchmakingQueue matchmakingQueue = new MatchmakingQueue(4, 5000);
+        BotOpponent botOpponent = new BotOpponent(mockedCardRepository, 50);
+
+        BattleService battleService = new BattleService(mockedBattleLogic, matchmakingQueue, mockedDeckService, botOpponent, BlockingWait.DIRECT);
+
+        User playerA = new User("playerAId", "playerA", "password");
+        User playerB = new User("playerBId", "playerB", "password");
+        when(mockedDeckService.getBattleDeck(anyString())).thenReturn(Optional.of(deck()));
+        when(mockedCardRepository.getAllCards()).thenReturn(new Card[0]);
+        when(mockedBattleLogic.performBattle(anyString(), eq(playerA), any(BattleEngine.Deck.class), eq(playerB), any(BattleEngine.Deck.class)))
+                .thenAnswer(invocation ->
+                        new BattleResult(invocation.getArgument(0), playerA, playerB, "completed", playerA, "startTime", "logEntry"));
+
+        // Player A is still waiting well after the bot wait time
+        CompletableFuture<BattleResult> hostResult = CompletableFuture.supplyAsync(() -> battleService.battle(playerA));
+        while (matchmakingQueue.getWaitingCount() == 0) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(200);
+        assertEquals(1, matchmakingQueue.getWaitingCount());
+
+        // Player B joins and both get the real battle
+        BattleResult battleResult = battleService.battle(playerB);
+        assertEquals("completed", battleResult.getStatus());
+        assertSame(battleResult, hostResult.get(5, TimeUnit.SECONDS));
+        verify(mockedBattleLogic, never()).performBotBattle(anyString(), any(User.class), any(BattleEngine.Deck.class), any(User.class), any(BattleEngine.Deck.class));
+    }
+
+    @Test
+    void asyncBattleShouldBeFetchedWithItsTicket() {
+        // Mock dependencies, nobody joins within the 200ms match timeout
+        BattleLogic mockedBattleLogic = mock(BattleLogic.class);
+        DeckService mockedDeckService = mock(DeckService.class);
+        MatchmakingQueue matchmakingQueue = new MatchmakingQueue(4, 200);
+
+        BattleService battleService = new BattleService(mockedBattleLogic, matchmakingQueue, mockedDeckService, mock(BotOpponent.class), BlockingWait.DIRECT);
+
+        User player = new User("playerId", "player", "password");
+        User other = new User("otherId", "other", "password");
+        when(mockedDeckService.getBattleDeck(player.getId())).thenReturn(Optional.of(deck()));
+
+        // Queuing returns at once; asking again while the battle is pending gives the same ticket
+        BattleTicket ticket = battleService.submit(player);
+        assertSame(ticket, battleService.submit(player));
+        assertNull(battleService.awaitTicket(ticket, 0));
+
+        // Only the player can see the ticket
+        assertTrue(battleService.findTicket(ticket.getId(), player).isPresent());
+        assertTrue(battleService.findTicket(ticket.getId(), other).isEmpty());
+
+        // Long polling returns the same answer the synchronous request would have given
+        HttpStatusException exception = assertThrows(
+                HttpStatusException.class,
+                () -> battleService.awaitTicket(ticket, 5000)
+        );
+        assertEquals(HttpStatus.OK, exception.getStatus());
+        assertTrue(ticket.isDone());
+    }
+
+    @Test
+    void longPollShouldNotHoldARequestSlot() throws InterruptedException {
+        // The server installs its request limit; a single slot, like a fully loaded server
+        BlockingWaitHook blockingWait = new BlockingWaitHook();
+        BattleService battleService = new BattleService(mock(BattleLogic.class), new MatchmakingQueue(4, 200),
+                mock(DeckService.class), mock(BotOpponent.class), blockingWait);
+        User player = new User("userId", "username", "password");
+        BattleTicket ticket = new BattleTicket("ticketId", player.getId());
+
+        ServerApplication app = request -> {
+            if ("poll".equals(request.getBody())) {
+                BattleResult result = battleService.awaitTicket(ticket, 5000);
+                return new Response(HttpStatus.OK, HttpContentType.TEXT_PLAIN, result == null ? "pending" : result.getStatus());
+            }
+            ticket.complete(new BattleResult("battleId", player, "finished"));
+            return new Response(HttpStatus.OK, HttpContentType.TEXT_PLAIN, "done");
+        };
+        ConcurrencyLimitedApplication limited = new ConcurrencyLimitedApplication(app, 1);
+        blockingWait.install(limited);
+
+        Request poll = new Request();
+        poll.setBody("poll");
+        Response[] pollResponse = new Response[1];
+        Thread poller = Thread.ofVirtual().start(() -> pollResponse[0] = limited.handle(poll));
+
+        // Finishing the battle needs the only slot; it only gets it while the poll waits
+        Thread finisher = Thread.ofVirtual().start(() -> limited.handle(new Request()));
+        poller.join(10000);
+        finisher.join(10000);
+
+        assertEquals("finished", pollResponse[0].getBody());
+        assertEquals(0, limited.getQueuedRequests());
+    }
+
+    private static Card[] deck() {
+        return new Card[]{
+                new Card("card1", "WaterGoblin", 10, "water", "monster"),
+                new Card("card2", "Dragon", 50, "fire", "monster"),
+                new Card("card3", "WaterSpell", 20, "water", "spell"),
+                new Card("card4", "Knight", 25, "normal", "monster")
+        };
+    }
+}
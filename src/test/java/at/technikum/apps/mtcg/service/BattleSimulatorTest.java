@@ -0,0 +1,55 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.Card;
+import at.technikum.apps.mtcg.repository.card.CardRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BattleSimulatorTest {
+
+    @Test
+    void tournamentShouldGiveTheSameResultOnAnyNumberOfThreads() {
+        // Mock the decks of three users
+        CardRepository mockedCardRepository = mock(CardRepository.class);
+        Map<String, Card[]> decks = new LinkedHashMap<>();
+        decks.put("userA", new Card[]{new Card("a1", "WaterGoblin", 10, "water", "monster"), new Card("a2", "FireSpell", 25, "fire", "spell")});
+        decks.put("userB", new Card[]{new Card("b1", "Dragon", 50, "fire", "monster"), new Card("b2", "RegularSpell", 20, "normal", "spell")});
+        decks.put("userC", new Card[]{new Card("c1", "Knight", 30, "normal", "monster"), new Card("c2", "WaterSpell", 15, "water", "spell")});
+        when(mockedCardRepository.getAllDeckCards()).thenReturn(decks);
+
+        SimulationResult sequential = new BattleSimulator(mockedCardRepository, 1).tournament(2000, 42);
+        SimulationResult parallel = new BattleSimulator(mockedCardRepository, 4).tournament(2000, 42);
+
+        // Per-battle seeds make the result independent of how the battles are spread over threads
+        assertArrayEquals(sequential.getWinMatrix(), parallel.getWinMatrix());
+        assertArrayEquals(sequential.getDrawMatrix(), parallel.getDrawMatrix());
+        assertEquals(3 * 2000, sequential.getBattles());
+
+        // Every battle of a pair is a win, a draw or a loss
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                if (i != j) {
+                    assertEquals(2000, sequential.getWins(i, j) + sequential.getDraws(i, j) + sequential.getLosses(i, j));
+                }
+            }
+        }
+    }
+
+    @Test
+    void headToHeadShouldCountWinsOfTheStrongerDeck() {
+        // A water spell always beats a fire monster of the same damage, from either side
+        BattleSimulator simulator = new BattleSimulator(mock(CardRepository.class), 2);
+        Card[] deckA = {new Card("a", "WaterSpell", 10, "water", "spell")};
+        Card[] deckB = {new Card("b", "FireTroll", 10, "fire", "monster")};
+
+        SimulationResult result = simulator.headToHead("water", deckA, "fire", deckB, 1001, 7);
+
+        assertEquals(1001, result.getWins(result.getParticipants().indexOf("water"), result.getParticipants().indexOf("fire")));
+        assertEquals(1001, result.getLossMatrix()[result.getParticipants().indexOf("fire")][result.getParticipants().indexOf("water")]);
+    }
+}
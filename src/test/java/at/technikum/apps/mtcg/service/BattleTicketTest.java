@@ -0,0 +1,43 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
+import at.technikum.apps.mtcg.entity.BattleResult;
+import at.technikum.apps.mtcg.entity.User;
+import at.technikum.server.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BattleTicketTest {
+
+    @Test
+    void completionTimeShouldBeSetBeforeTheTicketIsDone() {
+        BattleTicket ticket = new BattleTicket("ticketId", "userId");
+        AtomicLong seenByCallback = new AtomicLong();
+        ticket.getResult().whenComplete((battleResult, error) -> seenByCallback.set(ticket.getCompletedNanos()));
+
+        // A running ticket has no completion time
+        assertFalse(ticket.isDone());
+        assertEquals(0, ticket.getCompletedNanos());
+
+        ticket.complete(new BattleResult("battleId", new User("userId", "username", "password"), "completed"));
+
+        // Anyone who sees the ticket done also sees when it finished
+        assertTrue(ticket.isDone());
+        assertNotEquals(0, ticket.getCompletedNanos());
+        assertEquals(ticket.getCompletedNanos(), seenByCallback.get());
+    }
+
+    @Test
+    void failedTicketShouldHaveACompletionTime() {
+        BattleTicket ticket = new BattleTicket("ticketId", "userId");
+
+        ticket.fail(new HttpStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Battle did not finish in time"));
+
+        assertTrue(ticket.isDone());
+        assertTrue(ticket.getResult().isCompletedExceptionally());
+        assertNotEquals(0, ticket.getCompletedNanos());
+    }
+}
@@ -0,0 +1,91 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.customExceptions.HttpStatusException;
+import at.technikum.server.http.HttpStatus;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashingServiceTest {
+
+    @Test
+    void passwordShouldBeHashedWithTheConfiguredCost() {
+        HashingService hashingService = new HashingService(10, 1, 4);
+
+        String hash = hashingService.encrypt("password");
+
+        assertTrue(hash.startsWith("$2a$10$"));
+        assertTrue(hashingService.compareHash("password", hash));
+        assertFalse(hashingService.compareHash("wrong", hash));
+    }
+
+    @Test
+    void hashesWithALowerCostShouldBeRehashed() {
+        HashingService hashingService = new HashingService(11, 1, 4);
+
+        assertTrue(hashingService.needsRehash("$2a$10$abcdefghijklmnopqrstuu5Q0p9dDCWq0JbvUjgG0G9fZkP4A1Tba"));
+        assertFalse(hashingService.needsRehash("$2a$11$abcdefghijklmnopqrstuu5Q0p9dDCWq0JbvUjgG0G9fZkP4A1Tba"));
+        assertFalse(hashingService.needsRehash("$2a$12$abcdefghijklmnopqrstuu5Q0p9dDCWq0JbvUjgG0G9fZkP4A1Tba"));
+        assertFalse(hashingService.needsRehash("plaintext"));
+    }
+
+    @Test
+    void hashingShouldBeRejectedWhenThePoolIsFull() throws InterruptedException {
+        // One thread and one queued request; a cost of 12 keeps the thread busy long enough
+        HashingService hashingService = new HashingService(12, 1, 1);
+        encryptInBackground(hashingService, "first");
+        encryptInBackground(hashingService, "second");
+        awaitQueued(hashingService, 1);
+
+        // The third request fails at once instead of waiting
+        HttpStatusException exception = assertThrows(
+                HttpStatusException.class,
+                () -> hashingService.encrypt("third")
+        );
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, exception.getStatus());
+    }
+
+    @Test
+    void rehashShouldBeSkippedWhileLoginsWait() throws InterruptedException {
+        HashingService hashingService = new HashingService(12, 1, 4);
+        encryptInBackground(hashingService, "first");
+        encryptInBackground(hashingService, "second");
+        awaitQueued(hashingService, 1);
+
+        // The queue has room, but the upgrade must not delay the waiting login
+        assertTrue(hashingService.rehashAsync("third").isCompletedExceptionally());
+    }
+
+    @Test
+    void onlyOneRehashShouldRunAtATime() {
+        HashingService hashingService = new HashingService(12, 2, 4);
+
+        CompletableFuture<String> first = hashingService.rehashAsync("first");
+        // The second thread is idle, but stays free for logins
+        assertTrue(hashingService.rehashAsync("second").isCompletedExceptionally());
+
+        assertTrue(first.join().startsWith("$2a$12$"));
+    }
+
+    @Test
+    void calibratedCostShouldStayInBounds() {
+        assertEquals(HashingService.MIN_COST, HashingService.calibrateCost(1));
+        assertEquals(HashingService.MAX_COST, HashingService.calibrateCost(Long.MAX_VALUE / 1_000_000));
+    }
+
+    private static void encryptInBackground(HashingService hashingService, String password) {
+        Thread thread = new Thread(() -> hashingService.encrypt(password));
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private static void awaitQueued(HashingService hashingService, int queued) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (hashingService.getQueuedCount() < queued && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(queued, hashingService.getQueuedCount());
+    }
+}
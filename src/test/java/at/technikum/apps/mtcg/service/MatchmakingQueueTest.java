@@ -0,0 +1,69 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.entity.Card;
+import at.technikum.apps.mtcg.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MatchmakingQueueTest {
+
+    private static Contender player(String id, int eloRating) {
+        return new Contender(new User(id, id, "password", 20, eloRating, false), new BattleEngine.Deck(new Card[0]));
+    }
+
+    @Test
+    void claimShouldPickTheClosestEloWithinTheWindow() {
+        // Buckets of 25 ELO, battles accept a difference of up to 50, no widening
+        MatchmakingQueue matchmakingQueue = new MatchmakingQueue(8, 5000, 25, 50, 0);
+        matchmakingQueue.open(player("far", 300));
+        WaitingBattle near = matchmakingQueue.open(player("near", 120));
+        matchmakingQueue.open(player("edge", 60));
+
+        Optional<WaitingBattle> claimed = matchmakingQueue.claim(player("joiner", 105));
+
+        // Assertions to check that the nearest battle was claimed and taken out of the queue
+        assertTrue(claimed.isPresent());
+        assertSame(near, claimed.get());
+        assertEquals("joiner", near.getOpponent().join().getUser().getId());
+        assertEquals(2, matchmakingQueue.getWaitingCount());
+        assertEquals(1, matchmakingQueue.getMetrics().getMatched());
+    }
+
+    @Test
+    void claimShouldIgnoreBattlesOutsideTheWindowAndOwnBattles() {
+        MatchmakingQueue matchmakingQueue = new MatchmakingQueue(8, 5000, 25, 50, 0);
+        Contender host = player("host", 100);
+        matchmakingQueue.open(host);
+
+        assertTrue(matchmakingQueue.claim(player("stronger", 200)).isEmpty());
+        assertTrue(matchmakingQueue.claim(host).isEmpty());
+        assertEquals(1, matchmakingQueue.getWaitingCount());
+    }
+
+    @Test
+    void windowShouldWidenWhileTheHostWaits() throws InterruptedException {
+        // The window grows by 100 per second of waiting
+        MatchmakingQueue matchmakingQueue = new MatchmakingQueue(8, 5000, 25, 50, 100);
+        matchmakingQueue.open(player("host", 100));
+        Contender stronger = player("stronger", 200);
+        assertTrue(matchmakingQueue.claim(stronger).isEmpty());
+
+        Thread.sleep(1100);
+
+        assertTrue(matchmakingQueue.claim(stronger).isPresent());
+    }
+
+    @Test
+    void timedOutBattleShouldNotBeClaimed() {
+        MatchmakingQueue matchmakingQueue = new MatchmakingQueue(8, 50);
+        WaitingBattle battle = matchmakingQueue.open(player("host", 100));
+
+        assertNull(matchmakingQueue.awaitOpponent(battle));
+        assertTrue(matchmakingQueue.claim(player("late", 100)).isEmpty());
+        assertEquals(0, matchmakingQueue.getWaitingCount());
+        assertEquals(1, matchmakingQueue.getMetrics().getTimedOut());
+    }
+}
@@ -21,7 +21,7 @@ class PackageServiceTest {
         // Mock dependencies and create an instance of PackageService
         CardRepository mockedCardRepository = mock(CardRepository.class);
         PackageRepository mockedPackageRepository = mock(PackageRepository.class);
-        PackageService packageService = new PackageService(mockedCardRepository, mockedPackageRepository);
+        PackageService packageService = new PackageService(mockedCardRepository, mockedPackageRepository, Runnable::run);
 
         // Create an admin user and package cards
         User adminUser = new User("adminUserId", "adminUser", "password", 5, 100, true);
@@ -45,7 +45,7 @@ class PackageServiceTest {
         // Mock dependencies and create an instance of PackageService
         CardRepository mockedCardRepository = mock(CardRepository.class);
         PackageRepository mockedPackageRepository = mock(PackageRepository.class);
-        PackageService packageService = new PackageService(mockedCardRepository, mockedPackageRepository);
+        PackageService packageService = new PackageService(mockedCardRepository, mockedPackageRepository, Runnable::run);
 
         // Create a non-admin user and package cards
         User nonAdminUser = new User("userId", "username", "password", 5, 100, false);
@@ -64,7 +64,7 @@ class PackageServiceTest {
         // Mock dependencies and create an instance of PackageService
         CardRepository mockedCardRepository = mock(CardRepository.class);
         PackageRepository mockedPackageRepository = mock(PackageRepository.class);
-        PackageService packageService = new PackageService(mockedCardRepository, mockedPackageRepository);
+        PackageService packageService = new PackageService(mockedCardRepository, mockedPackageRepository, Runnable::run);
 
         // Define a package ID and the expected package
         String packageId = "packageId";
@@ -83,7 +83,7 @@ class PackageServiceTest {
         // Mock dependencies and create an instance of PackageService
         CardRepository mockedCardRepository = mock(CardRepository.class);
         PackageRepository mockedPackageRepository = mock(PackageRepository.class);
-        PackageService packageService = new PackageService(mockedCardRepository, mockedPackageRepository);
+        PackageService packageService = new PackageService(mockedCardRepository, mockedPackageRepository, Runnable::run);
 
         // Define a user ID and the expected package ID
         String userId = "userId";
@@ -9,11 +9,15 @@ import at.technikum.server.http.HttpStatus;
 import at.technikum.server.http.Request;
 import org.junit.jupiter.api.Test;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
 
 class SessionServiceTest {
 
@@ -88,6 +92,184 @@ class SessionServiceTest {
         Optional<String> token = service.getToken(tokenRequest);
         assertTrue(token.isPresent());
         assertEquals("generatedToken", token.get());
+
+        // The token is issued with one statement, without looking up and deleting the previous one
+        verify(mockedSessionRepository, never()).findTokenByUserId(anyString());
+        verify(mockedSessionRepository, never()).deleteToken(anyString());
+    }
+
+    @Test
+    void cachedTokenShouldBeAuthenticatedWithoutQueries() {
+        // Mock dependencies, with a cache that keeps users for a minute
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        SessionRepository mockedSessionRepository = mock(SessionRepository.class);
+        HashingService mockedHashingService = mock(HashingService.class);
+        Request mockedRequest = mock(Request.class);
+        TokenCache tokenCache = new TokenCache(100, 60000);
+
+        SessionService service = new SessionService(mockedUserRepository, mockedSessionRepository, mockedHashingService, tokenCache);
+
+        String token = "username-mtcgToken";
+        when(mockedRequest.getAuthenticationHeader()).thenReturn("Bearer " + token);
+        when(mockedSessionRepository.getTokenTimeToLive(token)).thenReturn(Optional.of(Duration.ofMinutes(20)));
+        when(mockedSessionRepository.findByToken(token)).thenReturn(Optional.of(new User("userId", "username", "hashedPassword", 20, 100, false)));
+
+        // The first request validates the token in the database, the following ones are served from the cache
+        User first = service.authenticateRequest(mockedRequest);
+        first.setCoins(0);
+        User second = service.authenticateRequest(mockedRequest);
+        User third = service.authenticateRequest(mockedRequest);
+
+        assertEquals("userId", third.getId());
+        assertEquals(20, second.getCoins());
+        assertNotSame(second, third);
+        verify(mockedSessionRepository, times(1)).getTokenTimeToLive(token);
+        verify(mockedSessionRepository, times(1)).findByToken(token);
+        verify(mockedSessionRepository, never()).authenticateToken(anyString());
+        verify(mockedUserRepository, never()).findUserById(anyString());
+        assertEquals(2, service.getTokenCacheMetrics().getHits());
+        assertEquals(1, service.getTokenCacheMetrics().getMisses());
+    }
+
+    @Test
+    void cachedTokenShouldBeValidatedAgainAfterLogin() {
+        // Mock dependencies, with a cache that reloads users on every request
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        SessionRepository mockedSessionRepository = mock(SessionRepository.class);
+        HashingService mockedHashingService = mock(HashingService.class);
+        Request mockedRequest = mock(Request.class);
+        TokenCache tokenCache = new TokenCache(100, 0);
+
+        SessionService service = new SessionService(mockedUserRepository, mockedSessionRepository, mockedHashingService, tokenCache);
+
+        String token = "username-mtcgToken";
+        User user = new User("userId", "username", "hashedPassword", 20, 100, false);
+        when(mockedRequest.getAuthenticationHeader()).thenReturn("Bearer " + token);
+        when(mockedSessionRepository.getTokenTimeToLive(token)).thenReturn(Optional.of(Duration.ofMinutes(20)));
+        when(mockedSessionRepository.findByToken(token)).thenReturn(Optional.of(user));
+        when(mockedUserRepository.findUserById("userId")).thenReturn(Optional.of(new User("userId", "username", "hashedPassword", 15, 100, false)));
+
+        // A stale user is reloaded by its ID, the token itself is not checked again
+        service.authenticateRequest(mockedRequest);
+        assertEquals(15, service.authenticateRequest(mockedRequest).getCoins());
+        verify(mockedSessionRepository, times(1)).getTokenTimeToLive(token);
+
+        // Logging in again replaces the token, so the next request has to validate it in the database
+        when(mockedUserRepository.findByUsername("username")).thenReturn(Optional.of(user));
+        when(mockedHashingService.compareHash("password", "hashedPassword")).thenReturn(true);
+        when(mockedSessionRepository.generateToken(user)).thenReturn(Optional.of(token));
+        service.getToken(new TokenRequest("username", "password"));
+        assertEquals(0, tokenCache.size());
+
+        service.authenticateRequest(mockedRequest);
+        verify(mockedSessionRepository, times(2)).getTokenTimeToLive(token);
+    }
+
+    @Test
+    void tokenRevokedDuringALookupShouldNotBeCached() {
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        HashingService mockedHashingService = mock(HashingService.class);
+        Request mockedRequest = mock(Request.class);
+        User user = new User("userId", "username", "hashedPassword", 20, 100, false);
+        RevokingSessionRepository sessionRepository = new RevokingSessionRepository();
+        String oldToken = sessionRepository.generateToken(user).orElseThrow();
+
+        SessionService service = new SessionService(mockedUserRepository, sessionRepository, mockedHashingService, new TokenCache(100, 60000));
+        when(mockedRequest.getAuthenticationHeader()).thenReturn("Bearer " + oldToken);
+        when(mockedUserRepository.findByUsername("username")).thenReturn(Optional.of(user));
+        when(mockedHashingService.compareHash("password", "hashedPassword")).thenReturn(true);
+
+        // The user logs in again after the request validated the old token, but before it was cached
+        sessionRepository.duringLookup = () -> service.getToken(new TokenRequest("username", "password"));
+        assertEquals("userId", service.authenticateRequest(mockedRequest).getId());
+
+        // The revoked token is not served from the cache
+        HttpStatusException exception = assertThrows(
+                HttpStatusException.class,
+                () -> service.authenticateRequest(mockedRequest)
+        );
+        assertEquals(HttpStatus.UNAUTHORIZED, exception.getStatus());
     }
 
+    @Test
+    void loginShouldUpgradeHashesWithALowerCost() {
+        // Mock dependencies and create an instance of SessionService
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        SessionRepository mockedSessionRepository = mock(SessionRepository.class);
+        HashingService mockedHashingService = mock(HashingService.class);
+
+        SessionService service = new SessionService(mockedUserRepository, mockedSessionRepository, mockedHashingService);
+
+        // The stored hash was made with an older, lower cost
+        User user = new User("userId", "username", "oldHash");
+        when(mockedUserRepository.findByUsername("username")).thenReturn(Optional.of(user));
+        when(mockedHashingService.compareHash("password", "oldHash")).thenReturn(true);
+        when(mockedHashingService.needsRehash("oldHash")).thenReturn(true);
+        when(mockedHashingService.rehashAsync("password")).thenReturn(CompletableFuture.completedFuture("newHash"));
+        when(mockedSessionRepository.generateToken(user)).thenReturn(Optional.of("generatedToken"));
+
+        assertEquals("generatedToken", service.getToken(new TokenRequest("username", "password")).orElseThrow());
+
+        // The password is hashed again and only replaced if it was not changed in the meantime
+        verify(mockedUserRepository).updatePassword("userId", "oldHash", "newHash");
+    }
+
+    /**
+     * Keeps one token per user and revokes the previous one on login, like the hmac and mmap stores.
+     */
+    private static class RevokingSessionRepository implements SessionRepository {
+
+        private final Map<String, User> usersByToken = new HashMap<>();
+        private int generated;
+
+        // Runs once inside the next findByToken, i.e. between validating a token and caching it
+        private Runnable duringLookup;
+
+        @Override
+        public Optional<String> findTokenByUserId(String userId) {
+            return usersByToken.entrySet().stream()
+                    .filter(entry -> entry.getValue().getId().equals(userId))
+                    .map(Map.Entry::getKey)
+                    .findFirst();
+        }
+
+        @Override
+        public boolean deleteToken(String userId) {
+            return usersByToken.values().removeIf(user -> user.getId().equals(userId));
+        }
+
+        @Override
+        public Optional<User> findByToken(String token) {
+            Optional<User> user = Optional.ofNullable(usersByToken.get(token));
+            if (duringLookup != null) {
+                Runnable action = duringLookup;
+                duringLookup = null;
+                action.run();
+            }
+            return user;
+        }
+
+        @Override
+        public Optional<String> generateToken(User user) {
+            deleteToken(user.getId());
+            String token = user.getUsername() + "-mtcgToken-" + ++generated;
+            usersByToken.put(token, user);
+            return Optional.of(token);
+        }
+
+        @Override
+        public boolean authenticateToken(String token) {
+            return usersByToken.containsKey(token);
+        }
+
+        @Override
+        public Optional<Duration> getTokenTimeToLive(String token) {
+            return usersByToken.containsKey(token) ? Optional.of(Duration.ofMinutes(20)) : Optional.empty();
+        }
+
+        @Override
+        public int purgeExpiredTokens(int batchSize) {
+            return 0;
+        }
+    }
 }
@@ -0,0 +1,38 @@
+package at.technikum.apps.mtcg.service;
+
+import at.technikum.apps.mtcg.repository.session.SessionRepository;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.*;
+
+class TokenSweeperTest {
+
+    @Test
+    void sweepShouldDeleteBatchesUntilOneComesBackShort() {
+        SessionRepository mockedSessionRepository = mock(SessionRepository.class);
+        when(mockedSessionRepository.purgeExpiredTokens(100)).thenReturn(100, 100, 30);
+
+        TokenSweeper tokenSweeper = new TokenSweeper(mockedSessionRepository, 0, 100, 10);
+
+        assertEquals(230, tokenSweeper.sweep());
+        verify(mockedSessionRepository, times(3)).purgeExpiredTokens(100);
+        assertEquals(230, tokenSweeper.getDeletedCount());
+        assertEquals(1, tokenSweeper.getRuns());
+    }
+
+    @Test
+    void sweepShouldStopAfterTheMaximumNumberOfBatches() {
+        SessionRepository mockedSessionRepository = mock(SessionRepository.class);
+        when(mockedSessionRepository.purgeExpiredTokens(100)).thenReturn(100);
+
+        TokenSweeper tokenSweeper = new TokenSweeper(mockedSessionRepository, 0, 100, 3);
+
+        // The rest is left for the next run
+        assertEquals(300, tokenSweeper.sweep());
+        assertEquals(300, tokenSweeper.sweep());
+        verify(mockedSessionRepository, times(6)).purgeExpiredTokens(100);
+        assertEquals(300, tokenSweeper.getLastRunDeletedCount());
+        assertEquals(600, tokenSweeper.getDeletedCount());
+    }
+}
@@ -24,7 +24,7 @@ class TradingServiceTest {
         TradingRepository mockedTradingRepository = mock(TradingRepository.class);
         CardRepository mockedCardRepository = mock(CardRepository.class);
         UserRepository mockedUserRepository = mock(UserRepository.class);
-        TradingService tradingService = new TradingService(mockedTradingRepository, mockedCardRepository, mockedUserRepository);
+        TradingService tradingService = new TradingService(mockedTradingRepository, mockedCardRepository, mockedUserRepository, Runnable::run);
 
         // Create a user and a trade request
         User user = new User("userId", "username", "password");
@@ -47,7 +47,7 @@ class TradingServiceTest {
         TradingRepository mockedTradingRepository = mock(TradingRepository.class);
         CardRepository mockedCardRepository = mock(CardRepository.class);
         UserRepository mockedUserRepository = mock(UserRepository.class);
-        TradingService tradingService = new TradingService(mockedTradingRepository, mockedCardRepository, mockedUserRepository);
+        TradingService tradingService = new TradingService(mockedTradingRepository, mockedCardRepository, mockedUserRepository, Runnable::run);
 
         // Create a user
         User user = new User("userId", "username", "password");
@@ -70,7 +70,7 @@ class TradingServiceTest {
         TradingRepository mockedTradingRepository = mock(TradingRepository.class);
         CardRepository mockedCardRepository = mock(CardRepository.class);
         UserRepository mockedUserRepository = mock(UserRepository.class);
-        TradingService tradingService = new TradingService(mockedTradingRepository, mockedCardRepository, mockedUserRepository);
+        TradingService tradingService = new TradingService(mockedTradingRepository, mockedCardRepository, mockedUserRepository, Runnable::run);
 
         // Create a user and a trading ID
         User user = new User("userId", "username", "password");
@@ -94,7 +94,7 @@ class TradingServiceTest {
         TradingRepository mockedTradingRepository = mock(TradingRepository.class);
         CardRepository mockedCardRepository = mock(CardRepository.class);
         UserRepository mockedUserRepository = mock(UserRepository.class);
-        TradingService tradingService = new TradingService(mockedTradingRepository, mockedCardRepository, mockedUserRepository);
+        TradingService tradingService = new TradingService(mockedTradingRepository, mockedCardRepository, mockedUserRepository, Runnable::run);
 
         // Create a mock requester, trading ID, offered card ID, and a trade request
         User requester = new User("requesterId", "requesterUsername", "password");
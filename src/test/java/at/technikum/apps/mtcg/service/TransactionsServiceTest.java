@@ -25,7 +25,7 @@ class TransactionsServiceTest {
         UserRepository mockedUserRepository = mock(UserRepository.class);
         PackageRepository mockedPackageRepository = mock(PackageRepository.class);
         CoinRepository mockedCoinRepository = mock(CoinRepository.class);
-        TransactionsService transactionsService = new TransactionsService(mockedUserRepository, mockedPackageRepository, mockedCoinRepository);
+        TransactionsService transactionsService = new TransactionsService(mockedUserRepository, mockedPackageRepository, mockedCoinRepository, Runnable::run);
 
         // Create a user with sufficient coins and a package to purchase
         User user = new User("userId", "username", "password", 5, 100, false);
@@ -41,6 +41,7 @@ class TransactionsServiceTest {
         when(mockedPackageRepository.getAvailablePackages(packageId)).thenReturn(Optional.of(aPackage));
         when(mockedPackageRepository.getPackageCardsById(packageId)).thenReturn(cards);
         when(mockedCoinRepository.updateCoins(user.getId(), -5)).thenReturn(true);
+        when(mockedPackageRepository.deletePackage(packageId)).thenReturn(true);
 
         // Execute the method under test
         boolean result = transactionsService.makeTransaction(user, packageId);
@@ -60,7 +61,7 @@ class TransactionsServiceTest {
         UserRepository mockedUserRepository = mock(UserRepository.class);
         PackageRepository mockedPackageRepository = mock(PackageRepository.class);
         CoinRepository mockedCoinRepository = mock(CoinRepository.class);
-        TransactionsService transactionsService = new TransactionsService(mockedUserRepository, mockedPackageRepository, mockedCoinRepository);
+        TransactionsService transactionsService = new TransactionsService(mockedUserRepository, mockedPackageRepository, mockedCoinRepository, Runnable::run);
 
         // Create a user with insufficient coins and a package with a higher price
         User user = new User("userId", "username", "password", 30, 100, false); // Assume 30 coins
@@ -80,12 +81,12 @@ class TransactionsServiceTest {
     }
 
     @Test
-    void executeTransactionShouldFailAndRefundWhenCardAdditionFails() {
+    void executeTransactionShouldFailAndRollBackWhenCardAdditionFails() {
         // Mock setup
         UserRepository mockedUserRepository = mock(UserRepository.class);
         PackageRepository mockedPackageRepository = mock(PackageRepository.class);
         CoinRepository mockedCoinRepository = mock(CoinRepository.class);
-        TransactionsService transactionsService = new TransactionsService(mockedUserRepository, mockedPackageRepository, mockedCoinRepository);
+        TransactionsService transactionsService = new TransactionsService(mockedUserRepository, mockedPackageRepository, mockedCoinRepository, Runnable::run);
 
         String packageId = "packageId";
         String userId = "userId";
@@ -107,8 +108,39 @@ class TransactionsServiceTest {
         // Assertions
         assertEquals(HttpStatus.INTERNAL_SERVER_ERROR, exception.getStatus());
         assertEquals("Error while adding cards to your Stack - Please try again!", exception.getMessage());
-        verify(mockedCoinRepository).updateCoins(userId, price); // Verify coins are refunded
+        verify(mockedCoinRepository, never()).updateCoins(userId, price); // The payment is rolled back, not refunded
+        verify(mockedPackageRepository, never()).deletePackage(packageId);
     }
 
-}
+    @Test
+    void executeTransactionShouldFailWhenThePackageWasSoldMeanwhile() {
+        // Mock setup
+        UserRepository mockedUserRepository = mock(UserRepository.class);
+        PackageRepository mockedPackageRepository = mock(PackageRepository.class);
+        CoinRepository mockedCoinRepository = mock(CoinRepository.class);
+        TransactionsService transactionsService = new TransactionsService(mockedUserRepository, mockedPackageRepository, mockedCoinRepository, Runnable::run);
 
+        String packageId = "packageId";
+        String userId = "userId";
+        Card[] cards = new Card[5];
+        for (int i = 0; i < cards.length; i++) {
+            cards[i] = new Card("cardId" + i, "cardName" + i, 10, "element", "type");
+        }
+        when(mockedCoinRepository.updateCoins(userId, -5)).thenReturn(true);
+        when(mockedPackageRepository.getPackageCardsById(packageId)).thenReturn(cards);
+        when(mockedUserRepository.addCardToStack(eq(userId), any(Card.class))).thenReturn(true);
+
+        // Another buyer marked the package as sold first, so no row is updated
+        when(mockedPackageRepository.deletePackage(packageId)).thenReturn(false);
+
+        // The exception makes the unit of work roll back the payment and the cards
+        HttpStatusException exception = assertThrows(
+                HttpStatusException.class,
+                () -> transactionsService.executeTransaction(packageId, userId, 5)
+        );
+
+        assertEquals(HttpStatus.CONFLICT, exception.getStatus());
+        assertEquals("Package was already sold - Please try another one!", exception.getMessage());
+    }
+
+}
@@ -0,0 +1,88 @@
+package at.technikum.server;
+
+import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpStatus;
+import at.technikum.server.http.Request;
+import at.technikum.server.http.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimitedApplicationTest {
+
+    @Test
+    void parkedRequestShouldNotBlockTheRequestItWaitsFor() throws InterruptedException {
+        CountDownLatch joined = new CountDownLatch(1);
+        // Handed to the application before the server starts, like the battle service gets it
+        BlockingWaitHook blockingWait = new BlockingWaitHook();
+        ServerApplication app = request -> {
+            if (request.getBody() == null) {
+                // The host waits for the joiner, like a battle waiting for an opponent
+                boolean done = blockingWait.await(() -> {
+                    try {
+                        return joined.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        return false;
+                    }
+                });
+                return new Response(done ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE, HttpContentType.TEXT_PLAIN, "host");
+            }
+            joined.countDown();
+            return new Response(HttpStatus.OK, HttpContentType.TEXT_PLAIN, "joiner");
+        };
+        // A single permit: without parking, the joiner could never run while the host waits
+        ConcurrencyLimitedApplication limited = new ConcurrencyLimitedApplication(app, 1);
+        blockingWait.install(limited);
+
+        Response[] hostResponse = new Response[1];
+        Thread host = Thread.ofVirtual().start(() -> hostResponse[0] = limited.handle(new Request()));
+        Request joinRequest = new Request();
+        joinRequest.setBody("join");
+        Thread joiner = Thread.ofVirtual().start(() -> limited.handle(joinRequest));
+
+        host.join(5000);
+        joiner.join(5000);
+
+        assertFalse(host.isAlive());
+        assertFalse(joiner.isAlive());
+        assertEquals(HttpStatus.OK.getCode(), hostResponse[0].getStatusCode());
+        assertEquals(0, limited.getQueuedRequests());
+    }
+
+    @Test
+    void requestShouldGet503WhenTheQueueIsFull() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        ServerApplication app = request -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new Response(HttpStatus.OK, HttpContentType.TEXT_PLAIN, "done");
+        };
+        ConcurrencyLimitedApplication limited = new ConcurrencyLimitedApplication(app, 1, 0);
+
+        Thread busy = Thread.ofVirtual().start(() -> limited.handle(new Request()));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // The only permit is taken and nobody may queue for it
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE.getCode(), limited.handle(new Request()).getStatusCode());
+
+        release.countDown();
+        busy.join(5000);
+        assertEquals(HttpStatus.OK.getCode(), limited.handle(new Request()).getStatusCode());
+    }
+
+    @Test
+    void waitShouldJustRunOutsideALimitedRequest() {
+        ConcurrencyLimitedApplication limited = new ConcurrencyLimitedApplication(request -> null, 1);
+
+        assertEquals("result", limited.await(() -> "result"));
+        assertEquals("result", new BlockingWaitHook().await(() -> "result"));
+    }
+}
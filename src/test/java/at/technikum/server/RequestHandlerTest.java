@@ -0,0 +1,95 @@
+package at.technikum.server;
+
+import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpStatus;
+import at.technikum.server.http.Response;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestHandlerTest {
+
+    // Answers every request with its path
+    private static final ServerApplication ECHO_PATH =
+            request -> new Response(HttpStatus.OK, HttpContentType.TEXT_PLAIN, request.getPath());
+
+    @Test
+    void pipelinedRequestsShouldBeAnsweredInOrder() throws Exception {
+        // Both requests arrive in a single write
+        String responses = exchange(config(100),
+                "GET /first HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                        + "GET /second HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+        assertEquals(2, count(responses, "HTTP/1.1 200"));
+        int first = responses.indexOf("/first");
+        int second = responses.indexOf("/second");
+        assertTrue(first > 0 && second > first, responses);
+        // The first response keeps the connection open for the second one
+        assertTrue(responses.indexOf("Connection: keep-alive") < first, responses);
+    }
+
+    @Test
+    void connectionShouldBeClosedAfterTheRequestLimit() throws Exception {
+        // Three requests without "Connection: close", but only two are served per connection
+        String responses = exchange(config(2),
+                "GET /first HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                        + "GET /second HTTP/1.1\r\nHost: localhost\r\n\r\n"
+                        + "GET /third HTTP/1.1\r\nHost: localhost\r\n\r\n");
+
+        assertEquals(2, count(responses, "HTTP/1.1 200"));
+        assertEquals(1, count(responses, "Connection: close"));
+        assertTrue(responses.indexOf("Connection: close") > responses.indexOf("/first"), responses);
+        assertFalse(responses.contains("/third"), responses);
+    }
+
+    @Test
+    void connectionShouldBeClosedWhenTheClientAsksForIt() throws Exception {
+        String responses = exchange(config(100),
+                "GET /only HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n");
+
+        assertEquals(1, count(responses, "HTTP/1.1 200"));
+        assertTrue(responses.contains("Connection: close"), responses);
+        assertTrue(responses.endsWith("/only"), responses);
+    }
+
+    // The keep-alive timeout is longer than the client waits, so only the handler itself can end the connection
+    private static ServerConfig config(int maxRequestsPerConnection) {
+        return new ServerConfig(0, ServerMode.THREAD_PER_CONNECTION, 30000, maxRequestsPerConnection, 1, 1, 0, 1, 0);
+    }
+
+    /**
+     * Sends the raw requests on one connection and reads until the handler closes it.
+     *
+     * @return Everything the handler sent.
+     */
+    private static String exchange(ServerConfig config, String requests) throws Exception {
+        try (ServerSocketChannel server = ServerSocketChannel.open().bind(new InetSocketAddress("localhost", 0));
+             Socket client = new Socket("localhost", ((InetSocketAddress) server.getLocalAddress()).getPort())) {
+            RequestHandler handler = new RequestHandler(server.accept().socket(), ECHO_PATH, config);
+            Thread thread = new Thread(handler);
+            thread.start();
+
+            // Fails with a SocketTimeoutException if the handler keeps the connection open
+            client.setSoTimeout(5000);
+            client.getOutputStream().write(requests.getBytes(StandardCharsets.US_ASCII));
+            String responses = new String(client.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+
+            thread.join(5000);
+            assertFalse(thread.isAlive());
+            return responses;
+        }
+    }
+
+    private static int count(String text, String part) {
+        int count = 0;
+        for (int index = text.indexOf(part); index >= 0; index = text.indexOf(part, index + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
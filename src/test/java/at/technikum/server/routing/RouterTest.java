@@ -0,0 +1,54 @@
+package at.technikum.server.routing;
+
+import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpMethod;
+import at.technikum.server.http.HttpStatus;
+import at.technikum.server.http.Request;
+import at.technikum.server.http.Response;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouterTest {
+
+    private final RouteHandler tradings = request -> new Response(HttpStatus.OK, HttpContentType.TEXT_PLAIN, "tradings");
+    private final RouteHandler trade = request -> new Response(HttpStatus.OK, HttpContentType.TEXT_PLAIN, request.getPathParameter("id"));
+
+    @Test
+    void matchShouldExtractPathParameters() {
+        Router router = new Router()
+                .add(HttpMethod.GET, "/tradings", tradings)
+                .add(HttpMethod.DELETE, "/tradings/{id}", trade);
+
+        Request request = new Request();
+        request.setMethod(HttpMethod.DELETE);
+        request.setRoute("/tradings/6cd85277-4590-49d4-b0cf-ba0a921faad0?force=true");
+
+        RouteMatch match = router.match(request);
+        request.setPathParameters(match.getPathParameters());
+
+        // Assertions to check that the template parameter and the query string were parsed
+        assertTrue(match.isMethodAllowed());
+        assertEquals("6cd85277-4590-49d4-b0cf-ba0a921faad0", match.getHandler().handle(request).getBody());
+        assertEquals("true", request.getQueryParameter("force"));
+    }
+
+    @Test
+    void matchShouldPreferFixedSegmentsAndReportMissingMethod() {
+        Router router = new Router()
+                .add(HttpMethod.POST, "/transactions/packages", tradings)
+                .add(HttpMethod.POST, "/tradings/{id}", trade);
+
+        assertSame(tradings, router.match(HttpMethod.POST, "/transactions/packages").getHandler());
+        assertFalse(router.match(HttpMethod.GET, "/transactions/packages").isMethodAllowed());
+        assertNull(router.match(HttpMethod.POST, "/transactions"));
+        assertNull(router.match(HttpMethod.POST, "/tradings/a/b"));
+    }
+
+    @Test
+    void addShouldRejectDuplicateRoutes() {
+        Router router = new Router().add(HttpMethod.GET, "/tradings", tradings);
+
+        assertThrows(IllegalStateException.class, () -> router.add(HttpMethod.GET, "/tradings", trade));
+    }
+}
@@ -0,0 +1,77 @@
+package at.technikum.server.util;
+
+import at.technikum.server.http.Request;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpRequestDecoderTest {
+
+    @Test
+    void decodeShouldReadRequestFedByteByByte() {
+        // Body with a multi-byte character, so Content-Length (bytes) differs from the number of chars
+        String body = "{\"Name\":\"Drachenfeuer€\"}";
+        byte[] bytes = ("POST /packages HTTP/1.1\r\n"
+                + "host: localhost:10001\r\n"
+                + "Authorization: Bearer admin-mtcgToken\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + body.getBytes(StandardCharsets.UTF_8).length + "\r\n"
+                + "\r\n"
+                + body).getBytes(StandardCharsets.UTF_8);
+
+        HttpRequestDecoder decoder = new HttpRequestDecoder();
+        ByteBuffer buffer = ByteBuffer.allocate(bytes.length);
+        Request request = null;
+        for (int i = 0; i < bytes.length && request == null; i++) {
+            buffer.put(bytes[i]);
+            buffer.flip();
+            request = decoder.decode(buffer);
+            buffer.compact();
+            // Nothing is complete before the last byte arrived
+            assertTrue(request == null || i == bytes.length - 1);
+        }
+
+        // Assertions to check that all parts of the request were decoded
+        assertNotNull(request);
+        assertEquals("POST", request.getMethod());
+        assertEquals("/packages", request.getRoute());
+        assertEquals("HTTP/1.1", request.getVersion());
+        assertEquals("localhost:10001", request.getHost());
+        assertEquals("Bearer admin-mtcgToken", request.getAuthenticationHeader());
+        assertEquals("application/json", request.getContentType());
+        assertEquals(body, request.getBody());
+    }
+
+    @Test
+    void decodeShouldLeavePipelinedRequestInBuffer() {
+        ByteBuffer buffer = ByteBuffer.wrap(("GET /cards HTTP/1.1\r\nHost: x\r\n\r\n"
+                + "GET /deck?format=plain HTTP/1.0\r\nConnection: keep-alive\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        HttpRequestDecoder decoder = new HttpRequestDecoder();
+
+        Request first = decoder.decode(buffer);
+        Request second = decoder.decode(buffer);
+
+        assertEquals("/cards", first.getRoute());
+        assertNull(first.getBody());
+        assertEquals("/deck?format=plain", second.getRoute());
+        assertEquals("HTTP/1.0", second.getVersion());
+        assertTrue(second.isKeepAliveRequested());
+        assertFalse(buffer.hasRemaining());
+        assertNull(decoder.decode(buffer));
+    }
+
+    @Test
+    void decodeShouldRejectMalformedRequests() {
+        HttpRequestDecoder decoder = new HttpRequestDecoder();
+
+        assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode(ByteBuffer.wrap("PATCH /users HTTP/1.1\r\n\r\n".getBytes(StandardCharsets.US_ASCII))));
+
+        decoder.reset();
+        assertThrows(IllegalArgumentException.class,
+                () -> decoder.decode(ByteBuffer.wrap("POST /users HTTP/1.1\r\nContent-Length: abc\r\n\r\n".getBytes(StandardCharsets.US_ASCII))));
+    }
+}
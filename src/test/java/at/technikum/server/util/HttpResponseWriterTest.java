@@ -0,0 +1,49 @@
+package at.technikum.server.util;
+
+import at.technikum.server.http.HttpContentType;
+import at.technikum.server.http.HttpStatus;
+import at.technikum.server.http.Response;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HttpResponseWriterTest {
+
+    @Test
+    void encodeShouldMatchFormatterOutput() throws IOException {
+        // Body with multi-byte characters, including one outside the BMP
+        Response response = new Response(HttpStatus.OK, HttpContentType.APPLICATION_JSON, "[{\"Name\":\"Drachenfeuer€\",\"Icon\":\"🐉\"}]");
+        HttpResponseWriter writer = new HttpResponseWriter();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EncodedResponse encoded = writer.encode(response, true);
+        encoded.writeFully(Channels.newChannel(out));
+        // Checked before the buffers go back to the pool, which resets them
+        assertFalse(encoded.hasRemaining());
+        encoded.release();
+
+        // Assertions to check that the bytes are the same as the String based formatter produces
+        String expected = new HttpResponseFormatter().toResponseString(response, true);
+        assertArrayEquals(expected.getBytes(StandardCharsets.UTF_8), out.toByteArray());
+    }
+
+    @Test
+    void encodeShouldWriteEmptyBodyWithZeroLength() throws IOException {
+        Response response = new Response(HttpStatus.NO_CONTENT, HttpContentType.TEXT_PLAIN, null);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EncodedResponse encoded = new HttpResponseWriter().encode(response, false);
+        encoded.writeFully(Channels.newChannel(out));
+        encoded.release();
+
+        String written = out.toString(StandardCharsets.UTF_8);
+        assertTrue(written.startsWith("HTTP/1.1 204 "));
+        assertTrue(written.contains("Content-Length: 0\r\n"));
+        assertTrue(written.endsWith("Connection: close\r\n\r\n"));
+    }
+}